@@ -0,0 +1,118 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+import major.mutation.Config;
+
+/**
+ * Measures the overhead of recording coverage through
+ * major.mutation.Config.COVERED, as done by mutated classes during the
+ * coverage pass, and compares it with the previous implementation, which
+ * locked a TreeSet<Integer> and boxed every ID on every call.
+ * 
+ * Mutated code calls COVERED on its hot paths with IDs that are almost always
+ * covered already, so each thread repeatedly records the same small ranges.
+ * 
+ * This class is kept out of the src folder, so that it is not packaged with
+ * the plugin. Compile it against the plugin's classes and run it with
+ * 
+ * java -cp bin:benchmark util.CoverageBenchmark [numMutants] [callsPerThread]
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class CoverageBenchmark {
+	// Number of times each measurement is repeated; the first repetitions warm up the JIT
+	private static final int ROUNDS = 5;
+
+	/**
+	 * A coverage recorder, i.e. an implementation of COVERED.
+	 */
+	private interface Recorder {
+		void covered(int from, int to);
+	}
+
+	/**
+	 * The previous implementation of Config.COVERED.
+	 */
+	private static class LockedTreeSetRecorder implements Recorder {
+		private final Set<Integer> covSet = new TreeSet<Integer>();
+
+		@Override
+		public void covered(int from, int to) {
+			synchronized (covSet) {
+				for (int i = from; i <= to; ++i) {
+					covSet.add(i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The current implementation of Config.COVERED.
+	 */
+	private static class ConfigRecorder implements Recorder {
+		@Override
+		public void covered(int from, int to) {
+			Config.COVERED(from, to);
+		}
+	}
+
+	public static void main(String... args) throws InterruptedException {
+		int numMutants = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int calls = args.length > 1 ? Integer.parseInt(args[1]) : 5000000;
+		Config.setNumberOfMutants(numMutants);
+		System.out.println("mutants: " + numMutants + ", calls per thread: " + calls);
+		for (int threads : new int[] { 1, 4 }) {
+			for (int round = 1; round <= ROUNDS; round++) {
+				double before = measure(new LockedTreeSetRecorder(), threads, calls, numMutants);
+				Config.reset();
+				double after = measure(new ConfigRecorder(), threads, calls, numMutants);
+				if (round == ROUNDS) {
+					System.out.printf("%d thread(s): TreeSet+lock %.1f ns/call, atomic bitset %.1f ns/call%n", threads,
+							before, after);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the average time per call, in nanoseconds, of the given recorder
+	 * when called by the given number of threads at the same time.
+	 */
+	private static double measure(final Recorder recorder, int threads, final int calls, final int numMutants)
+			throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final int offset = t * 7;
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < calls; i++) {
+						// Mostly single IDs, sometimes a small range, as generated by Major
+						int from = 1 + (offset + i % 64) % numMutants;
+						int to = (i & 15) == 0 ? Math.min(from + 3, numMutants) : from;
+						recorder.covered(from, to);
+					}
+				}
+			});
+			worker.start();
+			workers.add(worker);
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread worker : workers)
+			worker.join();
+		return (double) (System.nanoTime() - begin) / calls;
+	}
+}
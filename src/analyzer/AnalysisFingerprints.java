@@ -0,0 +1,447 @@
+package analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+
+import mutator.MutantDescriptor;
+import mutator.MutantsLog;
+import mutator.Mutator;
+import util.CompressedBitmap;
+
+/**
+ * AnalysisFingerprints are 64-bit content hashes of the inputs of an analysis,
+ * from which a later analysis tells whether the Outcome of a WorkOrder
+ * recorded by this analysis still holds (see AnalysisHistory):
+ *
+ * i. the key of each mutant, which identifies the mutant across analyses
+ * regardless of its ID and line number: its method, operator and code as
+ * logged in mutants.log, and how many identical mutants precede it;
+ *
+ * ii. the fingerprint of the source region of each mutant, i.e. the whole
+ * member of its java file in which it occurs: the method, constructor,
+ * initializer or field declaration, including any anonymous or local class
+ * declared in it. Leading and trailing whitespace of each line is ignored, so
+ * moving a member does not change its fingerprint;
+ *
+ * iii. the fingerprint of each test, i.e. the bytecode of its test class and
+ * of the superclasses of its test class;
+ *
+ * iv. the coverage fingerprint of each test, which combines the keys and
+ * region fingerprints of the mutants it covers, so that it changes whenever
+ * the test covers other mutants or a member in which it covers a mutant
+ * changes;
+ *
+ * v. the fingerprint of the dependencies of the tests (see
+ * AnalysisSettings#setDependencies(List)), which includes the code of the
+ * mutated java files outside of the members having mutants, e.g. fields,
+ * initializers and methods without mutants, since any test may run it. The
+ * class files of the mutated java files and of the test classes, including
+ * their nested classes, are not part of it, since the regions and the tests'
+ * fingerprints cover them. Any change to the dependencies changes the
+ * Outcomes of all WorkOrders.
+ *
+ * An edit to a member having mutants thus only changes the Outcomes of the
+ * WorkOrders whose test covers a mutant of that member. A test which runs a
+ * member having mutants without covering any of them is assumed not to
+ * depend on it.
+ *
+ * @author Raymond Tang
+ *
+ */
+final class AnalysisFingerprints {
+	// Fingerprint of a test whose class could not be read, which never matches
+	static final long UNKNOWN = 0L;
+	// Line separators of a java file
+	private static final String LINE_SEPARATORS = "\r\n|\r|\n";
+	// Multiplier of the golden ratio, spreading ordinals and combined hashes
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	// Fingerprint of the dependencies of the tests
+	private final long dependencyFingerprint;
+	// Key of each mutant, indexed by mutant ID - 1
+	private final long[] mutantKeys;
+	// Fingerprint of the source region of each mutant, indexed by mutant ID - 1
+	private final long[] regionFingerprints;
+	// Fingerprint of the test class of each test, indexed by test index
+	private final long[] testFingerprints;
+	// Fingerprint of the mutants covered by each test, indexed by test index
+	private final long[] coverageFingerprints;
+
+	AnalysisFingerprints(long dependencyFingerprint, long[] mutantKeys, long[] regionFingerprints,
+			long[] testFingerprints, long[] coverageFingerprints) {
+		if (mutantKeys.length != regionFingerprints.length || testFingerprints.length != coverageFingerprints.length)
+			throw new IllegalArgumentException("There must be one fingerprint per mutant and test");
+		this.dependencyFingerprint = dependencyFingerprint;
+		this.mutantKeys = mutantKeys;
+		this.regionFingerprints = regionFingerprints;
+		this.testFingerprints = testFingerprints;
+		this.coverageFingerprints = coverageFingerprints;
+	}
+
+	/**
+	 * Computes the fingerprints of an analysis of the mutants of the given
+	 * mutator by the given tests, whose coverage is given, and whose
+	 * dependencies are the given files and directories.
+	 *
+	 * Throws an IOException if mutants.log, a mutated java file, a test class
+	 * or a dependency could not be read.
+	 */
+	static AnalysisFingerprints compute(Mutator mutator, List<TestMethod> tests, CoverageIndex coverageIndex,
+			List<File> dependencies) throws IOException {
+		MutantsLog log = mutator.getMutantsLogIndex();
+		int numMutants = log.size();
+		long[] mutantKeys = new long[numMutants];
+		// Number of mutants with each key, ignoring the number of preceding identical mutants
+		Map<Long, Integer> occurrences = new HashMap<Long, Integer>();
+		// Mutants of each java file
+		Map<File, List<Integer>> mutantsByFile = new LinkedHashMap<File, List<Integer>>();
+		for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+			MutantDescriptor mutant = log.getDescriptor(mutantID);
+			long key = hash(mutant.getMethod(), mutant.getOperator(), mutant.getOriginalOperator(),
+					mutant.getReplacementOperator(), mutant.getOriginalCode(), mutant.getReplacementCode());
+			Integer ordinal = occurrences.get(key);
+			occurrences.put(key, ordinal == null ? 1 : ordinal + 1);
+			mutantKeys[mutantID - 1] = mix(key + (ordinal == null ? 0 : ordinal) * GOLDEN_GAMMA);
+			File javaFile = mutator.getJavaFile(new Mutant(mutantID));
+			if (!mutantsByFile.containsKey(javaFile))
+				mutantsByFile.put(javaFile, new ArrayList<Integer>());
+			mutantsByFile.get(javaFile).add(mutantID);
+		}
+		long[] regionFingerprints = new long[numMutants];
+		// Code of each mutated java file outside of the members having mutants
+		Map<File, String> otherCode = new LinkedHashMap<File, String>();
+		for (File javaFile : mutator.getJavaFiles()) {
+			List<Integer> mutantIDs = mutantsByFile.get(javaFile);
+			otherCode.put(javaFile, computeRegionFingerprints(javaFile,
+					mutantIDs != null ? mutantIDs : Collections.<Integer> emptyList(), log, regionFingerprints));
+		}
+		long[] testFingerprints = new long[tests.size()];
+		long[] coverageFingerprints = new long[tests.size()];
+		Map<Class<?>, Long> classFingerprints = new HashMap<Class<?>, Long>();
+		// The mutated classes are fingerprinted by their source
+		Set<String> excludedClasses = new HashSet<String>(mutator.getCompiledClasses().keySet());
+		for (int testIndex = 0; testIndex < tests.size(); testIndex++) {
+			Class<?> testClass = tests.get(testIndex).getTestClass();
+			Long classFingerprint = classFingerprints.get(testClass);
+			if (classFingerprint == null) {
+				classFingerprint = getClassFingerprint(testClass);
+				classFingerprints.put(testClass, classFingerprint);
+				excludedClasses.add(testClass.getName());
+			}
+			testFingerprints[testIndex] = classFingerprint;
+			// Sum the covered mutants' hashes, so that the order of the mutants does not matter
+			long coverage = 0;
+			CompressedBitmap coveredMutants = coverageIndex.getCoveredMutants(testIndex);
+			for (int mutantID = coveredMutants.nextSetBit(1); mutantID >= 0
+					&& mutantID <= numMutants; mutantID = coveredMutants.nextSetBit(mutantID + 1))
+				coverage += mix(mutantKeys[mutantID - 1] ^ mix(regionFingerprints[mutantID - 1]));
+			coverageFingerprints[testIndex] = mix(coverage + coveredMutants.cardinality() * GOLDEN_GAMMA);
+		}
+		long dependencyFingerprint = getDependencyFingerprint(otherCode, dependencies, excludedClasses);
+		return new AnalysisFingerprints(dependencyFingerprint, mutantKeys, regionFingerprints, testFingerprints,
+				coverageFingerprints);
+	}
+
+	/**
+	 * Computes the fingerprints of the source regions of the given mutants,
+	 * which occur in the given java file, into the given array, and returns
+	 * the code of the java file outside of the members in which they occur.
+	 * A mutant outside of any member, e.g. in an enum constant's arguments,
+	 * gets the fingerprint of the whole java file.
+	 */
+	private static String computeRegionFingerprints(File javaFile, List<Integer> mutantIDs, MutantsLog log,
+			long[] regionFingerprints) throws IOException {
+		// Major compiles the java file with the default encoding
+		String source = new String(Files.readAllBytes(javaFile.toPath()), Charset.defaultCharset());
+		CompilationUnit unit = parse(source);
+		List<ASTNode> members = new ArrayList<ASTNode>();
+		for (Object type : unit.types())
+			addMembers((AbstractTypeDeclaration) type, members);
+		// Members in which mutants occur, in order of their position
+		SortedMap<Integer, ASTNode> mutatedMembers = new TreeMap<Integer, ASTNode>();
+		Map<ASTNode, Long> memberFingerprints = new HashMap<ASTNode, Long>();
+		for (int mutantID : mutantIDs) {
+			int lineNumber = log.getLineNumber(mutantID);
+			long fingerprint = 0;
+			int numMembers = 0;
+			for (ASTNode member : members) {
+				int start = member.getStartPosition();
+				int end = start + member.getLength();
+				if (lineNumber < unit.getLineNumber(start) || lineNumber > unit.getLineNumber(Math.max(start, end - 1)))
+					continue;
+				Long memberFingerprint = memberFingerprints.get(member);
+				if (memberFingerprint == null) {
+					memberFingerprint = fingerprint(source.substring(start, end));
+					memberFingerprints.put(member, memberFingerprint);
+					mutatedMembers.put(start, member);
+				}
+				// Several members may be declared on the mutant's line
+				fingerprint += mix(memberFingerprint);
+				numMembers++;
+			}
+			regionFingerprints[mutantID - 1] = numMembers > 0 ? mix(fingerprint + numMembers * GOLDEN_GAMMA)
+					: fingerprint(source);
+		}
+		StringBuilder otherCode = new StringBuilder();
+		int position = 0;
+		for (ASTNode member : mutatedMembers.values()) {
+			otherCode.append(source, position, member.getStartPosition());
+			position = member.getStartPosition() + member.getLength();
+		}
+		otherCode.append(source, position, source.length());
+		return otherCode.toString();
+	}
+
+	/**
+	 * Adds the members of the given type declaration and of its member types
+	 * to the given list.
+	 */
+	private static void addMembers(AbstractTypeDeclaration type, List<ASTNode> members) {
+		if (type instanceof EnumDeclaration) {
+			for (Object constant : ((EnumDeclaration) type).enumConstants())
+				members.add((ASTNode) constant);
+		}
+		for (Object declaration : type.bodyDeclarations()) {
+			if (declaration instanceof AbstractTypeDeclaration)
+				addMembers((AbstractTypeDeclaration) declaration, members);
+			else
+				members.add((ASTNode) declaration);
+		}
+	}
+
+	/**
+	 * Returns the syntax tree of the given java source. Only the structure of
+	 * the source is needed, so nothing is resolved.
+	 */
+	@SuppressWarnings("deprecation")
+	private static CompilationUnit parse(String source) {
+		// JLS8 is deprecated in later Eclipse releases, but the latest level is
+		// missing from the Eclipse releases this plugin supports (see MANIFEST.MF)
+		ASTParser parser = ASTParser.newParser(AST.JLS8);
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		Map<String, String> options = JavaCore.getOptions();
+		JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
+		parser.setCompilerOptions(options);
+		parser.setSource(source.toCharArray());
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	/**
+	 * Returns the fingerprint of the given code, ignoring leading and trailing
+	 * whitespace of each line.
+	 */
+	private static long fingerprint(String code) {
+		MessageDigest digest = newDigest();
+		for (String line : code.split(LINE_SEPARATORS, -1))
+			update(digest, line.trim());
+		return toLong(digest);
+	}
+
+	/**
+	 * Returns the fingerprint of the bytecode of the given class and of its
+	 * superclasses, up to the first class loaded by the bootstrap class
+	 * loader, or UNKNOWN if one of them cannot be found.
+	 */
+	private static long getClassFingerprint(Class<?> clazz) throws IOException {
+		MessageDigest digest = newDigest();
+		for (Class<?> c = clazz; c != null && c.getClassLoader() != null; c = c.getSuperclass()) {
+			InputStream in = c.getClassLoader().getResourceAsStream(c.getName().replace('.', '/') + ".class");
+			if (in == null)
+				return UNKNOWN;
+			try {
+				update(digest, c.getName());
+				digest.update(IOUtils.toByteArray(in));
+			} finally {
+				in.close();
+			}
+		}
+		long fingerprint = toLong(digest);
+		return fingerprint == UNKNOWN ? 1L : fingerprint;
+	}
+
+	/**
+	 * Returns the fingerprint of the given code of each mutated java file and
+	 * of the contents of the given files and directories, ignoring the class
+	 * files of the given classes and of their nested classes.
+	 */
+	private static long getDependencyFingerprint(Map<File, String> otherCode, List<File> dependencies,
+			Set<String> excludedClasses) throws IOException {
+		MessageDigest digest = newDigest();
+		for (Map.Entry<File, String> javaFile : otherCode.entrySet()) {
+			update(digest, javaFile.getKey().getAbsolutePath());
+			digest.update(longToBytes(fingerprint(javaFile.getValue())));
+		}
+		for (File dependency : dependencies) {
+			update(digest, dependency.getAbsolutePath());
+			if (dependency.isFile()) {
+				digest.update(Files.readAllBytes(dependency.toPath()));
+			} else if (dependency.isDirectory()) {
+				List<File> files = new ArrayList<File>(FileUtils.listFiles(dependency, null, true));
+				Collections.sort(files);
+				Path root = dependency.toPath();
+				for (File file : files) {
+					String relativePath = root.relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+					if (relativePath.endsWith(".class") && isExcluded(
+							relativePath.substring(0, relativePath.length() - 6).replace('/', '.'), excludedClasses))
+						continue;
+					update(digest, relativePath);
+					digest.update(Files.readAllBytes(file.toPath()));
+				}
+			}
+		}
+		return toLong(digest);
+	}
+
+	/**
+	 * Returns true if the class with the given binary name is one of the given
+	 * classes or is nested in one of them, e.g. an anonymous class of a test
+	 * class. Returns false otherwise.
+	 */
+	private static boolean isExcluded(String className, Set<String> excludedClasses) {
+		for (int end = className.length(); end > 0; end = className.lastIndexOf('$', end - 1)) {
+			if (excludedClasses.contains(className.substring(0, end)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if the dependencies of the tests are unchanged since the
+	 * analysis of the given fingerprints. Returns false otherwise.
+	 */
+	boolean isDependenciesUnchanged(AnalysisFingerprints previous) {
+		return dependencyFingerprint == previous.dependencyFingerprint;
+	}
+
+	/**
+	 * Returns true if the source region of the mutant with the given ID is
+	 * unchanged since the analysis of the given fingerprints, in which the
+	 * mutant had the given ID. Returns false otherwise.
+	 */
+	boolean isMutantUnchanged(int mutantID, AnalysisFingerprints previous, int previousMutantID) {
+		return mutantKeys[mutantID - 1] == previous.mutantKeys[previousMutantID - 1]
+				&& regionFingerprints[mutantID - 1] == previous.regionFingerprints[previousMutantID - 1];
+	}
+
+	/**
+	 * Returns true if the test class and the coverage of the test with the
+	 * given index are unchanged since the analysis of the given fingerprints,
+	 * in which the test had the given index. Returns false otherwise.
+	 */
+	boolean isTestUnchanged(int testIndex, AnalysisFingerprints previous, int previousTestIndex) {
+		return testFingerprints[testIndex] != UNKNOWN
+				&& testFingerprints[testIndex] == previous.testFingerprints[previousTestIndex]
+				&& coverageFingerprints[testIndex] == previous.coverageFingerprints[previousTestIndex];
+	}
+
+	long getDependencyFingerprint() {
+		return dependencyFingerprint;
+	}
+
+	long getMutantKey(int mutantID) {
+		return mutantKeys[mutantID - 1];
+	}
+
+	long getRegionFingerprint(int mutantID) {
+		return regionFingerprints[mutantID - 1];
+	}
+
+	long getTestFingerprint(int testIndex) {
+		return testFingerprints[testIndex];
+	}
+
+	long getCoverageFingerprint(int testIndex) {
+		return coverageFingerprints[testIndex];
+	}
+
+	int getNumberOfMutants() {
+		return mutantKeys.length;
+	}
+
+	int getNumberOfTests() {
+		return testFingerprints.length;
+	}
+
+	/**
+	 * Returns the fingerprint of the given strings.
+	 */
+	private static long hash(String... strings) {
+		MessageDigest digest = newDigest();
+		for (String string : strings)
+			update(digest, string);
+		return toLong(digest);
+	}
+
+	/**
+	 * Adds the given string, terminated by a zero byte, to the given digest.
+	 */
+	private static void update(MessageDigest digest, String string) {
+		digest.update(string.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Returns the first 8 bytes of the given digest.
+	 */
+	private static long toLong(MessageDigest digest) {
+		byte[] bytes = digest.digest();
+		long value = 0;
+		for (int i = 0; i < 8; i++)
+			value = (value << 8) | (bytes[i] & 0xFF);
+		return value;
+	}
+
+	/**
+	 * Returns the bytes of the given value, most significant first.
+	 */
+	private static byte[] longToBytes(long value) {
+		byte[] bytes = new byte[8];
+		for (int i = 7; i >= 0; i--, value >>>= 8)
+			bytes[i] = (byte) value;
+		return bytes;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-1
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	}
+
+	/**
+	 * Scrambles the bits of the given value (the finalizer of SplitMix64).
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
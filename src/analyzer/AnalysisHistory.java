@@ -0,0 +1,218 @@
+package analyzer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An AnalysisHistory holds the Outcomes recorded by an incremental analysis
+ * together with the fingerprints of its inputs (see AnalysisFingerprints), so
+ * that the next analysis of the same code carries forward the Outcomes of the
+ * WorkOrders whose inputs did not change instead of running them again (see
+ * MajorMutantAnalyzer#setAnalysisHistory(AnalysisHistory)). Mutants are
+ * matched across analyses by their keys and tests by their keys (see
+ * TestMethod#getKey()), so the IDs of mutants and tests may differ between
+ * analyses.
+ *
+ * An AnalysisHistory is written to a file named analysisHistory.bin, which
+ * consists of, in big-endian byte order: a header of five ints (a magic
+ * number, the version of the format, the number of mutants, the number of
+ * tests and the number of longs per row); the fingerprint of the
+ * dependencies; the key, test fingerprint and coverage fingerprint of each
+ * test; the key and region fingerprint of each mutant; and the KillMap row of
+ * each mutant (see KillMap#getRow(int)).
+ *
+ * @author Raymond Tang
+ *
+ */
+public final class AnalysisHistory {
+	// Name of the file to which an AnalysisHistory is written in the project
+	public static final String FILE_NAME = "analysisHistory.bin";
+	// First int of an analysis history file, "MAHI"
+	private static final int MAGIC = 0x4D414849;
+	// Version of the format
+	private static final int VERSION = 3;
+	// Keys of the tests, in order of test index
+	private final List<String> testKeys;
+	// Index of each test, by key
+	private final Map<String, Integer> testIndices;
+	// Fingerprints of the inputs of the analysis
+	private final AnalysisFingerprints fingerprints;
+	// ID of each mutant, by key
+	private final Map<Long, Integer> mutantIDs;
+	// Outcomes of each mutant, two bits per test index, indexed by mutant ID
+	private final long[][] rows;
+
+	/**
+	 * Creates an AnalysisHistory of an analysis of the tests with the given
+	 * keys, with the given fingerprints and KillMap rows, indexed by mutant
+	 * ID.
+	 */
+	AnalysisHistory(List<String> testKeys, AnalysisFingerprints fingerprints, long[][] rows) {
+		if (testKeys.size() != fingerprints.getNumberOfTests())
+			throw new IllegalArgumentException("There must be one fingerprint per test");
+		this.testKeys = Collections.unmodifiableList(new ArrayList<String>(testKeys));
+		this.testIndices = new HashMap<String, Integer>();
+		for (int testIndex = 0; testIndex < testKeys.size(); testIndex++)
+			testIndices.put(testKeys.get(testIndex), testIndex);
+		this.fingerprints = fingerprints;
+		this.mutantIDs = new HashMap<Long, Integer>();
+		for (int mutantID = 1; mutantID <= fingerprints.getNumberOfMutants(); mutantID++)
+			mutantIDs.put(fingerprints.getMutantKey(mutantID), mutantID);
+		this.rows = rows;
+	}
+
+	/**
+	 * Reads the given analysis history file.
+	 *
+	 * Throws an IOException if the file could not be read or is not an
+	 * analysis history file.
+	 *
+	 * @param file
+	 *            the file to read
+	 * @return the AnalysisHistory stored in the file
+	 * @throws IOException
+	 */
+	public static AnalysisHistory read(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " is not an analysis history file");
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException("Version " + version + " of the analysis history file is not supported");
+			int numMutants = in.readInt();
+			int numTests = in.readInt();
+			int rowLength = in.readInt();
+			if (numMutants < 0 || numTests < 0 || rowLength != KillMap.getRowLength(numTests))
+				throw new IOException(file + " is corrupted");
+			long dependencyFingerprint = in.readLong();
+			List<String> testKeys = new ArrayList<String>();
+			long[] testFingerprints = new long[numTests];
+			long[] coverageFingerprints = new long[numTests];
+			for (int testIndex = 0; testIndex < numTests; testIndex++) {
+				byte[] key = new byte[in.readInt()];
+				in.readFully(key);
+				testKeys.add(new String(key, StandardCharsets.UTF_8));
+				testFingerprints[testIndex] = in.readLong();
+				coverageFingerprints[testIndex] = in.readLong();
+			}
+			long[] mutantKeys = new long[numMutants];
+			long[] regionFingerprints = new long[numMutants];
+			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+				mutantKeys[mutantID - 1] = in.readLong();
+				regionFingerprints[mutantID - 1] = in.readLong();
+			}
+			long[][] rows = new long[numMutants + 1][];
+			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+				rows[mutantID] = new long[rowLength];
+				for (int word = 0; word < rowLength; word++)
+					rows[mutantID][word] = in.readLong();
+			}
+			return new AnalysisHistory(testKeys, new AnalysisFingerprints(dependencyFingerprint, mutantKeys,
+					regionFingerprints, testFingerprints, coverageFingerprints), rows);
+		} catch (EOFException | NegativeArraySizeException e) {
+			throw new IOException(file + " is corrupted");
+		}
+	}
+
+	/**
+	 * Writes this AnalysisHistory to the given file, replacing its contents.
+	 *
+	 * Throws an IOException if the file could not be written.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 */
+	public void write(Path file) throws IOException {
+		int numMutants = getNumberOfMutants();
+		int rowLength = KillMap.getRowLength(testKeys.size());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numMutants);
+			out.writeInt(testKeys.size());
+			out.writeInt(rowLength);
+			out.writeLong(fingerprints.getDependencyFingerprint());
+			for (int testIndex = 0; testIndex < testKeys.size(); testIndex++) {
+				byte[] key = testKeys.get(testIndex).getBytes(StandardCharsets.UTF_8);
+				out.writeInt(key.length);
+				out.write(key);
+				out.writeLong(fingerprints.getTestFingerprint(testIndex));
+				out.writeLong(fingerprints.getCoverageFingerprint(testIndex));
+			}
+			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+				out.writeLong(fingerprints.getMutantKey(mutantID));
+				out.writeLong(fingerprints.getRegionFingerprint(mutantID));
+			}
+			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+				long[] row = mutantID < rows.length ? rows[mutantID] : null;
+				for (int word = 0; word < rowLength; word++)
+					out.writeLong(row != null && word < row.length ? row[word] : 0L);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of mutants of the analysis.
+	 *
+	 * @return the number of mutants
+	 */
+	public int getNumberOfMutants() {
+		return fingerprints.getNumberOfMutants();
+	}
+
+	/**
+	 * Returns the number of tests of the analysis.
+	 *
+	 * @return the number of tests
+	 */
+	public int getNumberOfTests() {
+		return testKeys.size();
+	}
+
+	/**
+	 * Returns the fingerprints of the inputs of the analysis.
+	 */
+	AnalysisFingerprints getFingerprints() {
+		return fingerprints;
+	}
+
+	/**
+	 * Returns the index of the test with the given key, or -1 if the analysis
+	 * did not run such a test.
+	 */
+	int getTestIndex(String testKey) {
+		Integer testIndex = testIndices.get(testKey);
+		return testIndex == null ? -1 : testIndex;
+	}
+
+	/**
+	 * Returns the ID of the mutant with the given key, or 0 if the analysis
+	 * had no such mutant.
+	 */
+	int getMutantID(long mutantKey) {
+		Integer mutantID = mutantIDs.get(mutantKey);
+		return mutantID == null ? 0 : mutantID;
+	}
+
+	/**
+	 * Returns the Outcome of the mutant with the given ID and the test with
+	 * the given index recorded by the analysis.
+	 */
+	Outcome getOutcome(int mutantID, int testIndex) {
+		long[] row = mutantID < rows.length ? rows[mutantID] : null;
+		return KillMap.decode(KillMap.getCode(row, testIndex));
+	}
+}
@@ -0,0 +1,76 @@
+package analyzer;
+
+/**
+ * An AnalysisListener is notified of the results of a MutantAnalyzer while
+ * the analysis runs, so that results can be processed as they arrive instead
+ * of once the whole KillMap is complete. Events are delivered on the thread
+ * running the analysis, in the following order: the COVERAGE phase starts
+ * and finishes, the EXECUTION phase starts, each WorkOrder and each mutant
+ * completes, the EXECUTION phase finishes, and the analysis finishes.
+ * Listeners should return quickly, since the analysis waits for them.
+ * 
+ * All methods do nothing by default, so that listeners only need to
+ * implement the events they are interested in.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public interface AnalysisListener {
+
+	/**
+	 * Notifies that the given phase has started and consists of the given
+	 * amount of work (see AnalysisMonitor#beginPhase(AnalysisPhase, int)).
+	 * 
+	 * @param phase
+	 *            the phase which has started
+	 * @param totalWork
+	 *            the amount of work of the phase
+	 */
+	default void phaseStarted(AnalysisPhase phase, int totalWork) {
+	}
+
+	/**
+	 * Notifies that the given phase has finished.
+	 * 
+	 * @param phase
+	 *            the phase which has finished
+	 */
+	default void phaseFinished(AnalysisPhase phase) {
+	}
+
+	/**
+	 * Notifies that the given WorkOrder, i.e. a test covering a mutant run
+	 * against that mutant, has the given Outcome. WorkOrders whose test does
+	 * not cover their mutant are not run; their Outcome is ALIVE.
+	 * 
+	 * @param workOrder
+	 *            the WorkOrder which has completed
+	 * @param outcome
+	 *            the Outcome of the WorkOrder
+	 */
+	default void workOrderCompleted(WorkOrder workOrder, Outcome outcome) {
+	}
+
+	/**
+	 * Notifies that all WorkOrders of the given mutant have completed and that
+	 * the mutant has the given final status. Uncovered mutants complete at the
+	 * start of the EXECUTION phase.
+	 * 
+	 * @param mutant
+	 *            the mutant which has completed
+	 * @param status
+	 *            the final status of the mutant
+	 */
+	default void mutantCompleted(Mutant mutant, MutantStatus status) {
+	}
+
+	/**
+	 * Notifies that the analysis has finished and that the given analyzer
+	 * holds its complete results.
+	 * 
+	 * @param analyzer
+	 *            the analyzer which has finished
+	 */
+	default void analysisFinished(MutantAnalyzer analyzer) {
+	}
+}
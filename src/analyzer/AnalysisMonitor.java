@@ -0,0 +1,58 @@
+package analyzer;
+
+/**
+ * An AnalysisMonitor is told about the progress of a MajorMutantAnalyzer and
+ * may ask it to stop. A MajorMutantAnalyzer calls its AnalysisMonitor from
+ * the thread which started the analysis only.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public interface AnalysisMonitor {
+
+	/**
+	 * An AnalysisMonitor which ignores progress and never asks to stop.
+	 */
+	AnalysisMonitor NONE = new AnalysisMonitor() {
+		@Override
+		public void beginPhase(AnalysisPhase phase, int totalWork) {
+		}
+
+		@Override
+		public void worked(int work) {
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return false;
+		}
+	};
+
+	/**
+	 * Notifies that the given phase has begun and consists of the given
+	 * amount of work. For the COVERAGE phase, a unit of work is a test; for
+	 * the EXECUTION phase, it is a WorkOrder.
+	 * 
+	 * @param phase
+	 *            the phase which has begun
+	 * @param totalWork
+	 *            the amount of work of the phase
+	 */
+	void beginPhase(AnalysisPhase phase, int totalWork);
+
+	/**
+	 * Notifies that the given amount of work of the current phase is done.
+	 * 
+	 * @param work
+	 *            the amount of work done
+	 */
+	void worked(int work);
+
+	/**
+	 * Returns true if the analysis should stop as soon as possible. Returns
+	 * false otherwise.
+	 * 
+	 * @return true if the analysis is canceled, false otherwise
+	 */
+	boolean isCanceled();
+}
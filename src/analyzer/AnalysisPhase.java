@@ -0,0 +1,32 @@
+package analyzer;
+
+/**
+ * An AnalysisPhase is a step of the mutation testing performed by a
+ * MajorMutantAnalyzer.
+ * 
+ * COVERAGE runs each test against the original program to gather its result
+ * and the mutants it covers. EXECUTION runs each covered mutant against the
+ * tests covering it.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public enum AnalysisPhase {
+	COVERAGE("Running tests against the original program"), EXECUTION("Running tests against mutants");
+
+	// Description of this phase
+	private final String description;
+
+	private AnalysisPhase(String description) {
+		this.description = description;
+	}
+
+	/**
+	 * Returns a description of this phase.
+	 * 
+	 * @return a description of this phase
+	 */
+	public String getDescription() {
+		return description;
+	}
+}
@@ -0,0 +1,359 @@
+package analyzer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AnalysisSettings determine how a MajorMutantAnalyzer runs tests against
+ * mutants. By default, tests are run one after another in the current JVM
+ * (see ExecutionMode).
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class AnalysisSettings {
+	// File separator. Differs depending on operating system
+	private static final char FILE_SEPARATOR = File.separatorChar;
+	// Where tests are run
+	private ExecutionMode executionMode;
+	// Number of workers running tests in parallel
+	private int numWorkers;
+	// The java executable used to start worker JVMs
+	private String javaExecutable;
+	// The classpath of worker JVMs
+	private List<File> workerClasspath;
+	// Lower bound of the time budget of a test run against a mutant, in milliseconds
+	private long minimumTimeout;
+	// Whether or not a mutant's remaining tests are skipped once a test kills it
+	private boolean stopAtFirstKill;
+	// Whether or not the covering tests of a mutant are run in a single JUnit run
+	private boolean batchTests;
+	// Whether or not test classes are set up once and their tests run against several mutants
+	private boolean amortizeFixtures;
+	// Whether or not a run against a mutant is stopped at its first test failure
+	private boolean failFast;
+	// Whether or not the exported kill matrix is gzip-compressed
+	private boolean compressKillMatrix;
+	// Whether or not Outcomes whose inputs did not change are carried forward from a previous analysis
+	private boolean incremental;
+	// Files and directories of classes the tests depend on besides the mutated and test classes
+	private List<File> dependencies;
+
+	public AnalysisSettings() {
+		executionMode = ExecutionMode.IN_PROCESS;
+		numWorkers = 1;
+		javaExecutable = System.getProperty("java.home") + FILE_SEPARATOR + "bin" + FILE_SEPARATOR + "java";
+		workerClasspath = new ArrayList<File>();
+		minimumTimeout = 2000;
+		stopAtFirstKill = false;
+		batchTests = false;
+		amortizeFixtures = false;
+		failFast = false;
+		compressKillMatrix = false;
+		incremental = false;
+		dependencies = new ArrayList<File>();
+	}
+
+	/**
+	 * Returns the execution mode, which determines where tests are run.
+	 * 
+	 * @return the execution mode
+	 */
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	/**
+	 * Sets the execution mode, which determines where tests are run.
+	 * 
+	 * @param executionMode
+	 *            the execution mode
+	 */
+	public void setExecutionMode(ExecutionMode executionMode) {
+		if (executionMode == null)
+			throw new IllegalArgumentException("execution mode cannot be null");
+		this.executionMode = executionMode;
+	}
+
+	/**
+	 * Returns the number of workers running tests in parallel.
+	 * 
+	 * @return the number of workers
+	 */
+	public int getNumberOfWorkers() {
+		return numWorkers;
+	}
+
+	/**
+	 * Sets the number of workers running tests in parallel. This is ignored
+	 * in the IN_PROCESS execution mode, which always uses a single worker.
+	 * 
+	 * An IllegalArgumentException is thrown if the given number is less than
+	 * 1.
+	 * 
+	 * @param numWorkers
+	 *            the number of workers
+	 */
+	public void setNumberOfWorkers(int numWorkers) {
+		if (numWorkers < 1)
+			throw new IllegalArgumentException("number of workers must be at least 1");
+		this.numWorkers = numWorkers;
+	}
+
+	/**
+	 * Returns the java executable used to start worker JVMs.
+	 * 
+	 * @return the java executable used to start worker JVMs
+	 */
+	public String getJavaExecutable() {
+		return javaExecutable;
+	}
+
+	/**
+	 * Sets the java executable used to start worker JVMs.
+	 * 
+	 * @param javaExecutable
+	 *            the pathname string of a java executable
+	 */
+	public void setJavaExecutable(String javaExecutable) {
+		if (javaExecutable == null)
+			throw new IllegalArgumentException("java executable cannot be null");
+		this.javaExecutable = javaExecutable;
+	}
+
+	/**
+	 * Returns the classpath of worker JVMs.
+	 * 
+	 * @return the classpath of worker JVMs
+	 */
+	public List<File> getWorkerClasspath() {
+		return workerClasspath;
+	}
+
+	/**
+	 * Sets the classpath of worker JVMs. It must contain the tests, the
+	 * mutated classes, JUnit, and this plugin's classes.
+	 * 
+	 * @param workerClasspath
+	 *            the classpath of worker JVMs
+	 */
+	public void setWorkerClasspath(List<File> workerClasspath) {
+		if (workerClasspath == null)
+			throw new IllegalArgumentException("worker classpath cannot be null");
+		this.workerClasspath = new ArrayList<File>(workerClasspath);
+	}
+
+	/**
+	 * Returns the lower bound of the time budget of a test run against a
+	 * mutant, in milliseconds.
+	 * 
+	 * @return the minimum timeout in milliseconds
+	 */
+	public long getMinimumTimeout() {
+		return minimumTimeout;
+	}
+
+	/**
+	 * Sets the lower bound of the time budget of a test run against a mutant.
+	 * The time budget of a test is the runtime of the test against the
+	 * original program multiplied by the mutator's timeout factor, but never
+	 * less than this minimum.
+	 * 
+	 * An IllegalArgumentException is thrown if the given timeout is not
+	 * positive.
+	 * 
+	 * @param minimumTimeout
+	 *            the minimum timeout in milliseconds
+	 */
+	public void setMinimumTimeout(long minimumTimeout) {
+		if (minimumTimeout <= 0)
+			throw new IllegalArgumentException("minimum timeout must be positive");
+		this.minimumTimeout = minimumTimeout;
+	}
+
+	/**
+	 * Returns true if a mutant's remaining tests are skipped once a test kills
+	 * it. Returns false if every test covering a mutant is run against it.
+	 * 
+	 * @return the value of the stopAtFirstKill property
+	 */
+	public boolean isStopAtFirstKill() {
+		return stopAtFirstKill;
+	}
+
+	/**
+	 * Sets the stopAtFirstKill property to either true or false. If true,
+	 * each mutant is run against its covering tests only until one of them
+	 * kills it, and the KillMap records the remaining tests as NOT_EXECUTED.
+	 * This is enough to compute the mutation score and the set of surviving
+	 * mutants, but not the full kill matrix.
+	 * 
+	 * @param stopAtFirstKill
+	 *            the value to which the stopAtFirstKill property will be set
+	 */
+	public void setStopAtFirstKill(boolean stopAtFirstKill) {
+		this.stopAtFirstKill = stopAtFirstKill;
+	}
+
+	/**
+	 * Returns true if the covering tests of a mutant are run in a single JUnit
+	 * run. Returns false if each test is run on its own.
+	 * 
+	 * @return the value of the batchTests property
+	 */
+	public boolean isBatchTests() {
+		return batchTests;
+	}
+
+	/**
+	 * Sets the batchTests property to either true or false. If true, all
+	 * tests covering a mutant are run against it in a single JUnit run, with
+	 * a RunListener attributing the results to each test. This saves setting
+	 * up the runner and the test classes for every test, which dominates the
+	 * cost of cheap tests. Tests are still run one by one against the original
+	 * program, since coverage is gathered per test.
+	 * 
+	 * A batch is run as a whole, so every covering test of a mutant is run
+	 * even if stopAtFirstKill is set, unless a test exceeds its time budget.
+	 * 
+	 * @param batchTests
+	 *            the value to which the batchTests property will be set
+	 */
+	public void setBatchTests(boolean batchTests) {
+		this.batchTests = batchTests;
+	}
+
+	/**
+	 * Returns true if each test class is set up once and its tests are run
+	 * against all mutants they cover. Returns false otherwise.
+	 * 
+	 * @return the value of the amortizeFixtures property
+	 */
+	public boolean isAmortizeFixtures() {
+		return amortizeFixtures;
+	}
+
+	/**
+	 * Sets the amortizeFixtures property to either true or false. If true, the
+	 * WorkOrders of each test class are run under a single class fixture: its
+	 * @BeforeClass methods are run once, against the original program, and
+	 * the mutant is switched between test methods. This pays off for test
+	 * classes with expensive class fixtures. Test classes with a custom runner
+	 * are still run one test at a time. This property takes precedence over
+	 * batchTests, and every covering test of a mutant is run even if
+	 * stopAtFirstKill is set.
+	 * 
+	 * @param amortizeFixtures
+	 *            the value to which the amortizeFixtures property will be set
+	 */
+	public void setAmortizeFixtures(boolean amortizeFixtures) {
+		this.amortizeFixtures = amortizeFixtures;
+	}
+
+	/**
+	 * Returns true if a run against a mutant is stopped at its first test
+	 * failure. Returns false otherwise.
+	 * 
+	 * @return the value of the failFast property
+	 */
+	public boolean isFailFast() {
+		return failFast;
+	}
+
+	/**
+	 * Sets the failFast property to either true or false. If true, a JUnit run
+	 * against a mutant is stopped as soon as a test fails (see
+	 * org.junit.runner.notification.RunNotifier#pleaseStop()), instead of
+	 * running the remaining tests or, for a parameterized test, the remaining
+	 * parameters. The result of the failing test is unchanged. If tests are
+	 * batched, only tests passing against the original program are batched,
+	 * so that the first failure of a batch kills the mutant; the tests of the
+	 * batch which were not reached, and the other tests covering the mutant,
+	 * are then NOT_EXECUTED. Runs against the original program are never
+	 * stopped early, so that their coverage information is complete.
+	 * 
+	 * @param failFast
+	 *            the value to which the failFast property will be set
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Returns true if the exported kill matrix is gzip-compressed. Returns
+	 * false otherwise.
+	 * 
+	 * @return the value of the compressKillMatrix property
+	 */
+	public boolean isCompressKillMatrix() {
+		return compressKillMatrix;
+	}
+
+	/**
+	 * Sets the compressKillMatrix property to either true or false. If true,
+	 * the kill matrix is exported to killMatrix.csv.gz instead of
+	 * killMatrix.csv (see MajorMutantAnalyzer#exportKillMatrixCSV()).
+	 * 
+	 * @param compressKillMatrix
+	 *            the value to which the compressKillMatrix property will be set
+	 */
+	public void setCompressKillMatrix(boolean compressKillMatrix) {
+		this.compressKillMatrix = compressKillMatrix;
+	}
+
+	/**
+	 * Returns true if the Outcomes of WorkOrders whose inputs did not change
+	 * are carried forward from a previous analysis. Returns false otherwise.
+	 * 
+	 * @return the value of the incremental property
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Sets the incremental property to either true or false. If true, the
+	 * inputs of the analysis are fingerprinted once the tests have been run
+	 * against the original program, and the Outcome of a WorkOrder recorded by
+	 * the previous analysis is carried forward instead of running the
+	 * WorkOrder again if its mutant's member, its test class and the coverage
+	 * of its test, including the members in which the test covers mutants,
+	 * are unchanged, and so are the dependencies (see
+	 * MajorMutantAnalyzer#setAnalysisHistory(AnalysisHistory)).
+	 * 
+	 * @param incremental
+	 *            the value to which the incremental property will be set
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Returns the files and directories of classes on which the tests depend
+	 * besides the mutated classes and the test classes.
+	 * 
+	 * @return the dependencies of the tests
+	 */
+	public List<File> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * Sets the files and directories of classes on which the tests depend
+	 * besides the test classes, e.g. the project's bin directory. The test
+	 * classes and the classes of the mutated java files, including their
+	 * nested classes, are ignored. If the content of any other class, or the
+	 * code of a mutated java file outside of the members having mutants,
+	 * changed since the previous analysis, no Outcome is carried forward (see
+	 * setIncremental(boolean)).
+	 * 
+	 * @param dependencies
+	 *            the dependencies of the tests
+	 */
+	public void setDependencies(List<File> dependencies) {
+		if (dependencies == null)
+			throw new IllegalArgumentException("dependencies cannot be null");
+		this.dependencies = new ArrayList<File>(dependencies);
+	}
+}
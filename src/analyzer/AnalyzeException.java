@@ -0,0 +1,18 @@
+package analyzer;
+
+public class AnalyzeException extends Exception {
+
+	/**
+	 * This exception should be thrown when an error occurs while trying to run
+	 * tests against mutants.
+	 */
+	private static final long serialVersionUID = -3172096584226043391L;
+
+	public AnalyzeException(String message) {
+		super(message);
+	}
+
+	public AnalyzeException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
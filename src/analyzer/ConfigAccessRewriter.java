@@ -0,0 +1,305 @@
+package analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A ConfigAccessRewriter rewrites the bytecode of mutated classes so that
+ * every read of major.mutation.Config.__M_NO becomes a call to
+ * major.mutation.Config.getMutantNo(). This allows each thread to run its own
+ * mutant (see major.mutation.Config#setThreadMutantNo(int)).
+ * 
+ * A getstatic instruction and an invokestatic instruction have the same
+ * length and the same effect on the operand stack, so the rewrite only
+ * replaces instructions in place and appends a method reference to the
+ * constant pool. Branch offsets and stack map frames stay valid.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class ConfigAccessRewriter {
+	// Internal name of Major's driver class
+	private static final String CONFIG_CLASS = "major/mutation/Config";
+	// Name and descriptor of the mutant identifier field
+	private static final String MUTANT_FIELD = "__M_NO";
+	private static final String MUTANT_FIELD_DESCRIPTOR = "I";
+	// Name and descriptor of the method returning the mutant identifier
+	private static final String MUTANT_METHOD = "getMutantNo";
+	private static final String MUTANT_METHOD_DESCRIPTOR = "()I";
+	// Opcodes
+	private static final int GETSTATIC = 0xb2;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int TABLESWITCH = 0xaa;
+	private static final int LOOKUPSWITCH = 0xab;
+	private static final int WIDE = 0xc4;
+	private static final int IINC = 0x84;
+	// Constant pool tags
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	/**
+	 * Returns the given class file with every read of
+	 * major.mutation.Config.__M_NO replaced by a call to
+	 * major.mutation.Config.getMutantNo(). Returns the given array itself if
+	 * the class never reads the field.
+	 * 
+	 * An IllegalArgumentException is thrown if the given bytes are not a valid
+	 * class file.
+	 * 
+	 * @param classFile
+	 *            the bytes of a class file
+	 * @return the rewritten class file
+	 */
+	public static byte[] rewrite(byte[] classFile) {
+		try {
+			return rewriteClassFile(classFile);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Malformed class file", e);
+		}
+	}
+
+	private static byte[] rewriteClassFile(byte[] classFile) {
+		ByteBuffer in = ByteBuffer.wrap(classFile);
+		if (in.getInt() != 0xCAFEBABE)
+			throw new IllegalArgumentException("Not a class file");
+		in.getShort(); // minor version
+		in.getShort(); // major version
+		int constantPoolCountOffset = in.position();
+		int constantPoolCount = in.getShort() & 0xffff;
+		// Parse the constant pool, remembering where each entry starts
+		int[] tags = new int[constantPoolCount];
+		int[] offsets = new int[constantPoolCount];
+		for (int i = 1; i < constantPoolCount; i++) {
+			tags[i] = in.get() & 0xff;
+			offsets[i] = in.position();
+			in.position(in.position() + getConstantLength(tags[i], in));
+			if (tags[i] == CONSTANT_LONG || tags[i] == CONSTANT_DOUBLE)
+				i++;
+		}
+		int constantPoolEnd = in.position();
+		// Find references to Config.__M_NO
+		Set<Integer> mutantFieldRefs = new HashSet<Integer>();
+		int configClassIndex = 0;
+		for (int i = 1; i < constantPoolCount; i++) {
+			if (tags[i] != CONSTANT_FIELDREF)
+				continue;
+			int classIndex = in.getShort(offsets[i]) & 0xffff;
+			int nameAndTypeIndex = in.getShort(offsets[i] + 2) & 0xffff;
+			int classNameIndex = in.getShort(offsets[classIndex]) & 0xffff;
+			int nameIndex = in.getShort(offsets[nameAndTypeIndex]) & 0xffff;
+			int descriptorIndex = in.getShort(offsets[nameAndTypeIndex] + 2) & 0xffff;
+			if (CONFIG_CLASS.equals(getUtf8(in, offsets[classNameIndex]))
+					&& MUTANT_FIELD.equals(getUtf8(in, offsets[nameIndex]))
+					&& MUTANT_FIELD_DESCRIPTOR.equals(getUtf8(in, offsets[descriptorIndex]))) {
+				mutantFieldRefs.add(i);
+				configClassIndex = classIndex;
+			}
+		}
+		if (mutantFieldRefs.isEmpty())
+			return classFile;
+		if (constantPoolCount + 4 > 0xffff)
+			throw new IllegalArgumentException("Constant pool is full");
+		// The method reference is appended after the existing constants
+		int methodNameIndex = constantPoolCount;
+		int methodDescriptorIndex = constantPoolCount + 1;
+		int methodNameAndTypeIndex = constantPoolCount + 2;
+		int methodRefIndex = constantPoolCount + 3;
+		byte[] patched = classFile.clone();
+		int codeNameIndex = findUtf8(in, tags, offsets, "Code");
+		in.position(constantPoolEnd);
+		in.getShort(); // access flags
+		in.getShort(); // this class
+		in.getShort(); // super class
+		int interfacesCount = in.getShort() & 0xffff;
+		in.position(in.position() + 2 * interfacesCount);
+		skipMembers(in);
+		int methodsCount = in.getShort() & 0xffff;
+		for (int i = 0; i < methodsCount; i++) {
+			in.position(in.position() + 6); // access flags, name, descriptor
+			int attributesCount = in.getShort() & 0xffff;
+			for (int j = 0; j < attributesCount; j++) {
+				int attributeNameIndex = in.getShort() & 0xffff;
+				int attributeLength = in.getInt();
+				int attributeEnd = in.position() + attributeLength;
+				if (attributeNameIndex == codeNameIndex) {
+					in.position(in.position() + 4); // max stack, max locals
+					int codeLength = in.getInt();
+					patchCode(in, in.position(), codeLength, mutantFieldRefs, methodRefIndex, patched);
+				}
+				in.position(attributeEnd);
+			}
+		}
+		// Assemble the rewritten class file
+		ByteArrayOutputStream out = new ByteArrayOutputStream(classFile.length + 64);
+		try {
+			DataOutputStream data = new DataOutputStream(out);
+			data.write(patched, 0, constantPoolCountOffset);
+			data.writeShort(constantPoolCount + 4);
+			data.write(patched, constantPoolCountOffset + 2, constantPoolEnd - constantPoolCountOffset - 2);
+			data.writeByte(CONSTANT_UTF8);
+			data.writeUTF(MUTANT_METHOD);
+			data.writeByte(CONSTANT_UTF8);
+			data.writeUTF(MUTANT_METHOD_DESCRIPTOR);
+			data.writeByte(CONSTANT_NAME_AND_TYPE);
+			data.writeShort(methodNameIndex);
+			data.writeShort(methodDescriptorIndex);
+			data.writeByte(CONSTANT_METHODREF);
+			data.writeShort(configClassIndex);
+			data.writeShort(methodNameAndTypeIndex);
+			data.write(patched, constantPoolEnd, patched.length - constantPoolEnd);
+			data.flush();
+		} catch (IOException e) {
+			// A ByteArrayOutputStream does not throw IOExceptions
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Replaces every getstatic instruction referencing one of the given field
+	 * references with an invokestatic instruction referencing the given method
+	 * reference.
+	 */
+	private static void patchCode(ByteBuffer in, int codeStart, int codeLength, Set<Integer> fieldRefs,
+			int methodRefIndex, byte[] patched) {
+		int pc = 0;
+		while (pc < codeLength) {
+			int opcode = in.get(codeStart + pc) & 0xff;
+			if (opcode == GETSTATIC && fieldRefs.contains(in.getShort(codeStart + pc + 1) & 0xffff)) {
+				patched[codeStart + pc] = (byte) INVOKESTATIC;
+				patched[codeStart + pc + 1] = (byte) (methodRefIndex >> 8);
+				patched[codeStart + pc + 2] = (byte) methodRefIndex;
+			}
+			pc += getInstructionLength(in, codeStart, pc, opcode);
+		}
+	}
+
+	/**
+	 * Returns the length in bytes of the instruction at the given offset.
+	 */
+	private static int getInstructionLength(ByteBuffer in, int codeStart, int pc, int opcode) {
+		if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+			// Operands are aligned to a multiple of four bytes from the start of the code
+			int operands = (pc + 4) & ~3;
+			if (opcode == TABLESWITCH) {
+				int low = in.getInt(codeStart + operands + 4);
+				int high = in.getInt(codeStart + operands + 8);
+				return operands - pc + 12 + 4 * (high - low + 1);
+			}
+			int pairs = in.getInt(codeStart + operands + 4);
+			return operands - pc + 8 + 8 * pairs;
+		}
+		if (opcode == WIDE)
+			return (in.get(codeStart + pc + 1) & 0xff) == IINC ? 6 : 4;
+		return INSTRUCTION_LENGTHS[opcode];
+	}
+
+	/**
+	 * Skips the fields of a class file.
+	 */
+	private static void skipMembers(ByteBuffer in) {
+		int membersCount = in.getShort() & 0xffff;
+		for (int i = 0; i < membersCount; i++) {
+			in.position(in.position() + 6); // access flags, name, descriptor
+			int attributesCount = in.getShort() & 0xffff;
+			for (int j = 0; j < attributesCount; j++) {
+				in.getShort(); // attribute name
+				int attributeLength = in.getInt();
+				in.position(in.position() + attributeLength);
+			}
+		}
+	}
+
+	/**
+	 * Returns the length of the constant following the given tag, not
+	 * including the tag itself.
+	 */
+	private static int getConstantLength(int tag, ByteBuffer in) {
+		switch (tag) {
+		case CONSTANT_UTF8:
+			return 2 + (in.getShort(in.position()) & 0xffff);
+		case 3: // Integer
+		case 4: // Float
+		case CONSTANT_FIELDREF:
+		case CONSTANT_METHODREF:
+		case 11: // InterfaceMethodref
+		case CONSTANT_NAME_AND_TYPE:
+		case 17: // Dynamic
+		case 18: // InvokeDynamic
+			return 4;
+		case CONSTANT_LONG:
+		case CONSTANT_DOUBLE:
+			return 8;
+		case CONSTANT_CLASS:
+		case 8: // String
+		case 16: // MethodType
+		case 19: // Module
+		case 20: // Package
+			return 2;
+		case 15: // MethodHandle
+			return 3;
+		default:
+			throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+		}
+	}
+
+	/**
+	 * Returns the string stored in the Utf8 constant at the given offset.
+	 */
+	private static String getUtf8(ByteBuffer in, int offset) {
+		int length = in.getShort(offset) & 0xffff;
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = in.get(offset + 2 + i);
+		// Modified UTF-8 and UTF-8 agree on the names compared here
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the index of the Utf8 constant holding the given string, or 0
+	 * if there is none.
+	 */
+	private static int findUtf8(ByteBuffer in, int[] tags, int[] offsets, String value) {
+		for (int i = 1; i < tags.length; i++) {
+			if (tags[i] == CONSTANT_UTF8 && value.equals(getUtf8(in, offsets[i])))
+				return i;
+		}
+		return 0;
+	}
+
+	// Length in bytes of each fixed-length instruction, indexed by opcode
+	private static final int[] INSTRUCTION_LENGTHS = new int[256];
+
+	static {
+		for (int opcode = 0; opcode < 256; opcode++)
+			INSTRUCTION_LENGTHS[opcode] = 1;
+		int[] twoByteInstructions = { 0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3a,
+				0xa9, 0xbc };
+		for (int opcode : twoByteInstructions)
+			INSTRUCTION_LENGTHS[opcode] = 2;
+		int[] threeByteInstructions = { 0x11, 0x13, 0x14, IINC, 0xbb, 0xbd, 0xc0, 0xc1, 0xc6, 0xc7 };
+		for (int opcode : threeByteInstructions)
+			INSTRUCTION_LENGTHS[opcode] = 3;
+		// Conditional branches, goto and jsr
+		for (int opcode = 0x99; opcode <= 0xa8; opcode++)
+			INSTRUCTION_LENGTHS[opcode] = 3;
+		// Field accesses and method invocations
+		for (int opcode = GETSTATIC; opcode <= INVOKESTATIC; opcode++)
+			INSTRUCTION_LENGTHS[opcode] = 3;
+		INSTRUCTION_LENGTHS[0xb9] = 5; // invokeinterface
+		INSTRUCTION_LENGTHS[0xba] = 5; // invokedynamic
+		INSTRUCTION_LENGTHS[0xc5] = 4; // multianewarray
+		INSTRUCTION_LENGTHS[0xc8] = 5; // goto_w
+		INSTRUCTION_LENGTHS[0xc9] = 5; // jsr_w
+	}
+}
@@ -0,0 +1,151 @@
+package analyzer;
+
+import java.util.BitSet;
+import java.util.List;
+
+import util.CompressedBitmap;
+
+/**
+ * A CoverageIndex stores which tests cover which mutants. It is built once
+ * from the runs of the tests against the original program and answers both
+ * "which tests cover mutant m" and "which mutants does test t cover" without
+ * searching. Tests are identified by their index in the analyzer's list of
+ * tests and mutants by their ID.
+ * 
+ * The mutants covered by each test and by some test, which are usually few and
+ * clustered, are stored as CompressedBitmaps, so that they can be combined
+ * without decompressing them. The BitSets and CompressedBitmaps returned by a
+ * CoverageIndex are views of its contents and must not be modified.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class CoverageIndex {
+	// The mutants covered by each test, indexed by test index
+	private final CompressedBitmap[] mutantsByTest;
+	// The tests covering each mutant, indexed by mutant ID
+	private final BitSet[] testsByMutant;
+	// The mutants covered by some test
+	private final CompressedBitmap coveredMutants;
+
+	/**
+	 * Builds a CoverageIndex from the covered mutant IDs of each test. Mutant
+	 * IDs outside of the range from 1 to the given number of mutants are
+	 * ignored.
+	 * 
+	 * @param coverage
+	 *            the IDs of the mutants covered by each test, indexed by test
+	 *            index
+	 * @param numMutants
+	 *            the total number of mutants
+	 */
+	public CoverageIndex(List<CompressedBitmap> coverage, int numMutants) {
+		int numTests = coverage.size();
+		mutantsByTest = new CompressedBitmap[numTests];
+		testsByMutant = new BitSet[numMutants + 1];
+		coveredMutants = new CompressedBitmap();
+		for (int mutantID = 0; mutantID <= numMutants; mutantID++)
+			testsByMutant[mutantID] = new BitSet(numTests);
+		CompressedBitmap mutantIDs = new CompressedBitmap();
+		mutantIDs.add(1, numMutants + 1);
+		for (int testIndex = 0; testIndex < numTests; testIndex++) {
+			CompressedBitmap mutants = coverage.get(testIndex);
+			if (mutants.contains(0) || mutants.nextSetBit(numMutants + 1) >= 0)
+				mutants = mutants.and(mutantIDs);
+			for (int mutantID = mutants.nextSetBit(1); mutantID >= 0; mutantID = mutants.nextSetBit(mutantID + 1))
+				testsByMutant[mutantID].set(testIndex);
+			mutantsByTest[testIndex] = mutants;
+		}
+		for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+			if (!testsByMutant[mutantID].isEmpty())
+				coveredMutants.add(mutantID);
+		}
+	}
+
+	/**
+	 * Returns the number of tests in this CoverageIndex.
+	 * 
+	 * @return the number of tests
+	 */
+	public int getNumberOfTests() {
+		return mutantsByTest.length;
+	}
+
+	/**
+	 * Returns the total number of mutants in this CoverageIndex.
+	 * 
+	 * @return the number of mutants
+	 */
+	public int getNumberOfMutants() {
+		return testsByMutant.length - 1;
+	}
+
+	/**
+	 * Returns the indices of the tests covering the mutant with the given ID.
+	 * Returns an empty BitSet if the ID is out of range.
+	 * 
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return the indices of the tests covering the mutant
+	 */
+	public BitSet getCoveringTests(int mutantID) {
+		if (mutantID < 1 || mutantID >= testsByMutant.length)
+			return new BitSet();
+		return testsByMutant[mutantID];
+	}
+
+	/**
+	 * Returns the IDs of the mutants covered by the test with the given index.
+	 * 
+	 * @param testIndex
+	 *            the index of a test
+	 * @return the IDs of the mutants covered by the test
+	 */
+	public CompressedBitmap getCoveredMutants(int testIndex) {
+		return mutantsByTest[testIndex];
+	}
+
+	/**
+	 * Returns the IDs of the mutants covered by some test.
+	 * 
+	 * @return the IDs of the covered mutants
+	 */
+	public CompressedBitmap getCoveredMutants() {
+		return coveredMutants;
+	}
+
+	/**
+	 * Returns true if the test with the given index covers the mutant with
+	 * the given ID. Returns false otherwise.
+	 * 
+	 * @param testIndex
+	 *            the index of a test
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return true if the test covers the mutant, false otherwise
+	 */
+	public boolean covers(int testIndex, int mutantID) {
+		return mutantID > 0 && mutantsByTest[testIndex].contains(mutantID);
+	}
+
+	/**
+	 * Returns true if the mutant with the given ID is covered by some test.
+	 * Returns false otherwise.
+	 * 
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return true if the mutant is covered, false otherwise
+	 */
+	public boolean isCovered(int mutantID) {
+		return mutantID > 0 && mutantID < testsByMutant.length && !testsByMutant[mutantID].isEmpty();
+	}
+
+	/**
+	 * Returns the number of mutants covered by some test.
+	 * 
+	 * @return the number of covered mutants
+	 */
+	public int getNumberOfCoveredMutants() {
+		return coveredMutants.cardinality();
+	}
+}
@@ -0,0 +1,17 @@
+package analyzer;
+
+/**
+ * An ExecutionMode determines where a MajorMutantAnalyzer runs tests against
+ * mutants.
+ * 
+ * IN_PROCESS runs tests one after another in the current JVM.
+ * THREAD_SCOPED runs tests on several threads in the current JVM, each thread
+ * having its own active mutant. This requires the tests to be loaded by a
+ * ThreadScopedClassLoader. FORKED runs tests in several forked worker JVMs.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public enum ExecutionMode {
+	IN_PROCESS, THREAD_SCOPED, FORKED
+}
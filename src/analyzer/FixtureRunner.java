@@ -0,0 +1,236 @@
+package analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.internal.AssumptionViolatedException;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * A FixtureRunner sets up a test class once, i.e. runs its @BeforeClass
+ * methods and class rules, and then runs a schedule of WorkOrders of that
+ * class one after another, activating the mutant of each WorkOrder right
+ * before its test method and deactivating it right after. Each test method
+ * still gets its own instance, @Before and @After methods, and method rules.
+ * 
+ * Since the fixture is shared, code run by @BeforeClass and @AfterClass
+ * methods runs against the original program, without gathering coverage. A
+ * failure of the class fixture is attributed to every WorkOrder of the
+ * schedule which has not finished yet.
+ * 
+ * Only test classes run by JUnit's default runner can be run this way (see
+ * isSupported(Class)).
+ * 
+ * @author Raymond Tang
+ *
+ */
+class FixtureRunner extends BlockJUnit4ClassRunner {
+	// The WorkOrders to run, in order
+	private final List<WorkOrder> workOrders;
+	// Activates and deactivates the mutants of the WorkOrders
+	private final InProcessTestRunner mutantSelector;
+	// The result of each WorkOrder, or null if it has not finished
+	private final TestResult[] results;
+	// Index of the WorkOrder currently running, or -1 if none is
+	private volatile int current;
+	// When the WorkOrder currently running started or, if none is, when the last one finished
+	private volatile long lastEventTime;
+	// Whether or not the schedule was stopped, after which results are ignored
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a FixtureRunner running the given WorkOrders, which must all
+	 * belong to the given test class.
+	 * 
+	 * Throws an InitializationError if the test class is not a valid JUnit 4
+	 * test class.
+	 * 
+	 * @param testClass
+	 *            the test class
+	 * @param workOrders
+	 *            the WorkOrders to run, in order
+	 * @param mutantSelector
+	 *            the runner activating and deactivating mutants
+	 * @throws InitializationError
+	 */
+	public FixtureRunner(Class<?> testClass, List<WorkOrder> workOrders, InProcessTestRunner mutantSelector)
+			throws InitializationError {
+		super(testClass);
+		this.workOrders = new ArrayList<WorkOrder>(workOrders);
+		this.mutantSelector = mutantSelector;
+		this.results = new TestResult[workOrders.size()];
+		this.current = -1;
+		this.lastEventTime = System.nanoTime();
+		this.stopped = false;
+	}
+
+	/**
+	 * Returns true if the given test class can be run by a FixtureRunner,
+	 * i.e. if it is a JUnit 4 test class without a custom runner. Returns
+	 * false otherwise.
+	 * 
+	 * @param testClass
+	 *            a test class
+	 * @return true if the test class can be run by a FixtureRunner, false
+	 *         otherwise
+	 */
+	public static boolean isSupported(Class<?> testClass) {
+		return testClass.getAnnotation(RunWith.class) == null && !TestCase.class.isAssignableFrom(testClass);
+	}
+
+	/**
+	 * Runs the class fixture and the WorkOrders.
+	 */
+	public void run() {
+		mutantSelector.selectMutant(-1);
+		Statement statement = classBlock(new RunNotifier());
+		try {
+			statement.evaluate();
+		} catch (AssumptionViolatedException e) {
+			// The test class is skipped, like ignored tests
+			finishRemaining(new TestResult(true, false, 0, null));
+		} catch (Throwable e) {
+			finishRemaining(new TestResult(false, false, 0, null));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.junit.runners.ParentRunner#childrenInvoker(org.junit.runner.notification.RunNotifier)
+	 */
+	@Override
+	protected Statement childrenInvoker(RunNotifier notifier) {
+		return new Statement() {
+			@Override
+			public void evaluate() {
+				for (int i = 0; i < workOrders.size() && !stopped; i++)
+					runWorkOrder(i);
+			}
+		};
+	}
+
+	/**
+	 * Runs the WorkOrder with the given index against its mutant and records
+	 * its result.
+	 * 
+	 * @param index
+	 *            the index of a WorkOrder of the schedule
+	 */
+	private void runWorkOrder(int index) {
+		WorkOrder workOrder = workOrders.get(index);
+		FrameworkMethod method = getMethod(workOrder.getTestMethod().getName());
+		int mutantID = workOrder.getMutant().getID();
+		boolean passed = true;
+		lastEventTime = System.nanoTime();
+		current = index;
+		if (method == null) {
+			passed = false;
+		} else if (method.getAnnotation(Ignore.class) == null) {
+			mutantSelector.selectMutant(mutantID);
+			try {
+				methodBlock(method).evaluate();
+			} catch (AssumptionViolatedException e) {
+				// Tests with failed assumptions pass, as in org.junit.runner.Result
+			} catch (Throwable e) {
+				passed = false;
+			} finally {
+				mutantSelector.deselectMutant(mutantID);
+				mutantSelector.selectMutant(-1);
+			}
+		}
+		long finishTime = System.nanoTime();
+		long runtime = TimeUnit.NANOSECONDS.toMillis(finishTime - lastEventTime);
+		synchronized (this) {
+			if (!stopped)
+				results[index] = new TestResult(passed, false, runtime, null);
+		}
+		current = -1;
+		lastEventTime = finishTime;
+	}
+
+	/**
+	 * Returns the test method of the test class with the given name, or null
+	 * if there is none.
+	 */
+	private FrameworkMethod getMethod(String name) {
+		for (FrameworkMethod method : getChildren()) {
+			if (method.getName().equals(name))
+				return method;
+		}
+		return null;
+	}
+
+	/**
+	 * Gives the given result to every WorkOrder which has not finished yet.
+	 */
+	private synchronized void finishRemaining(TestResult result) {
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == null && !stopped)
+				results[i] = result;
+		}
+	}
+
+	/**
+	 * Returns the index of the WorkOrder currently running, or -1 if none is.
+	 * 
+	 * @return the index of the WorkOrder currently running
+	 */
+	public int getCurrentWorkOrder() {
+		return current;
+	}
+
+	/**
+	 * Returns when the WorkOrder currently running started or, if none is,
+	 * when the fixture was set up or the last WorkOrder finished, as given by
+	 * System.nanoTime().
+	 * 
+	 * @return when the WorkOrder currently running started
+	 */
+	public long getLastEventTime() {
+		return lastEventTime;
+	}
+
+	/**
+	 * Records that the WorkOrder with the given index was stopped because it
+	 * exceeded its time budget. If the index is -1, i.e. the fixture exceeded
+	 * its time budget, the next WorkOrder which has not finished is
+	 * considered timed out instead. No further results are recorded.
+	 * 
+	 * @param index
+	 *            the index of a WorkOrder of the schedule, or -1
+	 * @param timeout
+	 *            the time budget which was exceeded, in milliseconds
+	 */
+	public synchronized void timedOut(int index, long timeout) {
+		if (index == -1) {
+			for (index = 0; index < results.length && results[index] != null; index++)
+				;
+		}
+		if (index < results.length)
+			results[index] = new TestResult(false, true, timeout, null);
+		stopped = true;
+	}
+
+	/**
+	 * Returns the results of the WorkOrders, in the order in which they were
+	 * given. The result of a WorkOrder is null if it did not finish.
+	 * 
+	 * @return the results of the WorkOrders
+	 */
+	public synchronized List<TestResult> getResults() {
+		List<TestResult> results = new ArrayList<TestResult>();
+		for (TestResult result : this.results)
+			results.add(result);
+		return results;
+	}
+}
@@ -0,0 +1,279 @@
+package analyzer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A ForkedTestRunner runs tests in a separate worker JVM (see MutantWorker).
+ * Each worker JVM has its own major.mutation.Config, so several
+ * ForkedTestRunners may run tests at the same time.
+ * 
+ * If the worker JVM dies while running a test, e.g. because a mutant calls
+ * System.exit, the test is considered failed and a new worker JVM is started.
+ * The worker JVM enforces the time budget of a test itself; if it does not
+ * answer within the budget plus a grace period, e.g. because a runaway test
+ * cannot be stopped, it is killed, the test is considered timed out, and a new
+ * worker JVM is started. If this happens while running a batch of tests, the
+ * tests of the batch, or the WorkOrders of the schedule, are run again one by
+ * one, so that each of them gets its own result.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class ForkedTestRunner implements TestRunner {
+	// How long the worker JVM may take to report a timed out test, in milliseconds
+	private static final long GRACE_PERIOD = 5000;
+	// The command used to start the worker JVM
+	private final List<String> command;
+	// The working directory of the worker JVM
+	private final File workingDirectory;
+	// The worker JVM
+	private Process worker;
+	// Sends requests to the worker JVM
+	private BufferedWriter requests;
+	// Receives results from the worker JVM
+	private BufferedReader results;
+	// Reads results, so that waiting for a result can time out
+	private final ExecutorService resultReader;
+	// Whether or not this runner was closed, after which no worker JVM is started
+	private volatile boolean closed;
+
+	/**
+	 * Starts a worker JVM using the given java executable and classpath.
+	 * 
+	 * Throws an IOException if the worker JVM could not be started.
+	 * 
+	 * @param javaExecutable
+	 *            the java executable used to start the worker JVM
+	 * @param classpath
+	 *            the classpath of the worker JVM. It must contain the tests,
+	 *            the mutated classes, JUnit, and this plugin's classes
+	 * @param workingDirectory
+	 *            the working directory of the worker JVM
+	 * @param numMutants
+	 *            the total number of mutants
+	 * @param failFast
+	 *            whether or not runs against mutants are stopped at their
+	 *            first test failure (see InProcessTestRunner)
+	 * @throws IOException
+	 */
+	public ForkedTestRunner(String javaExecutable, List<File> classpath, File workingDirectory, int numMutants,
+			boolean failFast) throws IOException {
+		StringJoiner classpathJoiner = new StringJoiner(File.pathSeparator);
+		for (File entry : classpath)
+			classpathJoiner.add(entry.getAbsolutePath());
+		this.command = new ArrayList<String>();
+		command.add(javaExecutable);
+		command.add("-cp");
+		command.add(classpathJoiner.toString());
+		command.add(MutantWorker.class.getName());
+		command.add(String.valueOf(numMutants));
+		command.add(String.valueOf(failFast));
+		this.workingDirectory = workingDirectory;
+		this.closed = false;
+		this.resultReader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Worker JVM result reader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		start();
+	}
+
+	/**
+	 * Starts the worker JVM and waits until it is ready to accept requests.
+	 * 
+	 * @throws IOException
+	 */
+	private void start() throws IOException {
+		if (closed)
+			throw new IOException("Test runner is closed");
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.directory(workingDirectory);
+		builder.redirectError(Redirect.INHERIT);
+		worker = builder.start();
+		requests = new BufferedWriter(new OutputStreamWriter(worker.getOutputStream(), StandardCharsets.UTF_8));
+		results = new BufferedReader(new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8));
+		if (!MutantWorker.READY.equals(results.readLine())) {
+			worker.destroyForcibly();
+			throw new IOException("Could not start worker JVM");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.TestRunner#run(analyzer.TestMethod, int)
+	 */
+	@Override
+	public TestResult run(TestMethod test, int mutantID, long timeout) throws IOException {
+		String result;
+		try {
+			requests.write(MutantWorker.encodeRequest(test, mutantID, timeout));
+			requests.newLine();
+			requests.flush();
+			result = readResult(timeout);
+		} catch (IOException e) {
+			result = null;
+		} catch (TimeoutException e) {
+			// The worker JVM could not stop the test
+			worker.destroyForcibly();
+			start();
+			return new TestResult(false, true, timeout, null);
+		}
+		if (result == null) {
+			// The worker JVM died while running the test
+			worker.destroyForcibly();
+			start();
+			return new TestResult(false, false, 0, null);
+		}
+		return MutantWorker.decodeResult(result);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.TestRunner#run(java.util.List, int, java.util.List)
+	 */
+	@Override
+	public List<TestResult> run(List<TestMethod> tests, int mutantID, List<Long> timeouts) throws IOException {
+		List<TestResult> testResults = new ArrayList<TestResult>();
+		if (tests.size() == 1) {
+			testResults.add(run(tests.get(0), mutantID, timeouts.get(0)));
+			return testResults;
+		}
+		long totalTimeout = 0;
+		for (long timeout : timeouts)
+			totalTimeout = timeout <= 0 || totalTimeout < 0 ? -1 : totalTimeout + timeout;
+		try {
+			requests.write(MutantWorker.encodeRequest(tests, mutantID, timeouts));
+			requests.newLine();
+			requests.flush();
+			// The worker JVM reports the results once the whole batch has run
+			for (int i = 0; i < tests.size(); i++) {
+				String result = readResult(i == 0 ? Math.max(totalTimeout, 0) : 0);
+				if (result == null)
+					break;
+				testResults.add(MutantWorker.decodeResult(result));
+			}
+		} catch (IOException | TimeoutException e) {
+			// Handled below
+		}
+		if (testResults.size() < tests.size()) {
+			// The worker JVM died or could not stop a test
+			worker.destroyForcibly();
+			start();
+			testResults.clear();
+			for (int i = 0; i < tests.size(); i++)
+				testResults.add(run(tests.get(i), mutantID, timeouts.get(i)));
+		}
+		return testResults;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.TestRunner#runWorkOrders(java.util.List, java.util.List)
+	 */
+	@Override
+	public List<TestResult> runWorkOrders(List<WorkOrder> workOrders, List<Long> timeouts) throws IOException {
+		List<TestResult> testResults = new ArrayList<TestResult>();
+		long totalTimeout = 0;
+		for (long timeout : timeouts)
+			totalTimeout = timeout <= 0 || totalTimeout < 0 ? -1 : totalTimeout + timeout;
+		try {
+			requests.write(MutantWorker.encodeRequest(workOrders, timeouts));
+			requests.newLine();
+			requests.flush();
+			// The worker JVM reports the results once all WorkOrders have run
+			for (int i = 0; i < workOrders.size(); i++) {
+				String result = readResult(i == 0 ? Math.max(totalTimeout, 0) : 0);
+				if (result == null)
+					break;
+				testResults.add(MutantWorker.decodeResult(result));
+			}
+		} catch (IOException | TimeoutException e) {
+			// Handled below
+		}
+		if (testResults.size() < workOrders.size()) {
+			// The worker JVM died or could not stop a test
+			worker.destroyForcibly();
+			start();
+			testResults.clear();
+			for (int i = 0; i < workOrders.size(); i++) {
+				WorkOrder workOrder = workOrders.get(i);
+				testResults.add(run(workOrder.getTestMethod(), workOrder.getMutant().getID(), timeouts.get(i)));
+			}
+		}
+		return testResults;
+	}
+
+	/**
+	 * Waits for the worker JVM to report the result of a test with the given
+	 * time budget and returns it, or null if the worker JVM died.
+	 * 
+	 * @param timeout
+	 *            the time budget of the test in milliseconds, or 0 for no
+	 *            time budget
+	 * @return the result line, or null if the worker JVM died
+	 * @throws IOException
+	 * @throws TimeoutException
+	 *             if the worker JVM did not report a result in time
+	 */
+	private String readResult(long timeout) throws IOException, TimeoutException {
+		final BufferedReader results = this.results;
+		Future<String> result = resultReader.submit(new Callable<String>() {
+			@Override
+			public String call() throws IOException {
+				return results.readLine();
+			}
+		});
+		try {
+			if (timeout <= 0)
+				return result.get();
+			return result.get(timeout + GRACE_PERIOD, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for worker JVM", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			// The worker JVM exits once its standard input is closed
+			requests.close();
+		} catch (IOException e) {
+			// The worker JVM is destroyed below
+		}
+		worker.destroyForcibly();
+		resultReader.shutdownNow();
+	}
+}
@@ -0,0 +1,450 @@
+package analyzer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
+import org.junit.runners.model.InitializationError;
+
+import major.mutation.Config;
+import util.CompressedBitmap;
+
+/**
+ * An InProcessTestRunner runs tests in the current JVM. Since
+ * major.mutation.Config holds a single active mutant, at most one
+ * InProcessTestRunner may be running tests at any given time.
+ * 
+ * A test with a time budget is run on its own thread. If it exceeds its budget,
+ * the thread is interrupted and, if it does not finish within a grace period,
+ * stopped. If the thread cannot be stopped, it would keep running under the
+ * active mutant and keep adding to the coverage of later tests, so this runner
+ * refuses to run further tests, throwing an IOException, until the thread
+ * finishes on its own. In a batch, each test is bounded by its own budget, and
+ * the code run between two tests, e.g. @BeforeClass methods, by the largest
+ * budget of the batch. WorkOrders sharing a class fixture are bounded the same
+ * way; if one of them exceeds its budget, the fixture is set up again for the
+ * remaining WorkOrders.
+ * 
+ * In fail-fast mode, a run against a mutant is stopped at its first test
+ * failure. The failing test still has a failed result, but the tests of a
+ * batch which were not started yet have none.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class InProcessTestRunner implements TestRunner {
+	// How long a timed out test may take to react to an interrupt, in milliseconds
+	private static final long GRACE_PERIOD = 1000;
+	// Whether or not runs against mutants are stopped at their first test failure
+	private final boolean failFast;
+	// Thread which exceeded its time budget and could not be stopped, or null
+	private volatile Thread runawayThread;
+
+	public InProcessTestRunner() {
+		this(false);
+	}
+
+	public InProcessTestRunner(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.TestRunner#run(analyzer.TestMethod, int, long)
+	 */
+	@Override
+	public TestResult run(TestMethod test, final int mutantID, long timeout) throws IOException {
+		checkNoRunawayThread();
+		final Request request = Request.method(test.getTestClass(), test.getName());
+		selectMutant(mutantID);
+		long start = System.nanoTime();
+		boolean passed = false;
+		boolean timedOut = false;
+		if (timeout <= 0) {
+			passed = runRequest(request, mutantID, null).wasSuccessful();
+		} else {
+			FutureTask<Result> run = new FutureTask<Result>(new Callable<Result>() {
+				@Override
+				public Result call() {
+					return runRequest(request, mutantID, null);
+				}
+			});
+			// The thread inherits the mutant selected above
+			Thread thread = new Thread(run, "Mutant test " + test);
+			thread.setDaemon(true);
+			thread.start();
+			try {
+				passed = run.get(timeout, TimeUnit.MILLISECONDS).wasSuccessful();
+			} catch (TimeoutException e) {
+				timedOut = true;
+				stop(thread);
+			} catch (ExecutionException e) {
+				passed = false;
+			} catch (InterruptedException e) {
+				try {
+					stop(thread);
+				} finally {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		long runtime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		CompressedBitmap coveredMutants = deselectMutant(mutantID);
+		return new TestResult(passed, timedOut, runtime, coveredMutants);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.TestRunner#run(java.util.List, int, java.util.List)
+	 */
+	@Override
+	public List<TestResult> run(List<TestMethod> tests, final int mutantID, List<Long> timeouts)
+			throws IOException {
+		checkNoRunawayThread();
+		final TestBatchListener listener = new TestBatchListener(tests);
+		Set<Class<?>> testClasses = new LinkedHashSet<Class<?>>();
+		for (TestMethod test : tests)
+			testClasses.add(test.getTestClass());
+		final Request request = Request.classes(testClasses.toArray(new Class<?>[testClasses.size()]))
+				.filterWith(listener.getFilter());
+		FutureTask<Result> run = new FutureTask<Result>(new Callable<Result>() {
+			@Override
+			public Result call() {
+				return runRequest(request, mutantID, listener);
+			}
+		});
+		selectMutant(mutantID);
+		long maxTimeout = 0;
+		for (long timeout : timeouts)
+			maxTimeout = timeout <= 0 ? Long.MAX_VALUE : Math.max(maxTimeout, timeout);
+		if (maxTimeout == Long.MAX_VALUE) {
+			run.run();
+		} else {
+			// The thread inherits the mutant selected above
+			Thread thread = new Thread(run, "Mutant test batch " + tests);
+			thread.setDaemon(true);
+			thread.start();
+			try {
+				while (!run.isDone()) {
+					int current = listener.getCurrentTest();
+					long deadline = current == -1
+							? listener.getLastFinishTime() + TimeUnit.MILLISECONDS.toNanos(maxTimeout)
+							: listener.getStartTime(current) + TimeUnit.MILLISECONDS.toNanos(timeouts.get(current));
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0 && current == listener.getCurrentTest()) {
+						listener.timedOut(current);
+						stop(thread);
+						break;
+					}
+					try {
+						run.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+					} catch (TimeoutException e) {
+						// Check the deadline of the test now running
+					}
+				}
+			} catch (ExecutionException e) {
+				// The results gathered so far are reported
+			} catch (InterruptedException e) {
+				try {
+					stop(thread);
+				} finally {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		deselectMutant(mutantID);
+		return listener.getResults();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.TestRunner#runWorkOrders(java.util.List, java.util.List)
+	 */
+	@Override
+	public List<TestResult> runWorkOrders(List<WorkOrder> workOrders, List<Long> timeouts) throws IOException {
+		checkNoRunawayThread();
+		List<TestResult> results = new ArrayList<TestResult>(Collections.<TestResult>nCopies(workOrders.size(), null));
+		Map<Class<?>, List<Integer>> workOrdersByClass = new LinkedHashMap<Class<?>, List<Integer>>();
+		for (int i = 0; i < workOrders.size(); i++) {
+			Class<?> testClass = workOrders.get(i).getTestMethod().getTestClass();
+			if (!workOrdersByClass.containsKey(testClass))
+				workOrdersByClass.put(testClass, new ArrayList<Integer>());
+			workOrdersByClass.get(testClass).add(i);
+		}
+		for (Map.Entry<Class<?>, List<Integer>> entry : workOrdersByClass.entrySet()) {
+			List<Integer> remaining = entry.getValue();
+			while (!remaining.isEmpty()) {
+				List<WorkOrder> schedule = new ArrayList<WorkOrder>();
+				List<Long> scheduleTimeouts = new ArrayList<Long>();
+				for (int i : remaining) {
+					schedule.add(workOrders.get(i));
+					scheduleTimeouts.add(timeouts.get(i));
+				}
+				List<TestResult> scheduleResults = runFixture(entry.getKey(), schedule, scheduleTimeouts);
+				List<Integer> unfinished = new ArrayList<Integer>();
+				for (int i = 0; i < remaining.size(); i++) {
+					if (scheduleResults.get(i) == null)
+						unfinished.add(remaining.get(i));
+					else
+						results.set(remaining.get(i), scheduleResults.get(i));
+				}
+				if (unfinished.size() == remaining.size()) {
+					// Run WorkOrders one by one if their class fixture cannot be shared
+					for (int i : remaining) {
+						WorkOrder workOrder = workOrders.get(i);
+						results.set(i, run(workOrder.getTestMethod(), workOrder.getMutant().getID(), timeouts.get(i)));
+					}
+					break;
+				}
+				remaining = unfinished;
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the given WorkOrders of the given test class with a single class
+	 * fixture (see FixtureRunner) and returns their results. Once a WorkOrder
+	 * exceeds its time budget, the results of the following WorkOrders are
+	 * null. The results of all WorkOrders are null if the test class cannot
+	 * be run by a FixtureRunner.
+	 * 
+	 * @param testClass
+	 *            the test class
+	 * @param workOrders
+	 *            the WorkOrders of the test class
+	 * @param timeouts
+	 *            the time budget of each WorkOrder in milliseconds, or 0 for
+	 *            no time budget
+	 * @return the results of the WorkOrders
+	 * @throws IOException
+	 */
+	private List<TestResult> runFixture(Class<?> testClass, List<WorkOrder> workOrders, List<Long> timeouts)
+			throws IOException {
+		if (!FixtureRunner.isSupported(testClass))
+			return Collections.nCopies(workOrders.size(), null);
+		final FixtureRunner fixture;
+		try {
+			fixture = new FixtureRunner(testClass, workOrders, this);
+		} catch (InitializationError e) {
+			return Collections.nCopies(workOrders.size(), null);
+		}
+		FutureTask<Void> run = new FutureTask<Void>(new Runnable() {
+			@Override
+			public void run() {
+				fixture.run();
+			}
+		}, null);
+		long maxTimeout = 0;
+		for (long timeout : timeouts)
+			maxTimeout = timeout <= 0 ? Long.MAX_VALUE : Math.max(maxTimeout, timeout);
+		if (maxTimeout == Long.MAX_VALUE) {
+			run.run();
+			return fixture.getResults();
+		}
+		Thread thread = new Thread(run, "Mutant test fixture " + testClass.getName());
+		thread.setDaemon(true);
+		thread.start();
+		try {
+			while (!run.isDone()) {
+				int current = fixture.getCurrentWorkOrder();
+				long timeout = current == -1 ? maxTimeout : timeouts.get(current);
+				long remaining = fixture.getLastEventTime() + TimeUnit.MILLISECONDS.toNanos(timeout) - System.nanoTime();
+				if (remaining <= 0 && current == fixture.getCurrentWorkOrder()) {
+					fixture.timedOut(current, timeout);
+					stop(thread);
+					break;
+				}
+				try {
+					run.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					// Check the deadline of the WorkOrder now running
+				}
+			}
+		} catch (ExecutionException e) {
+			// The results gathered so far are reported
+		} catch (InterruptedException e) {
+			try {
+				stop(thread);
+			} finally {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return fixture.getResults();
+	}
+
+	/**
+	 * Runs the given request against the mutant with the given ID, which must
+	 * already be selected, and returns the result. The given listener, if
+	 * any, is notified of the events of the run. In fail-fast mode, a run
+	 * against a mutant is stopped at its first test failure.
+	 * 
+	 * @param request
+	 *            the request to run
+	 * @param mutantID
+	 *            the ID of the mutant, or 0 for the original program
+	 * @param listener
+	 *            a listener of the run, or null
+	 * @return the result of the run
+	 */
+	private Result runRequest(Request request, int mutantID, RunListener listener) {
+		Result result = new Result();
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(result.createListener());
+		if (listener != null)
+			notifier.addListener(listener);
+		// Coverage of the original program must be complete
+		if (failFast && mutantID != 0)
+			notifier.addListener(new FailFastListener(notifier));
+		Runner runner = request.getRunner();
+		try {
+			notifier.fireTestRunStarted(runner.getDescription());
+			runner.run(notifier);
+			notifier.fireTestRunFinished(result);
+		} catch (StoppedByUserException e) {
+			// The run was stopped at its first test failure
+		}
+		return result;
+	}
+
+	/**
+	 * A FailFastListener asks a run to stop as soon as a test fails. JUnit
+	 * then finishes the failing test and starts no further test.
+	 */
+	private static class FailFastListener extends RunListener {
+		// The notifier of the run
+		private final RunNotifier notifier;
+
+		public FailFastListener(RunNotifier notifier) {
+			this.notifier = notifier;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.junit.runner.notification.RunListener#testFailure(org.junit.runner.notification.Failure)
+		 */
+		@Override
+		public void testFailure(Failure failure) {
+			notifier.pleaseStop();
+		}
+	}
+
+	/**
+	 * Interrupts the given thread running a test and, if it does not finish
+	 * within the grace period, stops it.
+	 * 
+	 * Throws an IOException if the thread is still running after being
+	 * stopped, e.g. because threads cannot be stopped on this JVM. This runner
+	 * then refuses to run tests until the thread finishes.
+	 * 
+	 * @param thread
+	 *            a thread running a test
+	 * @throws IOException
+	 */
+	@SuppressWarnings("deprecation")
+	private void stop(Thread thread) throws IOException {
+		thread.interrupt();
+		join(thread);
+		if (!thread.isAlive())
+			return;
+		try {
+			// Thread.stop is the only way to end a test which ignores interrupts
+			thread.stop();
+			join(thread);
+		} catch (UnsupportedOperationException e) {
+			// The thread cannot be stopped on this JVM
+		}
+		if (thread.isAlive()) {
+			runawayThread = thread;
+			checkNoRunawayThread();
+		}
+	}
+
+	/**
+	 * Waits at most the grace period for the given thread to finish.
+	 * 
+	 * @param thread
+	 *            a thread running a test
+	 */
+	private static void join(Thread thread) {
+		try {
+			thread.join(GRACE_PERIOD);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Throws an IOException if a thread which exceeded its time budget could
+	 * not be stopped and is still running tests.
+	 * 
+	 * @throws IOException
+	 */
+	private void checkNoRunawayThread() throws IOException {
+		Thread thread = runawayThread;
+		if (thread != null && thread.isAlive())
+			throw new IOException("Thread \"" + thread.getName()
+					+ "\" exceeded its time budget and could not be stopped, so no further test can be run");
+		runawayThread = null;
+	}
+
+	/**
+	 * Activates the mutant with the given ID before a test is run.
+	 * 
+	 * @param mutantID
+	 *            the ID of the mutant, or 0 for the original program
+	 */
+	protected void selectMutant(int mutantID) {
+		Config.__M_NO = mutantID;
+		if (mutantID == 0)
+			Config.reset();
+	}
+
+	/**
+	 * Returns the IDs of the mutants covered by the test which was just run
+	 * against the mutant with the given ID. The bitmap is empty unless the
+	 * given ID is 0.
+	 * 
+	 * @param mutantID
+	 *            the ID of the mutant, or 0 for the original program
+	 * @return the IDs of the covered mutants
+	 */
+	protected CompressedBitmap deselectMutant(int mutantID) {
+		if (mutantID != 0)
+			return new CompressedBitmap();
+		CompressedBitmap coveredMutants = Config.getCoverage();
+		Config.reset();
+		return coveredMutants;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		Config.__M_NO = -1;
+	}
+}
@@ -1,53 +1,154 @@
 package analyzer;
 
-import java.util.Map;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
  * A KillMap stores information about which tests killed which mutants.
- * 
+ *
+ * The Outcomes are stored in a dense matrix with one row per mutant and one
+ * column per test, using two bits per (mutant, test) pair, so that millions of
+ * pairs fit in a few megabytes and each pair is looked up in constant time.
+ * Mutants are identified by their ID and tests by their test ID in the
+ * TestCatalog of this KillMap. Tests which are not in the TestCatalog yet are
+ * added to it when first put into this KillMap. A (mutant, test) pair of this
+ * KillMap which has not been put is NOT_EXECUTED.
+ *
  * @author Raymond Tang
  *
  */
 public class KillMap {
-	// Mutants
-	private Set<Mutant> mutants;
-	// Tests
-	private Set<TestMethod> tests;
-	// This KillMap represented as a Map<WorkOrder, Outcome>
-	private Map<WorkOrder, Outcome> map;
+	// Number of bits storing an Outcome
+	private static final int BITS_PER_OUTCOME = 2;
+	// Number of Outcomes stored in a long
+	private static final int OUTCOMES_PER_WORD = Long.SIZE / BITS_PER_OUTCOME;
+	// Outcome stored as each code. NOT_EXECUTED is 0, so that pairs which have not been put are NOT_EXECUTED
+	private static final Outcome[] OUTCOMES = { Outcome.NOT_EXECUTED, Outcome.ALIVE, Outcome.KILLED, Outcome.TIMEOUT };
+	// Code of each Outcome, indexed by ordinal
+	private static final long[] CODES = new long[OUTCOMES.length];
+	static {
+		for (int code = 0; code < OUTCOMES.length; code++)
+			CODES[OUTCOMES[code].ordinal()] = code;
+	}
+	// IDs of the mutants
+	private BitSet mutantIDs;
+	// Test IDs of the tests
+	private TestCatalog catalog;
+	// Outcomes of each mutant, two bits per test, indexed by mutant ID. A row may be null or shorter than needed
+	private long[][] rows;
 
 	public KillMap() {
-		mutants = new TreeSet<Mutant>();
-		tests = new TreeSet<TestMethod>();
-		map = new TreeMap<WorkOrder, Outcome>();
+		mutantIDs = new BitSet();
+		catalog = new TestCatalog();
+		rows = new long[1][];
+	}
+
+	/**
+	 * Creates a KillMap of the mutants with IDs from 1 to the given number of
+	 * mutants and of the tests of the given TestCatalog, which is shared with
+	 * this KillMap. All (mutant, test) pairs are NOT_EXECUTED.
+	 *
+	 * @param catalog
+	 *            the TestCatalog of the tests
+	 * @param numMutants
+	 *            the number of mutants
+	 */
+	public KillMap(TestCatalog catalog, int numMutants) {
+		if (numMutants < 0)
+			throw new IllegalArgumentException("Number of mutants cannot be negative");
+		this.mutantIDs = new BitSet(numMutants + 1);
+		this.mutantIDs.set(1, numMutants + 1);
+		this.catalog = catalog;
+		int rowLength = getRowLength(catalog.size());
+		this.rows = new long[numMutants + 1][];
+		for (int mutantID = 1; mutantID <= numMutants; mutantID++)
+			rows[mutantID] = new long[rowLength];
+	}
+
+	/**
+	 * Creates a KillMap of the mutants with IDs from 1 to rows.length - 1 and
+	 * of the tests of the given TestCatalog, whose Outcomes are the given rows
+	 * (see getRow(int)). The rows are not copied.
+	 */
+	KillMap(TestCatalog catalog, long[][] rows) {
+		this.mutantIDs = new BitSet(rows.length);
+		this.mutantIDs.set(1, Math.max(1, rows.length));
+		this.catalog = catalog;
+		this.rows = rows;
 	}
 
 	/**
 	 * Returns the set of mutants contained in this KillMap.
-	 * 
+	 *
 	 * @return the set of mutants contained in this KillMap
 	 */
 	public Set<Mutant> getMutants() {
-		return mutants;
+		SortedSet<Mutant> mutants = new TreeSet<Mutant>();
+		for (int mutantID = mutantIDs.nextSetBit(0); mutantID >= 0; mutantID = mutantIDs.nextSetBit(mutantID + 1))
+			mutants.add(new Mutant(mutantID));
+		return Collections.unmodifiableSortedSet(mutants);
 	}
 
 	/**
 	 * Returns the set of tests contained in this KillMap.
-	 * 
+	 *
 	 * @return the set of tests contained in this KillMap
 	 */
 	public Set<TestMethod> getTests() {
-		return tests;
+		return Collections.unmodifiableSortedSet(new TreeSet<TestMethod>(catalog.getTests()));
+	}
+
+	/**
+	 * Returns the test with the given test ID.
+	 *
+	 * @param testID
+	 *            a test ID
+	 * @return the test with the given test ID
+	 */
+	public TestMethod getTest(int testID) {
+		return catalog.getTest(testID);
+	}
+
+	/**
+	 * Returns the test ID of the given test, or -1 if this KillMap does not
+	 * contain the test.
+	 *
+	 * @param test
+	 *            a test method
+	 * @return the test ID of the given test, or -1 if this KillMap does not
+	 *         contain the test
+	 */
+	public int getTestID(TestMethod test) {
+		return catalog.getID(test);
+	}
+
+	/**
+	 * Returns the TestCatalog assigning the test IDs of this KillMap.
+	 *
+	 * @return the TestCatalog of this KillMap
+	 */
+	public TestCatalog getTestCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * Returns the number of tests contained in this KillMap.
+	 *
+	 * @return the number of tests contained in this KillMap
+	 */
+	public int getNumberOfTests() {
+		return catalog.size();
 	}
 
 	/**
 	 * Associates the given mutant and test with the given outcome.
 	 * Returns the previous outcome associated with the (mutant, test) pair,
 	 * or null if there was no mapping for the (mutant, test) pair.
-	 * 
+	 *
 	 * @param mutant a mutant
 	 * @param test a test method
 	 * @param outcome an outcome
@@ -55,33 +156,272 @@ public class KillMap {
 	 * 		   or null if there was no mapping for the (mutant, test) pair.
 	 */
 	public Outcome put(Mutant mutant, TestMethod test, Outcome outcome) {
-		mutants.add(mutant);
-		tests.add(test);
-		WorkOrder workOrder = new WorkOrder(mutant, test);
-		return map.put(workOrder, outcome);
+		int testID = getTestID(test);
+		boolean contained = contains(mutant.getID(), testID);
+		if (testID < 0)
+			testID = catalog.add(test);
+		Outcome previous = put(mutant.getID(), testID, outcome);
+		return contained ? previous : null;
+	}
+
+	/**
+	 * Associates the mutant with the given ID and the test with the given
+	 * test ID with the given outcome, and returns the previous outcome of the
+	 * pair.
+	 *
+	 * Throws an IllegalArgumentException if the mutant ID is not positive, if
+	 * there is no test with the given test ID, or if the outcome is null.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @param testID
+	 *            the test ID of a test
+	 * @param outcome
+	 *            an outcome
+	 * @return the previous outcome of the (mutant, test) pair
+	 */
+	public Outcome put(int mutantID, int testID, Outcome outcome) {
+		if (mutantID < 1)
+			throw new IllegalArgumentException("Mutant ID must be positive");
+		if (testID < 0 || testID >= catalog.size())
+			throw new IllegalArgumentException("There is no test with ID " + testID);
+		if (outcome == null)
+			throw new IllegalArgumentException("Outcome cannot be null");
+		mutantIDs.set(mutantID);
+		long[] row = getRowForUpdate(mutantID, testID);
+		int word = testID / OUTCOMES_PER_WORD;
+		int shift = (testID % OUTCOMES_PER_WORD) * BITS_PER_OUTCOME;
+		long previousCode = (row[word] >>> shift) & 3L;
+		row[word] = (row[word] & ~(3L << shift)) | (CODES[outcome.ordinal()] << shift);
+		return OUTCOMES[(int) previousCode];
 	}
 
 	/**
 	 * Returns the Outcome to which the (mutant, test) pair is mapped to,
 	 * or null if this KillMap does not contain the (mutant, test) pair.
-	 * 
+	 *
 	 * @param mutant a mutant
 	 * @param test a test method
 	 * @return the Outcome to which the (mutant, test) pair is mapped to,
 	 * 		   or null if this KillMap does not contain the (mutant, test) pair
 	 */
 	public Outcome get(Mutant mutant, TestMethod test) {
-		WorkOrder workOrder = new WorkOrder(mutant, test);
-		return map.get(workOrder);
+		int testID = getTestID(test);
+		if (!contains(mutant.getID(), testID))
+			return null;
+		return get(mutant.getID(), testID);
+	}
+
+	/**
+	 * Returns the Outcome of the mutant with the given ID and the test with
+	 * the given test ID, or null if this KillMap does not contain the
+	 * (mutant, test) pair.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @param testID
+	 *            the test ID of a test
+	 * @return the Outcome of the (mutant, test) pair, or null if this KillMap
+	 *         does not contain the pair
+	 */
+	public Outcome get(int mutantID, int testID) {
+		if (!contains(mutantID, testID))
+			return null;
+		return decode(getCode(rows[mutantID], testID));
+	}
+
+	/**
+	 * Returns the test IDs of the tests whose Outcome against the mutant with
+	 * the given ID is the given Outcome. The returned BitSet is a copy, built
+	 * by scanning the row of the mutant a word of 32 tests at a time.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @param outcome
+	 *            an outcome
+	 * @return the test IDs of the tests having the given Outcome against the
+	 *         mutant
+	 */
+	public BitSet getTests(int mutantID, Outcome outcome) {
+		return getTests(mutantID, outcome, outcome);
 	}
-	
+
+	/**
+	 * Returns the IDs of the mutants whose Outcome against the test with the
+	 * given test ID is the given Outcome. The returned BitSet is a copy, built
+	 * by reading the Outcome of the test in the row of each mutant.
+	 *
+	 * @param testID
+	 *            the test ID of a test
+	 * @param outcome
+	 *            an outcome
+	 * @return the IDs of the mutants having the given Outcome against the
+	 *         test
+	 */
+	public BitSet getMutants(int testID, Outcome outcome) {
+		return getMutants(testID, outcome, outcome);
+	}
+
+	/**
+	 * Returns the test IDs of the tests killing the mutant with the given ID,
+	 * i.e. whose Outcome is KILLED or TIMEOUT. The returned BitSet is a copy.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return the test IDs of the tests killing the mutant
+	 */
+	public BitSet getKillingTests(int mutantID) {
+		return getTests(mutantID, Outcome.KILLED, Outcome.TIMEOUT);
+	}
+
+	/**
+	 * Returns the IDs of the mutants killed by the test with the given test
+	 * ID, i.e. whose Outcome is KILLED or TIMEOUT. The returned BitSet is a
+	 * copy.
+	 *
+	 * @param testID
+	 *            the test ID of a test
+	 * @return the IDs of the mutants killed by the test
+	 */
+	public BitSet getKilledMutants(int testID) {
+		return getMutants(testID, Outcome.KILLED, Outcome.TIMEOUT);
+	}
+
 	/**
 	 * Returns the number of (mutant, test) pairings in this KillMap.
-	 * 
+	 *
 	 * @return the number of (mutant, test) pairings in this KillMap
 	 */
 	public int size() {
-		return map.size();
+		return mutantIDs.cardinality() * catalog.size();
+	}
+
+	/**
+	 * Returns the test IDs of the tests whose Outcome against the mutant with
+	 * the given ID is either of the given Outcomes. The row of the mutant is
+	 * scanned a whole word, i.e. 32 tests, at a time, and only the matching
+	 * tests are visited.
+	 */
+	private BitSet getTests(int mutantID, Outcome outcome1, Outcome outcome2) {
+		int numTests = catalog.size();
+		BitSet ids = new BitSet(numTests);
+		if (mutantID < 1 || !mutantIDs.get(mutantID))
+			return ids;
+		long[] row = getRow(mutantID);
+		long code1 = CODES[outcome1.ordinal()];
+		long code2 = CODES[outcome2.ordinal()];
+		for (int word = 0; word < getRowLength(numTests); word++) {
+			// Tests of the missing words of a row are NOT_EXECUTED, whose code is 0
+			long outcomes = row != null && word < row.length ? row[word] : 0L;
+			long matches = match(outcomes, code1) | match(outcomes, code2);
+			int firstTestID = word * OUTCOMES_PER_WORD;
+			int numWordTests = Math.min(OUTCOMES_PER_WORD, numTests - firstTestID);
+			if (numWordTests < OUTCOMES_PER_WORD)
+				matches &= (1L << (numWordTests * BITS_PER_OUTCOME)) - 1;
+			for (; matches != 0; matches &= matches - 1)
+				ids.set(firstTestID + Long.numberOfTrailingZeros(matches) / BITS_PER_OUTCOME);
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the IDs of the mutants whose Outcome against the test with the
+	 * given test ID is either of the given Outcomes. The two bits of the test
+	 * are read from the row of each mutant, without decoding any Outcome.
+	 */
+	private BitSet getMutants(int testID, Outcome outcome1, Outcome outcome2) {
+		BitSet ids = new BitSet();
+		if (testID < 0 || testID >= catalog.size())
+			return ids;
+		int code1 = (int) CODES[outcome1.ordinal()];
+		int code2 = (int) CODES[outcome2.ordinal()];
+		for (int mutantID = mutantIDs.nextSetBit(0); mutantID >= 0; mutantID = mutantIDs.nextSetBit(mutantID + 1)) {
+			int code = getCode(getRow(mutantID), testID);
+			if (code == code1 || code == code2)
+				ids.set(mutantID);
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the low bit of each Outcome of the given word of a row whose
+	 * code is the given code, all other bits being cleared.
+	 */
+	private static long match(long outcomes, long code) {
+		// Spread the code over all Outcomes of the word, then find the Outcomes without a differing bit
+		long differences = outcomes ^ (code * 0x5555555555555555L);
+		return ~(differences | (differences >>> 1)) & 0x5555555555555555L;
+	}
+
+	/**
+	 * Returns the Outcomes of the mutant with the given ID, two bits per test
+	 * ID (see getCode(long[], int)), or null if no Outcome of the mutant has
+	 * been put. The row may be shorter than needed for all tests; the Outcomes
+	 * of the missing tests are NOT_EXECUTED. The row must not be modified.
+	 */
+	long[] getRow(int mutantID) {
+		return mutantID > 0 && mutantID < rows.length ? rows[mutantID] : null;
+	}
+
+	/**
+	 * Returns the code of the Outcome of the test with the given test ID in
+	 * the given row (see getRow(int)).
+	 */
+	static int getCode(long[] row, int testID) {
+		int word = testID / OUTCOMES_PER_WORD;
+		if (row == null || word >= row.length)
+			return 0;
+		int shift = (testID % OUTCOMES_PER_WORD) * BITS_PER_OUTCOME;
+		return (int) ((row[word] >>> shift) & 3L);
+	}
+
+	/**
+	 * Returns the number of KILLED or TIMEOUT Outcomes in the given row (see
+	 * getRow(int)).
+	 */
+	static int countKills(long[] row) {
+		// KILLED and TIMEOUT are the only codes whose high bit is set
+		int kills = 0;
+		if (row != null) {
+			for (long word : row)
+				kills += Long.bitCount(word & 0xAAAAAAAAAAAAAAAAL);
+		}
+		return kills;
+	}
+
+	/**
+	 * Returns the Outcome stored as the given code.
+	 */
+	static Outcome decode(int code) {
+		return OUTCOMES[code];
+	}
+
+	private boolean contains(int mutantID, int testID) {
+		return mutantID > 0 && mutantIDs.get(mutantID) && testID >= 0 && testID < catalog.size();
 	}
 
+	/**
+	 * Returns the row of the mutant with the given ID, grown so that it can
+	 * store the Outcome of the test with the given test ID.
+	 */
+	private long[] getRowForUpdate(int mutantID, int testID) {
+		if (mutantID >= rows.length)
+			rows = Arrays.copyOf(rows, Math.max(mutantID + 1, rows.length * 2));
+		long[] row = rows[mutantID];
+		int rowLength = getRowLength(Math.max(testID + 1, catalog.size()));
+		if (row == null)
+			row = new long[rowLength];
+		else if (row.length < rowLength)
+			row = Arrays.copyOf(row, rowLength);
+		rows[mutantID] = row;
+		return row;
+	}
+
+	/**
+	 * Returns the number of longs of a row storing the Outcomes of the given
+	 * number of tests.
+	 */
+	static int getRowLength(int numTests) {
+		return (numTests + OUTCOMES_PER_WORD - 1) / OUTCOMES_PER_WORD;
+	}
 }
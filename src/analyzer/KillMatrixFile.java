@@ -0,0 +1,267 @@
+package analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+import mutator.Mutator;
+import util.CompressedBitmap;
+
+/**
+ * KillMatrixFile writes the results of an analysis to a compact binary kill
+ * matrix file (killMatrix.bin), and reads them back into a
+ * StoredMutantAnalyzer without running any test.
+ *
+ * The file consists of, in big-endian byte order:
+ *
+ * i. a header of six ints: a magic number, the version of the format, flags
+ * telling which optional sections follow, the number of mutants, the number
+ * of tests and the number of longs per row;
+ *
+ * ii. the tests in order of test ID, each as the binary name of its test
+ * class followed by its name, both as an int length and UTF-8 bytes, padded
+ * with zeros up to a multiple of 8 bytes;
+ *
+ * iii. the rows of the KillMap (see KillMap#getRow(int)) of the mutants with
+ * IDs from 1 to the number of mutants, two bits per test;
+ *
+ * iv. optionally, the IDs of the covered mutants, as the longs of a BitSet of
+ * (number of mutants + 64) / 64 longs;
+ *
+ * v. optionally, the runtime of each test against the original program in
+ * milliseconds, in order of test ID.
+ *
+ * Since the rows are stored as they are laid out in memory, the file is read
+ * through a memory-mapped FileChannel with one bulk copy per row.
+ *
+ * @author Raymond Tang
+ *
+ */
+public final class KillMatrixFile {
+	// Name of the file to which the results of an analysis are written in the project
+	public static final String FILE_NAME = "killMatrix.bin";
+	// First int of a kill matrix file, "MKMB"
+	private static final int MAGIC = 0x4D4B4D42;
+	// Version of the format
+	private static final int VERSION = 1;
+	// Flag telling that the IDs of the covered mutants are stored
+	private static final int COVERAGE = 1;
+	// Flag telling that the runtimes of the tests are stored
+	private static final int RUNTIMES = 2;
+	// Size of the buffer through which rows are written
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private KillMatrixFile() {
+	}
+
+	/**
+	 * Writes the given KillMap of the mutants with IDs from 1 to the given
+	 * number of mutants to the given file, replacing its contents. The IDs of
+	 * the covered mutants and the runtimes of the tests, indexed by test ID,
+	 * are only written if they are not null.
+	 *
+	 * Throws an IllegalArgumentException if there is not one runtime per test
+	 * of the KillMap. Throws an IOException if the file could not be written.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @param killMap
+	 *            the KillMap to write
+	 * @param numMutants
+	 *            the number of mutants
+	 * @param coveredMutantIDs
+	 *            the IDs of the covered mutants, or null
+	 * @param runtimes
+	 *            the runtime of each test in milliseconds, or null
+	 * @throws IOException
+	 */
+	public static void write(Path file, KillMap killMap, int numMutants, CompressedBitmap coveredMutantIDs,
+			long[] runtimes) throws IOException {
+		List<TestMethod> tests = killMap.getTestCatalog().getTests();
+		int numTests = tests.size();
+		if (runtimes != null && runtimes.length != numTests)
+			throw new IllegalArgumentException("There must be one runtime per test");
+		int rowLength = KillMap.getRowLength(numTests);
+		int flags = (coveredMutantIDs != null ? COVERAGE : 0) | (runtimes != null ? RUNTIMES : 0);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, ByteBuffer.wrap(encodeHeader(tests, flags, numMutants, rowLength)));
+			ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, rowLength * 8));
+			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+				long[] row = killMap.getRow(mutantID);
+				ensureRemaining(channel, buffer, rowLength);
+				for (int word = 0; word < rowLength; word++)
+					buffer.putLong(row != null && word < row.length ? row[word] : 0L);
+			}
+			if (coveredMutantIDs != null) {
+				BitSet covered = new BitSet(numMutants + 1);
+				for (int mutantID = coveredMutantIDs.nextSetBit(1); mutantID >= 0
+						&& mutantID <= numMutants; mutantID = coveredMutantIDs.nextSetBit(mutantID + 1))
+					covered.set(mutantID);
+				long[] words = covered.toLongArray();
+				for (int word = 0; word < getCoverageLength(numMutants); word++) {
+					ensureRemaining(channel, buffer, 1);
+					buffer.putLong(word < words.length ? words[word] : 0L);
+				}
+			}
+			if (runtimes != null) {
+				for (long runtime : runtimes) {
+					ensureRemaining(channel, buffer, 1);
+					buffer.putLong(runtime);
+				}
+			}
+			buffer.flip();
+			writeFully(channel, buffer);
+		}
+	}
+
+	/**
+	 * Reads the given kill matrix file into a StoredMutantAnalyzer of the
+	 * mutants of the given mutator. The test classes are loaded by the given
+	 * ClassLoader, without being initialized.
+	 *
+	 * Throws an IOException if the file could not be read, if it is not a
+	 * kill matrix file, if its number of mutants differs from the number of
+	 * mutants of the mutator, or if a test class could not be loaded.
+	 *
+	 * @param file
+	 *            the file to read
+	 * @param mutator
+	 *            a mutator containing information about the mutants
+	 * @param loader
+	 *            the ClassLoader loading the test classes
+	 * @return a StoredMutantAnalyzer of the results in the file
+	 * @throws IOException
+	 */
+	public static StoredMutantAnalyzer read(Path file, Mutator mutator, ClassLoader loader) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(file + " is too large to be read");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			try {
+				return read(file, buffer, mutator, loader);
+			} catch (BufferUnderflowException e) {
+				throw new IOException(file + " is truncated");
+			}
+		}
+	}
+
+	private static StoredMutantAnalyzer read(Path file, ByteBuffer buffer, Mutator mutator, ClassLoader loader)
+			throws IOException {
+		if (buffer.getInt() != MAGIC)
+			throw new IOException(file + " is not a kill matrix file");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("Version " + version + " of the kill matrix file is not supported");
+		int flags = buffer.getInt();
+		int numMutants = buffer.getInt();
+		int numTests = buffer.getInt();
+		int rowLength = buffer.getInt();
+		if (numMutants != mutator.getNumberOfMutants())
+			throw new IOException("The kill matrix has " + numMutants + " mutants, but there are "
+					+ mutator.getNumberOfMutants() + " mutants");
+		if (numTests < 0 || rowLength != KillMap.getRowLength(numTests))
+			throw new IOException(file + " is corrupted");
+		TestCatalog catalog = new TestCatalog();
+		for (int testID = 0; testID < numTests; testID++) {
+			String className = getString(buffer);
+			String name = getString(buffer);
+			try {
+				catalog.add(new TestMethod(Class.forName(className, false, loader), name));
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Test class " + className + " could not be loaded", e);
+			}
+		}
+		buffer.position((buffer.position() + 7) & ~7);
+		LongBuffer longs = buffer.slice().asLongBuffer();
+		long[][] rows = new long[numMutants + 1][];
+		for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+			rows[mutantID] = new long[rowLength];
+			longs.get(rows[mutantID]);
+		}
+		BitSet coveredMutantIDs = null;
+		if ((flags & COVERAGE) != 0) {
+			long[] words = new long[getCoverageLength(numMutants)];
+			longs.get(words);
+			coveredMutantIDs = BitSet.valueOf(words);
+		}
+		long[] runtimes = null;
+		if ((flags & RUNTIMES) != 0) {
+			runtimes = new long[numTests];
+			longs.get(runtimes);
+		}
+		return new StoredMutantAnalyzer(mutator, new KillMap(catalog, rows), coveredMutantIDs, runtimes);
+	}
+
+	/**
+	 * Returns the header and the tests, padded up to a multiple of 8 bytes.
+	 */
+	private static byte[] encodeHeader(List<TestMethod> tests, int flags, int numMutants, int rowLength)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(flags);
+		out.writeInt(numMutants);
+		out.writeInt(tests.size());
+		out.writeInt(rowLength);
+		for (TestMethod test : tests) {
+			putString(out, test.getTestClass().getName());
+			putString(out, test.getName());
+		}
+		while (out.size() % 8 != 0)
+			out.writeByte(0);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void putString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining())
+			throw new IOException("Kill matrix file is corrupted");
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the number of longs storing the IDs of the covered mutants.
+	 */
+	private static int getCoverageLength(int numMutants) {
+		return (numMutants + Long.SIZE) / Long.SIZE;
+	}
+
+	/**
+	 * Writes out and clears the given buffer unless it has room for the given
+	 * number of longs.
+	 */
+	private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int numLongs) throws IOException {
+		if (buffer.remaining() >= numLongs * 8)
+			return;
+		buffer.flip();
+		writeFully(channel, buffer);
+		buffer.clear();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+}
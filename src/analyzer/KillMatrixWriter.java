@@ -0,0 +1,257 @@
+package analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A KillMatrixWriter writes a KillMap as a CSV file with one row per mutant
+ * and one column per test, as exported by
+ * MutantAnalyzer#exportKillMatrixCSV(). The first row holds the names of the
+ * tests, and the first column the IDs of the mutants.
+ *
+ * Rows are encoded straight from the bit-packed rows of the KillMap, in
+ * chunks of consecutive mutants which are encoded on several threads and
+ * written in order to a FileChannel. If the output is compressed, each chunk
+ * is compressed on its own thread into a separate gzip member; concatenated
+ * gzip members form a valid gzip file, which gzip and
+ * java.util.zip.GZIPInputStream read as a whole.
+ *
+ * @author Raymond Tang
+ *
+ */
+public class KillMatrixWriter {
+	// Number of rows encoded together
+	private static final int ROWS_PER_CHUNK = 1024;
+	// Separates cells
+	private static final char CSV_SEPARATOR = ',';
+	// Separates rows
+	private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+	// Bytes of a cell, including its leading separator, indexed by code of the KillMap
+	private static final byte[][] CELLS = new byte[4][];
+	static {
+		for (int code = 0; code < CELLS.length; code++)
+			CELLS[code] = (CSV_SEPARATOR + KillMap.decode(code).name()).getBytes(StandardCharsets.US_ASCII);
+	}
+	// The KillMap to write
+	private final KillMap killMap;
+	// Number of mutants, i.e. of rows below the header
+	private final int numMutants;
+	// Whether or not the output is gzip-compressed
+	private boolean compressed;
+	// Number of threads encoding chunks
+	private int numThreads;
+
+	/**
+	 * Creates a KillMatrixWriter of the given KillMap, which writes a row for
+	 * each mutant with an ID from 1 to the given number of mutants. By
+	 * default, the output is not compressed and rows are encoded on one
+	 * thread per available processor.
+	 *
+	 * @param killMap
+	 *            the KillMap to write
+	 * @param numMutants
+	 *            the number of mutants
+	 */
+	public KillMatrixWriter(KillMap killMap, int numMutants) {
+		if (killMap == null)
+			throw new IllegalArgumentException("KillMap cannot be null");
+		if (numMutants < 0)
+			throw new IllegalArgumentException("Number of mutants cannot be negative");
+		this.killMap = killMap;
+		this.numMutants = numMutants;
+		this.compressed = false;
+		this.numThreads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns true if the output is gzip-compressed. Returns false otherwise.
+	 *
+	 * @return the value of the compressed property
+	 */
+	public boolean isCompressed() {
+		return compressed;
+	}
+
+	/**
+	 * Sets the compressed property to either true or false. If true, the
+	 * output is gzip-compressed.
+	 *
+	 * @param compressed
+	 *            the value to which the compressed property will be set
+	 */
+	public void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+	}
+
+	/**
+	 * Returns the number of threads encoding rows.
+	 *
+	 * @return the number of threads
+	 */
+	public int getNumberOfThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Sets the number of threads encoding rows.
+	 *
+	 * Throws an IllegalArgumentException if the number is less than 1.
+	 *
+	 * @param numThreads
+	 *            the number of threads
+	 */
+	public void setNumberOfThreads(int numThreads) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Writes the kill matrix to the given file, replacing its contents.
+	 *
+	 * Throws an IOException if the file could not be written.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 */
+	public void write(Path file) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, finish(encodeHeader()));
+			// Chunks being encoded, in order. At most two per thread are kept
+			// in memory
+			Queue<Future<byte[]>> chunks = new ArrayDeque<Future<byte[]>>();
+			int nextMutantID = 1;
+			while (nextMutantID <= numMutants || !chunks.isEmpty()) {
+				while (nextMutantID <= numMutants && chunks.size() < 2 * numThreads) {
+					final int firstMutantID = nextMutantID;
+					final int lastMutantID = Math.min(numMutants, firstMutantID + ROWS_PER_CHUNK - 1);
+					chunks.add(executor.submit(new Callable<byte[]>() {
+						@Override
+						public byte[] call() throws Exception {
+							return finish(encodeRows(firstMutantID, lastMutantID));
+						}
+					}));
+					nextMutantID = lastMutantID + 1;
+				}
+				writeFully(channel, getChunk(chunks.remove()));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the header row.
+	 */
+	private ByteBuilder encodeHeader() {
+		StringBuilder header = new StringBuilder("Mutant#");
+		for (TestMethod test : killMap.getTestCatalog().getTests())
+			header.append(CSV_SEPARATOR).append(test.getName());
+		ByteBuilder out = new ByteBuilder(header.length() + LINE_SEPARATOR.length);
+		byte[] bytes = header.toString().getBytes(StandardCharsets.UTF_8);
+		out.write(bytes, 0, bytes.length);
+		out.write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+		return out;
+	}
+
+	/**
+	 * Returns the rows of the mutants with IDs from the given first ID to the
+	 * given last ID.
+	 */
+	private ByteBuilder encodeRows(int firstMutantID, int lastMutantID) {
+		int numTests = killMap.getNumberOfTests();
+		ByteBuilder out = new ByteBuilder(
+				(lastMutantID - firstMutantID + 1) * (8 + numTests * 6));
+		byte[] digits = new byte[10];
+		for (int mutantID = firstMutantID; mutantID <= lastMutantID; mutantID++) {
+			int numDigits = 0;
+			for (int id = mutantID; id > 0; id /= 10)
+				digits[digits.length - ++numDigits] = (byte) ('0' + id % 10);
+			out.write(digits, digits.length - numDigits, numDigits);
+			long[] row = killMap.getRow(mutantID);
+			for (int testID = 0; testID < numTests; testID++) {
+				byte[] cell = CELLS[KillMap.getCode(row, testID)];
+				out.write(cell, 0, cell.length);
+			}
+			out.write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the given encoded bytes, compressed into a gzip member if the
+	 * output is compressed.
+	 */
+	private byte[] finish(ByteBuilder encoded) throws IOException {
+		if (!compressed)
+			return encoded.toByteArray();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.size / 8 + 64);
+		GZIPOutputStream gzip = new GZIPOutputStream(out, 1 << 16);
+		gzip.write(encoded.bytes, 0, encoded.size);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	private static byte[] getChunk(Future<byte[]> chunk) throws IOException {
+		try {
+			return chunk.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("Could not encode kill matrix", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while encoding kill matrix");
+		}
+	}
+
+	private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * An unsynchronized, growable array of bytes.
+	 */
+	private static final class ByteBuilder {
+		// The bytes, followed by unused capacity
+		private byte[] bytes;
+		// Number of bytes
+		private int size;
+
+		ByteBuilder(int capacity) {
+			this.bytes = new byte[Math.max(capacity, 16)];
+			this.size = 0;
+		}
+
+		void write(byte[] source, int offset, int length) {
+			if (size + length > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+			System.arraycopy(source, offset, bytes, size, length);
+			size += length;
+		}
+
+		byte[] toByteArray() {
+			return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+		}
+	}
+}
@@ -1,21 +1,34 @@
 package analyzer;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.LinkedHashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-
-import org.junit.runner.JUnitCore;
-import org.junit.runner.Request;
-import org.junit.runner.Result;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import major.mutation.Config;
 import mutator.Mutator;
+import util.CompressedBitmap;
 import util.TestFinder;
 
 /**
@@ -24,68 +37,824 @@ import util.TestFinder;
  * mutant given by the Mutator. This MutantAnalyzer provides coverage
  * information on mutants in addition to whether or not mutants are killed.
  * 
+ * Depending on its AnalysisSettings, a MajorMutantAnalyzer runs tests in the
+ * current JVM, on a pool of threads each having its own active mutant, or
+ * across a pool of forked worker JVMs.
+ * 
  * @author Raymond Tang
  *
  */
 public class MajorMutantAnalyzer implements MutantAnalyzer {
 	// File separator. Differs depending on operating system
 	private static final char FILE_SEPARATOR = File.separatorChar;
+	// How often to check whether the analysis was canceled while waiting for tests, in milliseconds
+	private static final long CANCELATION_CHECK_INTERVAL = 100;
 	// A mutator containing information about mutants
 	private Mutator mutator;
-	// Set of covered mutantIDs
-	private Set<Integer> coveredMutantIDs;
+	// Which tests cover which mutants
+	private CoverageIndex coverageIndex;
 	// Set of killed mutantIDs
-	private Set<Integer> killedMutantIDs;
+	private CompressedBitmap killedMutantIDs;
 	// KillMap
 	private KillMap killMap;
-	// Tests to run against mutants
+	// Test IDs of the tests to run against mutants
+	private TestCatalog catalog;
+	// Tests to run against mutants, indexed by test ID
 	private List<TestMethod> tests;
+	// Settings determining how tests are run against mutants
+	private AnalysisSettings settings;
+	// Told about the progress of the analysis
+	private AnalysisMonitor monitor;
+	// Notified of the results of the analysis while it runs
+	private List<AnalysisListener> listeners;
+	// Number of WorkOrders of each mutant whose Outcome is not recorded yet, indexed by mutant ID
+	private int[] pendingWorkOrders;
+	// Number of tests killing each mutant, indexed by mutant ID
+	private int[] killCounts;
+	// Final status of each mutant, built once the analysis has finished
+	private MutantStatusIndex statusIndex;
+	// Runtime of each test against the original program in milliseconds, indexed by test ID
+	private long[] runtimes;
+	// Results of the previous analysis, from which Outcomes are carried forward, or null
+	private AnalysisHistory previousHistory;
+	// Fingerprints of the inputs of this analysis, or null if it is not incremental
+	private AnalysisFingerprints fingerprints;
+	// Indices of the tests whose Outcome of each mutant was carried forward, indexed by mutant ID
+	private BitSet[] carriedForward;
+	// Results of this analysis along with the fingerprints of its inputs, or null if it is not incremental
+	private AnalysisHistory history;
+	// Whether or not mutation testing was performed
+	private boolean analyzed;
+
+	/**
+	 * Creates a MajorMutantAnalyzer with the default settings and immediately
+	 * performs mutation testing (see analyze()).
+	 * 
+	 * Throws an AnalyzeException if the tests could not be run.
+	 * 
+	 * @param mutator
+	 *            a mutator containing information about mutants
+	 * @param testClasses
+	 *            the test classes whose tests are run against the mutants
+	 * @throws AnalyzeException
+	 */
+	public MajorMutantAnalyzer(Mutator mutator, Collection<Class<?>> testClasses) throws AnalyzeException {
+		this(mutator, testClasses, new AnalysisSettings());
+		analyze();
+	}
 
-	public MajorMutantAnalyzer(Mutator mutator, Collection<Class<?>> testClasses) {
+	/**
+	 * Creates a MajorMutantAnalyzer with the given settings. Mutation testing
+	 * is performed once analyze() or analyze(AnalysisMonitor) is called, so
+	 * that AnalysisListeners can be registered beforehand.
+	 * 
+	 * @param mutator
+	 *            a mutator containing information about mutants
+	 * @param testClasses
+	 *            the test classes whose tests are run against the mutants
+	 * @param settings
+	 *            settings determining how tests are run against mutants
+	 */
+	public MajorMutantAnalyzer(Mutator mutator, Collection<Class<?>> testClasses, AnalysisSettings settings) {
 		this.mutator = mutator;
-		this.tests = new ArrayList<TestMethod>(TestFinder.getTestMethods(testClasses));
-		this.coveredMutantIDs = new TreeSet<Integer>();
-		this.killedMutantIDs = new LinkedHashSet<Integer>();
-		killMap = executeMutationTests();
+		this.settings = settings;
+		this.monitor = AnalysisMonitor.NONE;
+		this.listeners = new CopyOnWriteArrayList<AnalysisListener>();
+		this.catalog = new TestCatalog(TestFinder.getTestMethods(testClasses));
+		this.tests = catalog.getTests();
+		this.coverageIndex = new CoverageIndex(Collections.<CompressedBitmap>emptyList(), 0);
+		this.killedMutantIDs = new CompressedBitmap();
+		this.killMap = new KillMap();
+		this.runtimes = new long[0];
+		this.analyzed = false;
+	}
+
+	/**
+	 * Performs mutation testing (see analyze(AnalysisMonitor)) without
+	 * monitoring its progress.
+	 * 
+	 * Throws an AnalyzeException if the tests could not be run.
+	 * 
+	 * @throws AnalyzeException
+	 */
+	public void analyze() throws AnalyzeException {
+		analyze(AnalysisMonitor.NONE);
+	}
+
+	/**
+	 * Performs mutation testing, reporting its progress to the given
+	 * AnalysisMonitor and its results to the registered AnalysisListeners
+	 * while it runs. Until this method returns, the KillMap and the other
+	 * results of this analyzer only reflect the WorkOrders completed so far
+	 * and must only be read on the thread running the analysis, e.g. from an
+	 * AnalysisListener.
+	 * 
+	 * An IllegalStateException is thrown if mutation testing was already
+	 * performed. Throws an AnalyzeException if the tests could not be run or
+	 * if the AnalysisMonitor canceled the analysis.
+	 * 
+	 * @param monitor
+	 *            the monitor of the analysis
+	 * @throws AnalyzeException
+	 */
+	public void analyze(AnalysisMonitor monitor) throws AnalyzeException {
+		if (analyzed)
+			throw new IllegalStateException("Mutation testing was already performed");
+		analyzed = true;
+		this.monitor = monitor;
+		executeMutationTests();
+		for (AnalysisListener listener : listeners)
+			listener.analysisFinished(this);
 	}
 
 	/**
 	 * Performs mutation testing by running each test against each mutant in
-	 * isolation. Returns a KillMap containing the results of the mutation
-	 * testing.
+	 * isolation. The results are recorded in the KillMap of this analyzer.
+	 * 
+	 * Each test is first run against the original program to gather its
+	 * result and the mutants it covers. Then, each covered mutant is run
+	 * against the tests covering it. Mutants are distributed among the
+	 * configured workers and their results are recorded as they complete.
+	 * Each WorkOrder is bounded by the time budget of its test (see
+	 * getTimeout(TestResult)); a WorkOrder exceeding it has the Outcome
+	 * TIMEOUT. If the settings ask to stop at the first kill, the remaining
+	 * tests covering a killed mutant are not run and their WorkOrders have the
+	 * Outcome NOT_EXECUTED. If the settings ask to batch tests, the tests
+	 * covering a mutant are run against it in a single JUnit run. If the
+	 * settings ask to amortize fixtures, WorkOrders are grouped by test class
+	 * instead of by mutant, and each test class is set up only once. If the
+	 * settings ask to fail fast, a run against a mutant stops at its first
+	 * test failure and the WorkOrders it did not reach are NOT_EXECUTED. If the
+	 * settings ask for an incremental analysis, the Outcomes of WorkOrders
+	 * whose inputs did not change since the previous analysis are carried
+	 * forward instead of being run again (see carryForward(int)).
 	 * 
-	 * @return a KillMap containing the results of the mutation testing
+	 * The progress of each phase is reported to the AnalysisMonitor.
+	 * 
+	 * Throws an AnalyzeException if the workers could not run the tests or if
+	 * the AnalysisMonitor canceled the analysis.
+	 * 
+	 * @throws AnalyzeException
 	 */
-	private KillMap executeMutationTests() {
-		KillMap killMap = new KillMap();
+	private void executeMutationTests() throws AnalyzeException {
 		int numMutants = mutator.getNumberOfMutants();
-		for (TestMethod test : tests) {
-			Config.__M_NO = 0;
-			JUnitCore core = new JUnitCore();
-			Result original = core.run(Request.method(test.getTestClass(), test.getName()));
-			boolean originalResult = original.wasSuccessful();
-			List<Integer> coveredMutants = Config.getCoverageList();
-			this.coveredMutantIDs.addAll(coveredMutants);
-			Config.reset();
+		BlockingQueue<TestRunner> runners = createTestRunners();
+		// Runners taken from the queue must be closed as well if the analysis stops early
+		List<TestRunner> allRunners = new ArrayList<TestRunner>(runners);
+		ExecutorService executor = Executors.newFixedThreadPool(runners.size());
+		Config.setNumberOfMutants(numMutants);
+		Config.setThreadScoped(settings.getExecutionMode() == ExecutionMode.THREAD_SCOPED);
+		try {
+			// Run each test against the original program
+			beginPhase(AnalysisPhase.COVERAGE, tests.size());
+			List<Future<TestResult>> originalRuns = new ArrayList<Future<TestResult>>();
+			for (TestMethod test : tests)
+				originalRuns.add(executor.submit(createOriginalRun(runners, test)));
+			List<TestResult> originalResults = new ArrayList<TestResult>();
+			List<CompressedBitmap> coverage = new ArrayList<CompressedBitmap>();
+			this.runtimes = new long[tests.size()];
+			for (Future<TestResult> originalRun : originalRuns) {
+				TestResult original = getResult(originalRun);
+				runtimes[originalResults.size()] = original.getRuntime();
+				originalResults.add(original);
+				coverage.add(original.getCoveredMutants());
+				monitor.worked(1);
+			}
+			this.coverageIndex = new CoverageIndex(coverage, numMutants);
+			if (settings.isIncremental())
+				this.fingerprints = computeFingerprints();
+			finishPhase(AnalysisPhase.COVERAGE);
+			// Run each covered mutant against the tests covering it
+			int numWorkOrders = 0;
+			this.killMap = new KillMap(catalog, numMutants);
+			this.pendingWorkOrders = new int[numMutants + 1];
+			this.killCounts = new int[numMutants + 1];
+			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+				pendingWorkOrders[mutantID] = coverageIndex.getCoveringTests(mutantID).cardinality();
+				numWorkOrders += pendingWorkOrders[mutantID];
+			}
+			beginPhase(AnalysisPhase.EXECUTION, numWorkOrders);
 			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
-				Mutant mutant = new Mutant(mutantID);
-				Outcome outcome;
-				if (coveredMutants.contains(mutantID)) {
-					Config.__M_NO = mutantID;
-					Result resultWithMutant = core.run(Request.method(test.getTestClass(), test.getName()));
-					boolean newResult = resultWithMutant.wasSuccessful();
-					if (newResult == originalResult)
-						outcome = Outcome.ALIVE;
-					else {
-						outcome = Outcome.KILLED;
-						this.killedMutantIDs.add(mutantID);
+				if (!coverageIndex.isCovered(mutantID)) {
+					for (AnalysisListener listener : listeners)
+						listener.mutantCompleted(new Mutant(mutantID), MutantStatus.UNCOVERED);
+				}
+			}
+			carryForward(numMutants);
+			if (settings.isAmortizeFixtures())
+				runByTestClass(executor, runners, originalResults);
+			else
+				runByMutant(executor, runners, originalResults);
+			// Uncovered mutants cannot be killed
+			for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+				BitSet coveringTests = coverageIndex.getCoveringTests(mutantID);
+				for (int i = coveringTests.nextClearBit(0); i < tests.size(); i = coveringTests.nextClearBit(i + 1))
+					killMap.put(mutantID, i, Outcome.ALIVE);
+			}
+			this.statusIndex = createStatusIndex(numMutants);
+			if (fingerprints != null)
+				this.history = createHistory(numMutants);
+			finishPhase(AnalysisPhase.EXECUTION);
+		} finally {
+			executor.shutdownNow();
+			closeTestRunners(allRunners);
+			Config.setThreadScoped(false);
+		}
+	}
+
+	/**
+	 * Returns the fingerprints of the inputs of this analysis, or null if they
+	 * could not be computed, in which case no Outcome is carried forward.
+	 * 
+	 * @return the fingerprints of the inputs of this analysis, or null
+	 */
+	private AnalysisFingerprints computeFingerprints() {
+		try {
+			return AnalysisFingerprints.compute(mutator, tests, coverageIndex, settings.getDependencies());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Records the Outcomes of the WorkOrders which are carried forward from the
+	 * previous analysis (see setAnalysisHistory(AnalysisHistory)), so that they
+	 * are not run again. The Outcome of a WorkOrder is carried forward if the
+	 * dependencies of the tests, including the code of the mutated java files
+	 * outside of the members having mutants, the mutant's member, and the
+	 * test's class and coverage are unchanged (see AnalysisFingerprints), and
+	 * the previous analysis recorded an Outcome other than NOT_EXECUTED for the
+	 * same mutant and test. If the settings ask to stop at the first kill or
+	 * to fail fast, the other WorkOrders of a mutant killed by a carried
+	 * Outcome are NOT_EXECUTED, as they would not have been reached either.
+	 * 
+	 * @param numMutants
+	 *            the number of mutants
+	 */
+	private void carryForward(int numMutants) {
+		this.carriedForward = new BitSet[numMutants + 1];
+		if (previousHistory == null || fingerprints == null)
+			return;
+		AnalysisFingerprints previous = previousHistory.getFingerprints();
+		if (!fingerprints.isDependenciesUnchanged(previous))
+			return;
+		// Index of each test in the previous analysis, or -1 if it changed
+		int[] previousTests = new int[tests.size()];
+		for (int testIndex = 0; testIndex < tests.size(); testIndex++) {
+			int previousTest = previousHistory.getTestIndex(tests.get(testIndex).getKey());
+			previousTests[testIndex] = previousTest >= 0
+					&& fingerprints.isTestUnchanged(testIndex, previous, previousTest) ? previousTest : -1;
+		}
+		CompressedBitmap coveredMutants = coverageIndex.getCoveredMutants();
+		for (int mutantID = coveredMutants.nextSetBit(1); mutantID >= 0; mutantID = coveredMutants
+				.nextSetBit(mutantID + 1)) {
+			int previousMutant = previousHistory.getMutantID(fingerprints.getMutantKey(mutantID));
+			if (previousMutant == 0 || !fingerprints.isMutantUnchanged(mutantID, previous, previousMutant))
+				continue;
+			BitSet coveringTests = coverageIndex.getCoveringTests(mutantID);
+			BitSet carried = new BitSet(tests.size());
+			for (int i = coveringTests.nextSetBit(0); i >= 0; i = coveringTests.nextSetBit(i + 1)) {
+				if (previousTests[i] < 0)
+					continue;
+				Outcome outcome = previousHistory.getOutcome(previousMutant, previousTests[i]);
+				if (outcome == Outcome.NOT_EXECUTED)
+					continue;
+				carried.set(i);
+				recordOutcome(mutantID, i, outcome);
+			}
+			if (killCounts[mutantID] > 0 && (settings.isStopAtFirstKill() || settings.isFailFast())) {
+				for (int i = coveringTests.nextSetBit(0); i >= 0; i = coveringTests.nextSetBit(i + 1)) {
+					if (!carried.get(i)) {
+						carried.set(i);
+						recordOutcome(mutantID, i, Outcome.NOT_EXECUTED);
 					}
-				} else
-					outcome = Outcome.ALIVE;
-				killMap.put(mutant, test, outcome);
+				}
 			}
+			if (!carried.isEmpty())
+				carriedForward[mutantID] = carried;
+		}
+	}
+
+	/**
+	 * Returns true if the Outcome of the given mutant and test was carried
+	 * forward from the previous analysis. Returns false otherwise.
+	 */
+	private boolean isCarriedForward(int mutantID, int testIndex) {
+		return carriedForward[mutantID] != null && carriedForward[mutantID].get(testIndex);
+	}
+
+	/**
+	 * Returns the AnalysisHistory of this analysis, once all Outcomes are
+	 * recorded.
+	 * 
+	 * @param numMutants
+	 *            the number of mutants
+	 * @return the AnalysisHistory of this analysis
+	 */
+	private AnalysisHistory createHistory(int numMutants) {
+		List<String> testKeys = new ArrayList<String>();
+		for (TestMethod test : tests)
+			testKeys.add(test.getKey());
+		long[][] rows = new long[numMutants + 1][];
+		for (int mutantID = 1; mutantID <= numMutants; mutantID++)
+			rows[mutantID] = killMap.getRow(mutantID);
+		return new AnalysisHistory(testKeys, fingerprints, rows);
+	}
+
+	/**
+	 * Records the given Outcome of the WorkOrder of the given mutant and test
+	 * in the KillMap, and notifies the AnalysisMonitor and the
+	 * AnalysisListeners. Once all WorkOrders of the mutant are recorded, the
+	 * AnalysisListeners are notified of its final status.
+	 * 
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @param testIndex
+	 *            the index of a test covering the mutant
+	 * @param outcome
+	 *            the Outcome of the WorkOrder
+	 */
+	private void recordOutcome(int mutantID, int testIndex, Outcome outcome) {
+		Mutant mutant = new Mutant(mutantID);
+		TestMethod test = tests.get(testIndex);
+		killMap.put(mutantID, testIndex, outcome);
+		if (outcome == Outcome.KILLED || outcome == Outcome.TIMEOUT) {
+			this.killedMutantIDs.add(mutantID);
+			killCounts[mutantID]++;
+		}
+		monitor.worked(1);
+		WorkOrder workOrder = new WorkOrder(mutant, test);
+		for (AnalysisListener listener : listeners)
+			listener.workOrderCompleted(workOrder, outcome);
+		if (--pendingWorkOrders[mutantID] == 0) {
+			MutantStatus status = killCounts[mutantID] > 0 ? MutantStatus.KILLED : MutantStatus.ALIVE;
+			for (AnalysisListener listener : listeners)
+				listener.mutantCompleted(mutant, status);
+		}
+	}
+
+	/**
+	 * Returns a MutantStatusIndex of the final status and kill count of each
+	 * of the given number of mutants, once all Outcomes are recorded.
+	 * 
+	 * @param numMutants
+	 *            the number of mutants
+	 * @return the MutantStatusIndex of the mutants
+	 */
+	private MutantStatusIndex createStatusIndex(int numMutants) {
+		MutantStatus[] statuses = new MutantStatus[numMutants];
+		for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+			if (killCounts[mutantID] > 0)
+				statuses[mutantID - 1] = MutantStatus.KILLED;
+			else if (coverageIndex.isCovered(mutantID))
+				statuses[mutantID - 1] = MutantStatus.ALIVE;
+			else
+				statuses[mutantID - 1] = MutantStatus.UNCOVERED;
+		}
+		return new MutantStatusIndex(statuses, Arrays.copyOfRange(killCounts, 1, numMutants + 1));
+	}
+
+	/**
+	 * Notifies the AnalysisMonitor and the AnalysisListeners that the given
+	 * phase has started and consists of the given amount of work.
+	 */
+	private void beginPhase(AnalysisPhase phase, int totalWork) {
+		monitor.beginPhase(phase, totalWork);
+		for (AnalysisListener listener : listeners)
+			listener.phaseStarted(phase, totalWork);
+	}
+
+	/**
+	 * Notifies the AnalysisListeners that the given phase has finished.
+	 */
+	private void finishPhase(AnalysisPhase phase) {
+		for (AnalysisListener listener : listeners)
+			listener.phaseFinished(phase);
+	}
+
+	/**
+	 * Runs each covered mutant against its covering tests, one task per
+	 * mutant, and records the Outcomes of each mutant as soon as its task
+	 * completes.
+	 * 
+	 * Throws an AnalyzeException if the workers could not run the tests.
+	 * 
+	 * @param executor
+	 *            the executor running the tasks
+	 * @param runners
+	 *            the available test runners
+	 * @param originalResults
+	 *            the results of the tests against the original program
+	 * @throws AnalyzeException
+	 */
+	private void runByMutant(ExecutorService executor, BlockingQueue<TestRunner> runners,
+			List<TestResult> originalResults) throws AnalyzeException {
+		CompletionService<Outcome[]> completionService = new ExecutorCompletionService<Outcome[]>(executor);
+		CompressedBitmap coveredMutants = coverageIndex.getCoveredMutants();
+		Map<Future<Outcome[]>, Integer> mutantRuns = new HashMap<Future<Outcome[]>, Integer>();
+		for (int mutantID = coveredMutants.nextSetBit(1); mutantID >= 0; mutantID = coveredMutants
+				.nextSetBit(mutantID + 1)) {
+			List<Integer> coveringTests = getCoveringTests(mutantID, originalResults);
+			if (coveringTests.isEmpty())
+				continue;
+			mutantRuns.put(
+					completionService.submit(createMutantRun(runners, mutantID, coveringTests, originalResults)),
+					mutantID);
+		}
+		for (int i = 0; i < mutantRuns.size(); i++) {
+			Future<Outcome[]> mutantRun = getNextCompleted(completionService);
+			int mutantID = mutantRuns.get(mutantRun);
+			Outcome[] outcomes = getResult(mutantRun);
+			for (int testIndex = 0; testIndex < outcomes.length; testIndex++) {
+				if (outcomes[testIndex] != null)
+					recordOutcome(mutantID, testIndex, outcomes[testIndex]);
+			}
+		}
+	}
+
+	/**
+	 * Runs each covered mutant against its covering tests, one task per test
+	 * class, so that each test class is set up only once (see
+	 * TestRunner#runWorkOrders(List, List)). The Outcomes of each test class
+	 * are recorded as soon as its task completes.
+	 * 
+	 * Throws an AnalyzeException if the workers could not run the tests.
+	 * 
+	 * @param executor
+	 *            the executor running the tasks
+	 * @param runners
+	 *            the available test runners
+	 * @param originalResults
+	 *            the results of the tests against the original program
+	 * @throws AnalyzeException
+	 */
+	private void runByTestClass(ExecutorService executor, final BlockingQueue<TestRunner> runners,
+			final List<TestResult> originalResults) throws AnalyzeException {
+		// Indices of the tests of each test class
+		Map<Class<?>, List<Integer>> testsByClass = new LinkedHashMap<Class<?>, List<Integer>>();
+		for (int i = 0; i < tests.size(); i++) {
+			Class<?> testClass = tests.get(i).getTestClass();
+			if (!testsByClass.containsKey(testClass))
+				testsByClass.put(testClass, new ArrayList<Integer>());
+			testsByClass.get(testClass).add(i);
+		}
+		CompletionService<List<TestResult>> completionService = new ExecutorCompletionService<List<TestResult>>(
+				executor);
+		Map<Future<List<TestResult>>, List<WorkOrder>> classRuns = new HashMap<Future<List<TestResult>>, List<WorkOrder>>();
+		for (List<Integer> classTests : testsByClass.values()) {
+			final List<WorkOrder> workOrders = new ArrayList<WorkOrder>();
+			final List<Long> timeouts = new ArrayList<Long>();
+			for (int testIndex : classTests) {
+				CompressedBitmap coveredMutants = coverageIndex.getCoveredMutants(testIndex);
+				for (int mutantID = coveredMutants.nextSetBit(1); mutantID >= 0; mutantID = coveredMutants
+						.nextSetBit(mutantID + 1)) {
+					if (isCarriedForward(mutantID, testIndex))
+						continue;
+					workOrders.add(new WorkOrder(new Mutant(mutantID), tests.get(testIndex)));
+					timeouts.add(getTimeout(originalResults.get(testIndex)));
+				}
+			}
+			if (workOrders.isEmpty())
+				continue;
+			classRuns.put(completionService.submit(new Callable<List<TestResult>>() {
+				@Override
+				public List<TestResult> call() throws Exception {
+					TestRunner runner = runners.take();
+					try {
+						return runner.runWorkOrders(workOrders, timeouts);
+					} finally {
+						runners.put(runner);
+					}
+				}
+			}), workOrders);
+		}
+		for (int run = 0; run < classRuns.size(); run++) {
+			Future<List<TestResult>> classRun = getNextCompleted(completionService);
+			List<WorkOrder> workOrders = classRuns.get(classRun);
+			List<TestResult> resultsWithMutants = getResult(classRun);
+			for (int i = 0; i < resultsWithMutants.size(); i++) {
+				WorkOrder workOrder = workOrders.get(i);
+				int testIndex = catalog.getID(workOrder.getTestMethod());
+				TestResult resultWithMutant = resultsWithMutants.get(i);
+				Outcome outcome = resultWithMutant == null ? Outcome.NOT_EXECUTED
+						: getOutcome(originalResults.get(testIndex), resultWithMutant);
+				recordOutcome(workOrder.getMutant().getID(), testIndex, outcome);
+			}
+		}
+	}
+
+	/**
+	 * Returns the indices of the tests covering the mutant with the given ID
+	 * whose Outcomes were not carried forward, in the order in which they
+	 * should be run against the mutant. If the settings ask to stop at the
+	 * first kill, faster tests are run first.
+	 * 
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @param originalResults
+	 *            the results of the tests against the original program
+	 * @return the indices of the tests covering the mutant
+	 */
+	private List<Integer> getCoveringTests(int mutantID, final List<TestResult> originalResults) {
+		List<Integer> coveringTests = new ArrayList<Integer>();
+		BitSet coveringTestIndices = coverageIndex.getCoveringTests(mutantID);
+		for (int i = coveringTestIndices.nextSetBit(0); i >= 0; i = coveringTestIndices.nextSetBit(i + 1)) {
+			if (!isCarriedForward(mutantID, i))
+				coveringTests.add(i);
+		}
+		if (settings.isStopAtFirstKill()) {
+			Collections.sort(coveringTests, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer test1, Integer test2) {
+					return Long.compare(originalResults.get(test1).getRuntime(),
+							originalResults.get(test2).getRuntime());
+				}
+			});
+		}
+		return coveringTests;
+	}
+
+	/**
+	 * Returns the Outcome of a WorkOrder given the result of its test against
+	 * the original program and against its mutant.
+	 * 
+	 * @param originalResult
+	 *            the result of the test against the original program
+	 * @param resultWithMutant
+	 *            the result of the test against the mutant
+	 * @return the Outcome of the WorkOrder
+	 */
+	private static Outcome getOutcome(TestResult originalResult, TestResult resultWithMutant) {
+		if (resultWithMutant.isTimedOut())
+			return Outcome.TIMEOUT;
+		if (resultWithMutant.wasSuccessful() == originalResult.wasSuccessful())
+			return Outcome.ALIVE;
+		return Outcome.KILLED;
+	}
+
+	/**
+	 * Creates the test runners described by this analyzer's settings.
+	 * 
+	 * Throws an AnalyzeException if a worker JVM could not be started.
+	 * 
+	 * @return a queue containing the test runners
+	 * @throws AnalyzeException
+	 */
+	private BlockingQueue<TestRunner> createTestRunners() throws AnalyzeException {
+		BlockingQueue<TestRunner> runners = new LinkedBlockingQueue<TestRunner>();
+		switch (settings.getExecutionMode()) {
+		case IN_PROCESS:
+			runners.add(new InProcessTestRunner(settings.isFailFast()));
+			break;
+		case THREAD_SCOPED:
+			for (TestMethod test : tests) {
+				if (!(test.getTestClass().getClassLoader() instanceof ThreadScopedClassLoader))
+					throw new AnalyzeException("Test class " + test.getTestClass().getName()
+							+ " is not loaded by a ThreadScopedClassLoader");
+			}
+			for (int i = 0; i < settings.getNumberOfWorkers(); i++)
+				runners.add(new ThreadScopedTestRunner(settings.isFailFast()));
+			break;
+		case FORKED:
+			File workingDirectory = new File(mutator.getProjectLocationOfJavaFile());
+			try {
+				for (int i = 0; i < settings.getNumberOfWorkers(); i++)
+					runners.add(new ForkedTestRunner(settings.getJavaExecutable(), settings.getWorkerClasspath(),
+							workingDirectory, mutator.getNumberOfMutants(), settings.isFailFast()));
+			} catch (IOException e) {
+				closeTestRunners(runners);
+				throw new AnalyzeException("Could not start worker JVMs", e);
+			}
+			break;
+		}
+		return runners;
+	}
+
+	/**
+	 * Closes the given test runners.
+	 * 
+	 * @param runners
+	 *            the test runners to close
+	 */
+	private static void closeTestRunners(Collection<TestRunner> runners) {
+		for (TestRunner runner : runners) {
+			try {
+				runner.close();
+			} catch (IOException e) {
+				// Nothing else can be done with a runner that cannot be closed
+			}
+		}
+	}
+
+	/**
+	 * Returns the time budget, in milliseconds, of a test run against a
+	 * mutant, given the result of the test against the original program. The
+	 * budget is the original runtime multiplied by the mutator's timeout
+	 * factor, but never less than the minimum timeout of the settings.
+	 * 
+	 * @param originalResult
+	 *            the result of the test against the original program
+	 * @return the time budget in milliseconds
+	 */
+	private long getTimeout(TestResult originalResult) {
+		long timeout = originalResult.getRuntime() * mutator.getTimeoutFactor();
+		return Math.max(timeout, settings.getMinimumTimeout());
+	}
+
+	/**
+	 * Returns a task which runs the given test against the original program.
+	 * 
+	 * @param runners
+	 *            the available test runners
+	 * @param test
+	 *            the test method to run
+	 * @return a task which runs the test
+	 */
+	private static Callable<TestResult> createOriginalRun(final BlockingQueue<TestRunner> runners,
+			final TestMethod test) {
+		return new Callable<TestResult>() {
+			@Override
+			public TestResult call() throws Exception {
+				return run(runners, test, 0, 0);
+			}
+		};
+	}
+
+	/**
+	 * Returns a task which runs the mutant with the given ID against the given
+	 * covering tests, one after another or, if the settings ask to batch
+	 * tests, in a single batch. The task returns the Outcomes of the mutant
+	 * indexed by test; the Outcomes of tests not covering the mutant are null.
+	 * 
+	 * @param runners
+	 *            the available test runners
+	 * @param mutantID
+	 *            the ID of the mutant
+	 * @param coveringTests
+	 *            the indices of the tests covering the mutant
+	 * @param originalResults
+	 *            the results of the tests against the original program
+	 * @return a task which runs the mutant
+	 */
+	private Callable<Outcome[]> createMutantRun(final BlockingQueue<TestRunner> runners, final int mutantID,
+			final List<Integer> coveringTests, final List<TestResult> originalResults) {
+		return new Callable<Outcome[]>() {
+			@Override
+			public Outcome[] call() throws Exception {
+				Outcome[] outcomes = new Outcome[tests.size()];
+				List<Integer> remainingTests = coveringTests;
+				boolean killed = false;
+				if (settings.isBatchTests()) {
+					List<Integer> batchTests = new ArrayList<Integer>();
+					remainingTests = new ArrayList<Integer>();
+					for (int testIndex : coveringTests) {
+						// A fail-fast batch ends at its first failure, which only kills the
+						// mutant if the test passes against the original program
+						if (settings.isFailFast() && !originalResults.get(testIndex).wasSuccessful())
+							remainingTests.add(testIndex);
+						else
+							batchTests.add(testIndex);
+					}
+					List<TestMethod> batch = new ArrayList<TestMethod>();
+					List<Long> timeouts = new ArrayList<Long>();
+					for (int testIndex : batchTests) {
+						batch.add(tests.get(testIndex));
+						timeouts.add(getTimeout(originalResults.get(testIndex)));
+					}
+					List<TestResult> resultsWithMutant = batch.isEmpty() ? Collections.<TestResult>emptyList()
+							: run(runners, batch, mutantID, timeouts);
+					for (int i = 0; i < resultsWithMutant.size(); i++) {
+						int testIndex = batchTests.get(i);
+						TestResult resultWithMutant = resultsWithMutant.get(i);
+						outcomes[testIndex] = resultWithMutant == null ? Outcome.NOT_EXECUTED
+								: getOutcome(originalResults.get(testIndex), resultWithMutant);
+						if (outcomes[testIndex] == Outcome.KILLED || outcomes[testIndex] == Outcome.TIMEOUT)
+							killed = settings.isFailFast();
+					}
+				}
+				for (int testIndex : remainingTests) {
+					if (killed) {
+						outcomes[testIndex] = Outcome.NOT_EXECUTED;
+						continue;
+					}
+					TestResult originalResult = originalResults.get(testIndex);
+					TestResult resultWithMutant = run(runners, tests.get(testIndex), mutantID,
+							getTimeout(originalResult));
+					outcomes[testIndex] = getOutcome(originalResult, resultWithMutant);
+					killed = settings.isStopAtFirstKill() && outcomes[testIndex] != Outcome.ALIVE;
+				}
+				return outcomes;
+			}
+		};
+	}
+
+	/**
+	 * Runs the given test against the mutant with the given ID using the next
+	 * available test runner.
+	 * 
+	 * @param runners
+	 *            the available test runners
+	 * @param test
+	 *            the test method to run
+	 * @param mutantID
+	 *            the ID of the mutant, or 0 for the original program
+	 * @param timeout
+	 *            the time budget in milliseconds, or 0 for no time budget
+	 * @return the result of the test
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static TestResult run(BlockingQueue<TestRunner> runners, TestMethod test, int mutantID, long timeout)
+			throws IOException, InterruptedException {
+		TestRunner runner = runners.take();
+		try {
+			return runner.run(test, mutantID, timeout);
+		} finally {
+			runners.put(runner);
+		}
+	}
+
+	/**
+	 * Runs the given batch of tests against the mutant with the given ID
+	 * using the next available test runner.
+	 * 
+	 * @param runners
+	 *            the available test runners
+	 * @param tests
+	 *            the test methods to run
+	 * @param mutantID
+	 *            the ID of the mutant
+	 * @param timeouts
+	 *            the time budget of each test in milliseconds
+	 * @return the results of the tests, null for tests which were not run
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static List<TestResult> run(BlockingQueue<TestRunner> runners, List<TestMethod> tests, int mutantID,
+			List<Long> timeouts) throws IOException, InterruptedException {
+		TestRunner runner = runners.take();
+		try {
+			return runner.run(tests, mutantID, timeouts);
+		} finally {
+			runners.put(runner);
+		}
+	}
+
+	/**
+	 * Waits for the next run submitted to the given CompletionService to
+	 * finish and returns it.
+	 * 
+	 * Throws an AnalyzeException if interrupted, or if the AnalysisMonitor
+	 * canceled the analysis while waiting.
+	 * 
+	 * @param completionService
+	 *            the CompletionService the runs were submitted to
+	 * @return the next finished run
+	 * @throws AnalyzeException
+	 */
+	private <T> Future<T> getNextCompleted(CompletionService<T> completionService) throws AnalyzeException {
+		try {
+			while (true) {
+				if (monitor.isCanceled())
+					throw new AnalyzeException("Analysis was canceled");
+				Future<T> run = completionService.poll(CANCELATION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				if (run != null)
+					return run;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnalyzeException("Interrupted while trying to run tests", e);
+		}
+	}
+
+	/**
+	 * Waits for the given run to finish and returns its result.
+	 * 
+	 * Throws an AnalyzeException if the run failed or was interrupted, or if
+	 * the AnalysisMonitor canceled the analysis while waiting.
+	 * 
+	 * @param run
+	 *            a run submitted to the executor
+	 * @return the result of the run
+	 * @throws AnalyzeException
+	 */
+	private <T> T getResult(Future<T> run) throws AnalyzeException {
+		try {
+			while (true) {
+				if (monitor.isCanceled())
+					throw new AnalyzeException("Analysis was canceled");
+				try {
+					return run.get(CANCELATION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// Check again whether the analysis was canceled
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new AnalyzeException("Error occurred while trying to run tests", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnalyzeException("Interrupted while trying to run tests", e);
 		}
-		return killMap;
 	}
 
 	/*
@@ -125,7 +894,7 @@ public class MajorMutantAnalyzer implements MutantAnalyzer {
 	 */
 	@Override
 	public double getMutationScore() {
-		return (double) this.killedMutantIDs.size() / this.mutator.getNumberOfMutants() * 100;
+		return (double) this.killedMutantIDs.cardinality() / this.mutator.getNumberOfMutants() * 100;
 	}
 
 	/*
@@ -135,7 +904,7 @@ public class MajorMutantAnalyzer implements MutantAnalyzer {
 	 */
 	@Override
 	public int getNumberOfCoveredMutants() {
-		return this.coveredMutantIDs.size();
+		return this.coverageIndex.getNumberOfCoveredMutants();
 	}
 
 	/*
@@ -145,7 +914,7 @@ public class MajorMutantAnalyzer implements MutantAnalyzer {
 	 */
 	@Override
 	public int getNumberOfKilledMutants() {
-		return this.killedMutantIDs.size();
+		return this.killedMutantIDs.cardinality();
 	}
 
 	/*
@@ -168,25 +937,95 @@ public class MajorMutantAnalyzer implements MutantAnalyzer {
 		if (killMap.size() == 0)
 			return false;
 		String fileName = mutator.getProjectLocationOfJavaFile() + FILE_SEPARATOR + "killMatrix.csv";
-		char csvSeparator = ',';
-		int numMutants = mutator.getNumberOfMutants();
+		KillMatrixWriter writer = new KillMatrixWriter(killMap, mutator.getNumberOfMutants());
+		if (settings.isCompressKillMatrix()) {
+			fileName += ".gz";
+			writer.setCompressed(true);
+		}
 		try {
-			PrintWriter writer = new PrintWriter(fileName);
-			writer.print("Mutant#");
-			for (TestMethod test : tests)
-				writer.print(csvSeparator + test.getName());
-			writer.println();
-			for (int i = 0; i < numMutants; i++) {
-				int mutantID = i + 1;
-				writer.print(mutantID);
-				Mutant mutant = new Mutant(mutantID);
-				for (TestMethod test : tests)
-					writer.print("" + csvSeparator + killMap.get(mutant, test));
-				writer.println();
-			}
-			writer.close();
+			writer.write(Paths.get(fileName));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Exports the results of mutation testing to a binary kill matrix file
+	 * named killMatrix.bin, located in the project of the mutated java file
+	 * (see KillMatrixFile). Besides the KillMap, the file stores which mutants
+	 * are covered and how long each test ran against the original program, so
+	 * that the results can be read back with KillMatrixFile#read(Path,
+	 * Mutator, ClassLoader) without running any test.
+	 * 
+	 * Returns true if the file was written. Returns false if mutation testing
+	 * was not performed or if the file could not be written.
+	 * 
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean exportKillMatrix() {
+		if (killMap.size() == 0)
+			return false;
+		String fileName = mutator.getProjectLocationOfJavaFile() + FILE_SEPARATOR + KillMatrixFile.FILE_NAME;
+		try {
+			KillMatrixFile.write(Paths.get(fileName), killMap, mutator.getNumberOfMutants(),
+					coverageIndex.getCoveredMutants(), runtimes);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Sets the AnalysisHistory of the previous analysis of the same code, from
+	 * which the Outcomes of WorkOrders whose inputs did not change are carried
+	 * forward if the settings ask for an incremental analysis (see
+	 * AnalysisSettings#setIncremental(boolean)). Null means that there is no
+	 * previous analysis.
+	 * 
+	 * An IllegalStateException is thrown if mutation testing was already
+	 * performed.
+	 * 
+	 * @param previousHistory
+	 *            the AnalysisHistory of the previous analysis, or null
+	 */
+	public void setAnalysisHistory(AnalysisHistory previousHistory) {
+		if (analyzed)
+			throw new IllegalStateException("Mutation testing was already performed");
+		this.previousHistory = previousHistory;
+	}
+
+	/**
+	 * Returns the AnalysisHistory of this analysis, from which the next
+	 * analysis may carry forward Outcomes. Returns null if mutation testing
+	 * has not finished, if the analysis is not incremental, or if its inputs
+	 * could not be fingerprinted.
+	 * 
+	 * @return the AnalysisHistory of this analysis, or null
+	 */
+	public AnalysisHistory getAnalysisHistory() {
+		return history;
+	}
+
+	/**
+	 * Exports the AnalysisHistory of this analysis (see getAnalysisHistory())
+	 * to a file named analysisHistory.bin, located in the project of the
+	 * mutated java file, from which the next analysis may carry forward
+	 * Outcomes (see AnalysisHistory#read(java.nio.file.Path)).
+	 * 
+	 * Returns true if the file was written. Returns false if there is no
+	 * AnalysisHistory or if the file could not be written.
+	 * 
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean exportAnalysisHistory() {
+		if (history == null)
+			return false;
+		String fileName = mutator.getProjectLocationOfJavaFile() + FILE_SEPARATOR + AnalysisHistory.FILE_NAME;
+		try {
+			history.write(Paths.get(fileName));
 			return true;
-		} catch (FileNotFoundException e) {
+		} catch (IOException e) {
 			return false;
 		}
 	}
@@ -199,13 +1038,9 @@ public class MajorMutantAnalyzer implements MutantAnalyzer {
 	@Override
 	public boolean isMutantKilled(Mutant mutant) {
 		int mutantID = mutant.getID();
-		if (killMap.size() == 0 || mutantID < 1 || mutantID > killMap.getMutants().size())
-			return false;
-		for (TestMethod test : tests) {
-			if (killMap.get(mutant, test) == Outcome.KILLED)
-				return true;
-		}
-		return false;
+		if (statusIndex != null)
+			return statusIndex.contains(mutantID) && statusIndex.getStatus(mutantID) == MutantStatus.KILLED;
+		return killedMutantIDs.contains(mutantID);
 	}
 
 	/*
@@ -216,7 +1051,57 @@ public class MajorMutantAnalyzer implements MutantAnalyzer {
 	@Override
 	public boolean isMutantCovered(Mutant mutant) {
 		int mutantID = mutant.getID();
-		return coveredMutantIDs.contains(mutantID);
+		return coverageIndex.isCovered(mutantID);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.MutantAnalyzer#getMutantStatusIndex()
+	 */
+	@Override
+	public MutantStatusIndex getMutantStatusIndex() {
+		return statusIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.MutantAnalyzer#addAnalysisListener(analyzer.AnalysisListener)
+	 */
+	@Override
+	public void addAnalysisListener(AnalysisListener listener) {
+		listeners.add(listener);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.MutantAnalyzer#removeAnalysisListener(analyzer.AnalysisListener)
+	 */
+	@Override
+	public void removeAnalysisListener(AnalysisListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the TestCatalog assigning the test IDs of the tests, which are
+	 * their indices in getTests().
+	 * 
+	 * @return the TestCatalog of this analyzer
+	 */
+	public TestCatalog getTestCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * Returns the CoverageIndex storing which tests cover which mutants. Tests
+	 * are identified by their index in getTests().
+	 * 
+	 * @return the CoverageIndex of this analyzer
+	 */
+	public CoverageIndex getCoverageIndex() {
+		return coverageIndex;
 	}
 
 }
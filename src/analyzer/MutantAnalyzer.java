@@ -95,4 +95,30 @@ public interface MutantAnalyzer {
 	 */
 	boolean isMutantCovered(Mutant mutant);
 
-}
\ No newline at end of file
+	/**
+	 * Returns a MutantStatusIndex of the final status of each mutant and of
+	 * the number of tests killing it, or null if the analysis has not
+	 * finished yet.
+	 * 
+	 * @return the MutantStatusIndex of this MutantAnalyzer, or null if the
+	 *         analysis has not finished
+	 */
+	MutantStatusIndex getMutantStatusIndex();
+
+	/**
+	 * Registers the given listener, which is notified of the results of this
+	 * MutantAnalyzer while its analysis runs (see AnalysisListener).
+	 * 
+	 * @param listener
+	 *            the listener to register
+	 */
+	void addAnalysisListener(AnalysisListener listener);
+
+	/**
+	 * Unregisters the given listener.
+	 * 
+	 * @param listener
+	 *            the listener to unregister
+	 */
+	void removeAnalysisListener(AnalysisListener listener);
+}
@@ -0,0 +1,15 @@
+package analyzer;
+
+/**
+ * A MutantStatus is the final status of a mutant once all tests covering it
+ * have been run against it. A mutant killed by some test is KILLED (this
+ * includes tests exceeding their time budget). A mutant covered by some test
+ * but killed by none is ALIVE. A mutant covered by no test is UNCOVERED, and
+ * therefore also alive.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public enum MutantStatus {
+	KILLED, ALIVE, UNCOVERED
+}
@@ -0,0 +1,133 @@
+package analyzer;
+
+/**
+ * A MutantStatusIndex stores the final status of each mutant of an analysis,
+ * and the number of tests killing each mutant, so that both can be looked up
+ * in constant time, e.g. when sorting a large number of mutants by status.
+ * A MutantStatusIndex is immutable and is built once the analysis has
+ * finished.
+ *
+ * @author Raymond Tang
+ *
+ */
+public final class MutantStatusIndex {
+	// Possible statuses, indexed by ordinal
+	private static final MutantStatus[] STATUSES = MutantStatus.values();
+	// Ordinal of the status of each mutant, indexed by mutant ID - 1
+	private final byte[] statuses;
+	// Number of tests killing each mutant, indexed by mutant ID - 1
+	private final int[] killCounts;
+	// Number of mutants having each status, indexed by ordinal
+	private final int[] statusCounts;
+
+	/**
+	 * Creates a MutantStatusIndex of the given statuses and kill counts.
+	 * Both arrays are indexed by mutant ID - 1 and are copied.
+	 *
+	 * Throws an IllegalArgumentException if the arrays are null or differ in
+	 * length, if a status is null, or if the kill counts do not match the
+	 * statuses (only killed mutants are killed by some test).
+	 *
+	 * @param statuses
+	 *            the status of each mutant
+	 * @param killCounts
+	 *            the number of tests killing each mutant
+	 */
+	public MutantStatusIndex(MutantStatus[] statuses, int[] killCounts) {
+		if (statuses == null || killCounts == null)
+			throw new IllegalArgumentException("Statuses and kill counts cannot be null");
+		if (statuses.length != killCounts.length)
+			throw new IllegalArgumentException("There must be one kill count per status");
+		this.statuses = new byte[statuses.length];
+		this.killCounts = killCounts.clone();
+		this.statusCounts = new int[STATUSES.length];
+		for (int i = 0; i < statuses.length; i++) {
+			if (statuses[i] == null)
+				throw new IllegalArgumentException("Status of mutant " + (i + 1) + " cannot be null");
+			if ((statuses[i] == MutantStatus.KILLED) != (killCounts[i] > 0))
+				throw new IllegalArgumentException("Kill count of mutant " + (i + 1) + " does not match its status");
+			this.statuses[i] = (byte) statuses[i].ordinal();
+			statusCounts[statuses[i].ordinal()]++;
+		}
+	}
+
+	/**
+	 * Returns the number of mutants in this MutantStatusIndex.
+	 *
+	 * @return the number of mutants in this MutantStatusIndex
+	 */
+	public int getNumberOfMutants() {
+		return statuses.length;
+	}
+
+	/**
+	 * Returns the number of mutants having the given status.
+	 *
+	 * @param status
+	 *            a status
+	 * @return the number of mutants having the given status
+	 */
+	public int getNumberOfMutants(MutantStatus status) {
+		return statusCounts[status.ordinal()];
+	}
+
+	/**
+	 * Returns the status of the mutant with the given ID.
+	 *
+	 * Throws an IllegalArgumentException if there is no mutant with the given
+	 * ID in this MutantStatusIndex.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return the status of the mutant
+	 */
+	public MutantStatus getStatus(int mutantID) {
+		return STATUSES[statuses[checkMutantID(mutantID) - 1]];
+	}
+
+	/**
+	 * Returns the status of the given mutant.
+	 *
+	 * Throws an IllegalArgumentException if the mutant is not in this
+	 * MutantStatusIndex.
+	 *
+	 * @param mutant
+	 *            a mutant
+	 * @return the status of the mutant
+	 */
+	public MutantStatus getStatus(Mutant mutant) {
+		return getStatus(mutant.getID());
+	}
+
+	/**
+	 * Returns the number of tests killing the given mutant.
+	 *
+	 * Throws an IllegalArgumentException if the mutant is not in this
+	 * MutantStatusIndex.
+	 *
+	 * @param mutant
+	 *            a mutant
+	 * @return the number of tests killing the mutant
+	 */
+	public int getKillCount(Mutant mutant) {
+		return killCounts[checkMutantID(mutant.getID()) - 1];
+	}
+
+	/**
+	 * Returns true if the mutant with the given ID is in this
+	 * MutantStatusIndex. Returns false otherwise.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return true if the mutant is in this MutantStatusIndex, false otherwise
+	 */
+	public boolean contains(int mutantID) {
+		return mutantID >= 1 && mutantID <= statuses.length;
+	}
+
+	private int checkMutantID(int mutantID) {
+		if (!contains(mutantID))
+			throw new IllegalArgumentException("There is no mutant with ID " + mutantID);
+		return mutantID;
+	}
+}
@@ -0,0 +1,243 @@
+package analyzer;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import major.mutation.Config;
+import util.CompressedBitmap;
+
+/**
+ * A MutantWorker is the main class of a forked worker JVM. It reads requests
+ * from standard input, one per line, runs the requested test against the
+ * requested mutant with an InProcessTestRunner, and writes the result to
+ * standard output, one per line. Since every worker JVM has its own
+ * major.mutation.Config, several workers can run tests at the same time.
+ * 
+ * A request has the form
+ * "mutantID TAB timeout TAB testClassName TAB testMethodName". A result has
+ * the form "PASS|FAIL|TIMEOUT TAB runtime TAB coveredMutantIDs", where the
+ * covered mutant IDs are separated by commas, and runs of consecutive IDs are
+ * written as "first-last". A request for a batch of tests
+ * repeats "TAB timeout TAB testClassName TAB testMethodName" for each test and
+ * is answered by one result per test, in the same order; the result of a test
+ * which was not run is "SKIPPED". A request for WorkOrders sharing class
+ * fixtures has the form "WORKORDERS" followed by
+ * "TAB mutantID TAB timeout TAB testClassName TAB testMethodName" for each
+ * WorkOrder and is answered by one result per WorkOrder. The total number of
+ * mutants and whether or not runs against mutants are stopped at their first
+ * test failure are passed as command line arguments.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class MutantWorker {
+	// Sent once the worker is ready to accept requests
+	static final String READY = "READY";
+	// Separates the fields of requests and results
+	private static final char FIELD_SEPARATOR = '\t';
+	// Separates the covered mutant IDs of a result
+	private static final char ID_SEPARATOR = ',';
+	// Separates the first and the last ID of a run of consecutive covered mutant IDs
+	private static final char RANGE_SEPARATOR = '-';
+	// Result of a test of a batch which was not run
+	private static final String SKIPPED = "SKIPPED";
+	// Starts a request for WorkOrders
+	private static final String WORK_ORDERS = "WORKORDERS";
+
+	public static void main(String... args) throws IOException {
+		// Tests may print to standard output, which is reserved for results
+		PrintStream results = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+		System.setOut(System.err);
+		if (args.length > 0)
+			Config.setNumberOfMutants(Integer.parseInt(args[0]));
+		BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		Map<String, Class<?>> testClasses = new HashMap<String, Class<?>>();
+		InProcessTestRunner runner = new InProcessTestRunner(args.length > 1 && Boolean.parseBoolean(args[1]));
+		results.println(READY);
+		String request;
+		while ((request = requests.readLine()) != null) {
+			String[] fields = request.split(String.valueOf(FIELD_SEPARATOR));
+			if (fields[0].equals(WORK_ORDERS)) {
+				List<WorkOrder> workOrders = new ArrayList<WorkOrder>();
+				List<Long> timeouts = new ArrayList<Long>();
+				for (int i = 1; i + 3 < fields.length; i += 4) {
+					Class<?> testClass = getTestClass(testClasses, fields[i + 2]);
+					workOrders.add(new WorkOrder(new Mutant(Integer.parseInt(fields[i])),
+							new TestMethod(testClass, fields[i + 3])));
+					timeouts.add(Long.parseLong(fields[i + 1]));
+				}
+				for (TestResult result : runner.runWorkOrders(workOrders, timeouts))
+					results.println(encodeResult(result));
+				continue;
+			}
+			int mutantID = Integer.parseInt(fields[0]);
+			List<TestMethod> tests = new ArrayList<TestMethod>();
+			List<Long> timeouts = new ArrayList<Long>();
+			for (int i = 1; i + 2 < fields.length; i += 3) {
+				timeouts.add(Long.parseLong(fields[i]));
+				tests.add(new TestMethod(getTestClass(testClasses, fields[i + 1]), fields[i + 2]));
+			}
+			if (tests.size() == 1) {
+				results.println(encodeResult(runner.run(tests.get(0), mutantID, timeouts.get(0))));
+			} else {
+				for (TestResult result : runner.run(tests, mutantID, timeouts))
+					results.println(result == null ? SKIPPED : encodeResult(result));
+			}
+		}
+		runner.close();
+	}
+
+	/**
+	 * Returns the test class with the given name, loading it if it is not in
+	 * the given cache of loaded test classes.
+	 * 
+	 * Throws an IOException if the test class could not be loaded.
+	 * 
+	 * @param testClasses
+	 *            the loaded test classes by name
+	 * @param name
+	 *            the name of a test class
+	 * @return the test class
+	 * @throws IOException
+	 */
+	private static Class<?> getTestClass(Map<String, Class<?>> testClasses, String name) throws IOException {
+		Class<?> testClass = testClasses.get(name);
+		if (testClass == null) {
+			try {
+				testClass = Class.forName(name, true, MutantWorker.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Could not locate/load/link test class named " + name, e);
+			}
+			testClasses.put(name, testClass);
+		}
+		return testClass;
+	}
+
+	/**
+	 * Returns the request line asking a worker to run the given test against
+	 * the mutant with the given ID within the given time budget.
+	 * 
+	 * @param test
+	 *            the test method to run
+	 * @param mutantID
+	 *            the ID of the mutant, or 0 for the original program
+	 * @param timeout
+	 *            the time budget in milliseconds, or 0 for no time budget
+	 * @return the request line
+	 */
+	static String encodeRequest(TestMethod test, int mutantID, long timeout) {
+		return String.valueOf(mutantID) + FIELD_SEPARATOR + timeout + FIELD_SEPARATOR + test.getTestClass().getName()
+				+ FIELD_SEPARATOR + test.getName();
+	}
+
+	/**
+	 * Returns the request line asking a worker to run the given batch of tests
+	 * against the mutant with the given ID, each within its time budget.
+	 * 
+	 * @param tests
+	 *            the test methods to run
+	 * @param mutantID
+	 *            the ID of the mutant
+	 * @param timeouts
+	 *            the time budget of each test in milliseconds, or 0 for no
+	 *            time budget
+	 * @return the request line
+	 */
+	static String encodeRequest(List<TestMethod> tests, int mutantID, List<Long> timeouts) {
+		StringBuilder request = new StringBuilder().append(mutantID);
+		for (int i = 0; i < tests.size(); i++) {
+			request.append(FIELD_SEPARATOR).append(timeouts.get(i)).append(FIELD_SEPARATOR)
+					.append(tests.get(i).getTestClass().getName()).append(FIELD_SEPARATOR)
+					.append(tests.get(i).getName());
+		}
+		return request.toString();
+	}
+
+	/**
+	 * Returns the request line asking a worker to run the given WorkOrders,
+	 * each within its time budget.
+	 * 
+	 * @param workOrders
+	 *            the WorkOrders to run
+	 * @param timeouts
+	 *            the time budget of each WorkOrder in milliseconds, or 0 for
+	 *            no time budget
+	 * @return the request line
+	 */
+	static String encodeRequest(List<WorkOrder> workOrders, List<Long> timeouts) {
+		StringBuilder request = new StringBuilder(WORK_ORDERS);
+		for (int i = 0; i < workOrders.size(); i++) {
+			TestMethod test = workOrders.get(i).getTestMethod();
+			request.append(FIELD_SEPARATOR).append(workOrders.get(i).getMutant().getID()).append(FIELD_SEPARATOR)
+					.append(timeouts.get(i)).append(FIELD_SEPARATOR).append(test.getTestClass().getName())
+					.append(FIELD_SEPARATOR).append(test.getName());
+		}
+		return request.toString();
+	}
+
+	/**
+	 * Returns the result line describing the given result.
+	 * 
+	 * @param result
+	 *            a test result
+	 * @return the result line
+	 */
+	static String encodeResult(TestResult result) {
+		StringJoiner coveredMutants = new StringJoiner(String.valueOf(ID_SEPARATOR));
+		CompressedBitmap coveredMutantIDs = result.getCoveredMutants();
+		for (int first = coveredMutantIDs.nextSetBit(0); first >= 0;) {
+			int last = first;
+			int next;
+			while ((next = coveredMutantIDs.nextSetBit(last + 1)) == last + 1)
+				last = next;
+			coveredMutants.add(first == last ? String.valueOf(first) : first + "" + RANGE_SEPARATOR + last);
+			first = next;
+		}
+		String status = result.isTimedOut() ? "TIMEOUT" : result.wasSuccessful() ? "PASS" : "FAIL";
+		return status + FIELD_SEPARATOR + result.getRuntime() + FIELD_SEPARATOR + coveredMutants.toString();
+	}
+
+	/**
+	 * Returns the test result described by the given result line, or null if
+	 * the line reports a test of a batch which was not run.
+	 * 
+	 * An IllegalArgumentException is thrown if the given line is not a result
+	 * line.
+	 * 
+	 * @param line
+	 *            a result line
+	 * @return the test result described by the line
+	 */
+	static TestResult decodeResult(String line) {
+		if (line.equals(SKIPPED))
+			return null;
+		String[] fields = line.split(String.valueOf(FIELD_SEPARATOR), 3);
+		if (fields.length != 3)
+			throw new IllegalArgumentException("Malformed worker result: " + line);
+		boolean passed = fields[0].equals("PASS");
+		boolean timedOut = fields[0].equals("TIMEOUT");
+		long runtime = Long.parseLong(fields[1]);
+		CompressedBitmap coveredMutants = new CompressedBitmap();
+		if (!fields[2].isEmpty()) {
+			for (String ids : fields[2].split(String.valueOf(ID_SEPARATOR))) {
+				int separator = ids.indexOf(RANGE_SEPARATOR);
+				if (separator < 0)
+					coveredMutants.add(Integer.parseInt(ids));
+				else
+					coveredMutants.add(Integer.parseInt(ids.substring(0, separator)),
+							Integer.parseInt(ids.substring(separator + 1)) + 1);
+			}
+		}
+		return new TestResult(passed, timedOut, runtime, coveredMutants);
+	}
+}
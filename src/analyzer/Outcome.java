@@ -2,7 +2,11 @@ package analyzer;
 
 /**
  * An Outcome refers to whether a mutant is killed or not by a test. If a test kills a mutant,
- * the Outcome is KILLED. If a test does not kill a mutant, the Outcome is ALIVE. 
+ * the Outcome is KILLED. If a test does not kill a mutant, the Outcome is ALIVE. If a test
+ * exceeds its time budget when run against a mutant (e.g. because the mutant turned a loop
+ * into an infinite loop), the Outcome is TIMEOUT. A mutant with a TIMEOUT Outcome is
+ * considered killed. If a test covers a mutant but was not run against it because
+ * another test had already killed the mutant, the Outcome is NOT_EXECUTED.
  * 
  * Adapted from Rene Just's fault-localization-data
  * Link: https://bitbucket.org/rjust/fault-localization-data/src/1b5b3f155c41ef4d7c11ca422a94e5ff90b558e7/killmap/src/main/killmap/runners/communication/Outcome.java?at=icse17&fileviewer=file-view-default
@@ -12,5 +16,5 @@ package analyzer;
  *
  */
 public enum Outcome {
-	ALIVE, KILLED
+	ALIVE, KILLED, TIMEOUT, NOT_EXECUTED
 }
@@ -0,0 +1,210 @@
+package analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.List;
+
+import mutator.Mutator;
+
+/**
+ * A StoredMutantAnalyzer holds the results of a mutation analysis which was
+ * performed earlier and read back from a kill matrix file (see
+ * KillMatrixFile#read(java.nio.file.Path, Mutator, ClassLoader)). No test is
+ * run; the results are available as soon as the StoredMutantAnalyzer is
+ * created, and AnalysisListeners are never notified.
+ *
+ * @author Raymond Tang
+ *
+ */
+public class StoredMutantAnalyzer implements MutantAnalyzer {
+	// System-dependent file separator
+	private static final char FILE_SEPARATOR = File.separatorChar;
+	// A mutator containing information about mutants
+	private final Mutator mutator;
+	// Mapping of mutants and tests to outcomes
+	private final KillMap killMap;
+	// Final status and kill count of each mutant
+	private final MutantStatusIndex statusIndex;
+	// Runtime of each test against the original program, indexed by test ID, or null if unknown
+	private final long[] runtimes;
+
+	/**
+	 * Creates a StoredMutantAnalyzer of the mutants of the given mutator with
+	 * the given KillMap. If the IDs of the covered mutants are null, exactly
+	 * the killed mutants are considered covered.
+	 */
+	StoredMutantAnalyzer(Mutator mutator, KillMap killMap, BitSet coveredMutantIDs, long[] runtimes) {
+		this.mutator = mutator;
+		this.killMap = killMap;
+		this.runtimes = runtimes;
+		int numMutants = mutator.getNumberOfMutants();
+		MutantStatus[] statuses = new MutantStatus[numMutants];
+		int[] killCounts = new int[numMutants];
+		for (int mutantID = 1; mutantID <= numMutants; mutantID++) {
+			killCounts[mutantID - 1] = KillMap.countKills(killMap.getRow(mutantID));
+			if (killCounts[mutantID - 1] > 0)
+				statuses[mutantID - 1] = MutantStatus.KILLED;
+			else if (coveredMutantIDs != null && coveredMutantIDs.get(mutantID))
+				statuses[mutantID - 1] = MutantStatus.ALIVE;
+			else
+				statuses[mutantID - 1] = MutantStatus.UNCOVERED;
+		}
+		this.statusIndex = new MutantStatusIndex(statuses, killCounts);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getMutator()
+	 */
+	@Override
+	public Mutator getMutator() {
+		return mutator;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getTests()
+	 */
+	@Override
+	public List<TestMethod> getTests() {
+		return killMap.getTestCatalog().getTests();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getKillMap()
+	 */
+	@Override
+	public KillMap getKillMap() {
+		return killMap;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getMutationScore()
+	 */
+	@Override
+	public double getMutationScore() {
+		return (double) getNumberOfKilledMutants() / getNumberOfMutants() * 100;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getNumberOfCoveredMutants()
+	 */
+	@Override
+	public int getNumberOfCoveredMutants() {
+		return getNumberOfMutants() - statusIndex.getNumberOfMutants(MutantStatus.UNCOVERED);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getNumberOfKilledMutants()
+	 */
+	@Override
+	public int getNumberOfKilledMutants() {
+		return statusIndex.getNumberOfMutants(MutantStatus.KILLED);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getNumberOfMutants()
+	 */
+	@Override
+	public int getNumberOfMutants() {
+		return statusIndex.getNumberOfMutants();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#exportKillMatrixCSV()
+	 */
+	@Override
+	public boolean exportKillMatrixCSV() {
+		if (killMap.size() == 0)
+			return false;
+		String fileName = mutator.getProjectLocationOfJavaFile() + FILE_SEPARATOR + "killMatrix.csv";
+		try {
+			new KillMatrixWriter(killMap, getNumberOfMutants()).write(Paths.get(fileName));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#isMutantKilled(int)
+	 */
+	@Override
+	public boolean isMutantKilled(Mutant mutant) {
+		int mutantID = mutant.getID();
+		return statusIndex.contains(mutantID) && statusIndex.getStatus(mutantID) == MutantStatus.KILLED;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#isMutantCovered(int)
+	 */
+	@Override
+	public boolean isMutantCovered(Mutant mutant) {
+		int mutantID = mutant.getID();
+		return statusIndex.contains(mutantID) && statusIndex.getStatus(mutantID) != MutantStatus.UNCOVERED;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see analyzer.MutantAnalyzer#getMutantStatusIndex()
+	 */
+	@Override
+	public MutantStatusIndex getMutantStatusIndex() {
+		return statusIndex;
+	}
+
+	/**
+	 * Does nothing, since a StoredMutantAnalyzer does not perform any
+	 * analysis.
+	 */
+	@Override
+	public void addAnalysisListener(AnalysisListener listener) {
+	}
+
+	/**
+	 * Does nothing, since a StoredMutantAnalyzer does not perform any
+	 * analysis.
+	 */
+	@Override
+	public void removeAnalysisListener(AnalysisListener listener) {
+	}
+
+	/**
+	 * Returns how long the test with the given test ID ran against the
+	 * original program, in milliseconds, or -1 if the kill matrix file did not
+	 * store the runtimes of the tests.
+	 *
+	 * Throws an IllegalArgumentException if there is no test with the given
+	 * test ID.
+	 *
+	 * @param testID
+	 *            the test ID of a test
+	 * @return the runtime of the test in milliseconds, or -1 if unknown
+	 */
+	public long getRuntime(int testID) {
+		if (testID < 0 || testID >= killMap.getNumberOfTests())
+			throw new IllegalArgumentException("There is no test with ID " + testID);
+		return runtimes == null ? -1 : runtimes[testID];
+	}
+}
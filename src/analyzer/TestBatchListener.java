@@ -0,0 +1,242 @@
+package analyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * A TestBatchListener attributes the events of a single JUnit run of several
+ * test methods back to each TestMethod of the batch, so that a TestRunner can
+ * report one TestResult per test method.
+ * 
+ * A failure of a test class as a whole, e.g. in a @BeforeClass or @AfterClass
+ * method, is attributed to every test method of that class in the batch, as
+ * it would have made each of them fail if run on its own. Ignored tests and
+ * tests with failed assumptions pass, as in org.junit.runner.Result. A test
+ * method which was never started has no result.
+ * 
+ * @author Raymond Tang
+ *
+ */
+class TestBatchListener extends RunListener {
+	// Separates the class name and the method name of a key
+	private static final char SEPARATOR = '#';
+	// The test methods of the batch
+	private final List<TestMethod> tests;
+	// Index of each test method in the batch, by key
+	private final Map<String, Integer> indices;
+	// When each test method started, as given by System.nanoTime(), or 0 if it did not start
+	private final long[] startTimes;
+	// When each test method finished, as given by System.nanoTime(), or 0 if it did not finish
+	private final long[] finishTimes;
+	// Whether or not each test method failed
+	private final boolean[] failed;
+	// Whether or not each test method was stopped because it exceeded its time budget
+	private final boolean[] timedOut;
+	// Index of the test method currently running, or -1 if none is
+	private volatile int current;
+	// When the batch started or a test method last finished, as given by System.nanoTime()
+	private volatile long lastFinishTime;
+	// Whether or not the batch was stopped, after which events are ignored
+	private boolean stopped;
+
+	public TestBatchListener(List<TestMethod> tests) {
+		this.tests = new ArrayList<TestMethod>(tests);
+		this.indices = new HashMap<String, Integer>();
+		for (int i = 0; i < tests.size(); i++)
+			indices.put(getKey(tests.get(i)), i);
+		this.startTimes = new long[tests.size()];
+		this.finishTimes = new long[tests.size()];
+		this.failed = new boolean[tests.size()];
+		this.timedOut = new boolean[tests.size()];
+		this.current = -1;
+		this.lastFinishTime = System.nanoTime();
+		this.stopped = false;
+	}
+
+	/**
+	 * Returns a Filter which only lets the test methods of this batch run.
+	 * 
+	 * @return a Filter matching the test methods of this batch
+	 */
+	public Filter getFilter() {
+		return new Filter() {
+			@Override
+			public boolean shouldRun(Description description) {
+				if (description.isTest())
+					return indices.containsKey(getKey(description));
+				for (Description child : description.getChildren()) {
+					if (shouldRun(child))
+						return true;
+				}
+				return false;
+			}
+
+			@Override
+			public String describe() {
+				return "Test methods " + tests;
+			}
+		};
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.junit.runner.notification.RunListener#testStarted(org.junit.runner.Description)
+	 */
+	@Override
+	public synchronized void testStarted(Description description) {
+		Integer index = indices.get(getKey(description));
+		if (stopped || index == null)
+			return;
+		startTimes[index] = System.nanoTime();
+		current = index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.junit.runner.notification.RunListener#testFinished(org.junit.runner.Description)
+	 */
+	@Override
+	public synchronized void testFinished(Description description) {
+		Integer index = indices.get(getKey(description));
+		if (stopped || index == null)
+			return;
+		finishTimes[index] = System.nanoTime();
+		lastFinishTime = finishTimes[index];
+		current = -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.junit.runner.notification.RunListener#testFailure(org.junit.runner.notification.Failure)
+	 */
+	@Override
+	public synchronized void testFailure(Failure failure) {
+		Description description = failure.getDescription();
+		Integer index = indices.get(getKey(description));
+		if (stopped)
+			return;
+		if (index != null) {
+			failed[index] = true;
+			return;
+		}
+		// The test class as a whole failed
+		for (int i = 0; i < tests.size(); i++) {
+			if (tests.get(i).getTestClass().getName().equals(description.getClassName()))
+				failed[i] = true;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.junit.runner.notification.RunListener#testIgnored(org.junit.runner.Description)
+	 */
+	@Override
+	public synchronized void testIgnored(Description description) {
+		Integer index = indices.get(getKey(description));
+		if (stopped || index == null)
+			return;
+		long now = System.nanoTime();
+		startTimes[index] = now;
+		finishTimes[index] = now;
+		lastFinishTime = now;
+	}
+
+	/**
+	 * Returns the index of the test method currently running, or -1 if none
+	 * is.
+	 * 
+	 * @return the index of the test method currently running
+	 */
+	public int getCurrentTest() {
+		return current;
+	}
+
+	/**
+	 * Returns when the test method with the given index started, as given by
+	 * System.nanoTime(), or 0 if it did not start.
+	 * 
+	 * @param index
+	 *            the index of a test method in the batch
+	 * @return when the test method started
+	 */
+	public synchronized long getStartTime(int index) {
+		return startTimes[index];
+	}
+
+	/**
+	 * Returns when the batch started or a test method last finished, as given
+	 * by System.nanoTime().
+	 * 
+	 * @return when a test method last finished
+	 */
+	public long getLastFinishTime() {
+		return lastFinishTime;
+	}
+
+	/**
+	 * Records that the test method with the given index was stopped because it
+	 * exceeded its time budget. If the index is -1, i.e. the batch exceeded
+	 * its time budget outside of any test method, every test method of the
+	 * batch which has not finished yet is considered timed out. Events
+	 * received afterwards are ignored.
+	 * 
+	 * @param index
+	 *            the index of a test method in the batch, or -1
+	 */
+	public synchronized void timedOut(int index) {
+		for (int i = 0; i < tests.size(); i++) {
+			if (i == index || (index == -1 && finishTimes[i] == 0))
+				timedOut[i] = true;
+		}
+		stopped = true;
+	}
+
+	/**
+	 * Returns the results of the test methods of the batch, in the order in
+	 * which they were given. The result of a test method is null if it was
+	 * never started and did not fail as part of its test class.
+	 * 
+	 * @return the results of the test methods of the batch
+	 */
+	public synchronized List<TestResult> getResults() {
+		List<TestResult> results = new ArrayList<TestResult>();
+		for (int i = 0; i < tests.size(); i++) {
+			if (startTimes[i] == 0 && !failed[i] && !timedOut[i]) {
+				results.add(null);
+				continue;
+			}
+			long runtime = 0;
+			if (startTimes[i] != 0)
+				runtime = TimeUnit.NANOSECONDS
+						.toMillis((finishTimes[i] == 0 ? System.nanoTime() : finishTimes[i]) - startTimes[i]);
+			results.add(new TestResult(!failed[i], timedOut[i], runtime, null));
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the key identifying the given test method.
+	 */
+	private static String getKey(TestMethod test) {
+		return test.getTestClass().getName() + SEPARATOR + test.getName();
+	}
+
+	/**
+	 * Returns the key identifying the test method with the given description.
+	 */
+	private static String getKey(Description description) {
+		return description.getClassName() + SEPARATOR + description.getMethodName();
+	}
+}
@@ -0,0 +1,131 @@
+package analyzer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A TestCatalog assigns each test method a test ID, i.e. a dense int starting
+ * at 0, in the order in which tests are added. Once added, a test keeps its
+ * test ID, so that tests can be stored in arrays, BitSets and KillMaps, and
+ * be looked up by test ID or by their key (see TestMethod#getKey()) without
+ * building any strings.
+ *
+ * @author Raymond Tang
+ *
+ */
+public class TestCatalog {
+	// Tests, indexed by test ID
+	private final List<TestMethod> tests;
+	// Test ID of each test, by key
+	private final Map<String, Integer> testIDs;
+
+	/**
+	 * Creates an empty TestCatalog.
+	 */
+	public TestCatalog() {
+		this.tests = new ArrayList<TestMethod>();
+		this.testIDs = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Creates a TestCatalog of the given tests, whose test IDs follow their
+	 * iteration order. Duplicate tests are added once.
+	 *
+	 * @param tests
+	 *            the tests
+	 */
+	public TestCatalog(Collection<TestMethod> tests) {
+		this.tests = new ArrayList<TestMethod>(tests.size());
+		this.testIDs = new HashMap<String, Integer>(tests.size() * 2);
+		for (TestMethod test : tests)
+			add(test);
+	}
+
+	/**
+	 * Adds the given test to this TestCatalog, unless it already contains the
+	 * test, and returns the test ID of the test.
+	 *
+	 * Throws an IllegalArgumentException if the test is null.
+	 *
+	 * @param test
+	 *            a test method
+	 * @return the test ID of the test
+	 */
+	public int add(TestMethod test) {
+		if (test == null)
+			throw new IllegalArgumentException("Test cannot be null");
+		Integer testID = testIDs.get(test.getKey());
+		if (testID != null)
+			return testID;
+		tests.add(test);
+		testIDs.put(test.getKey(), tests.size() - 1);
+		return tests.size() - 1;
+	}
+
+	/**
+	 * Returns the test ID of the given test, or -1 if this TestCatalog does
+	 * not contain the test.
+	 *
+	 * @param test
+	 *            a test method
+	 * @return the test ID of the test, or -1 if this TestCatalog does not
+	 *         contain the test
+	 */
+	public int getID(TestMethod test) {
+		return getID(test.getKey());
+	}
+
+	/**
+	 * Returns the test ID of the test with the given key, i.e. the name of its
+	 * test class and its name separated by '#', or -1 if this TestCatalog
+	 * does not contain such a test.
+	 *
+	 * @param key
+	 *            the key of a test method
+	 * @return the test ID of the test, or -1 if this TestCatalog does not
+	 *         contain the test
+	 */
+	public int getID(String key) {
+		Integer testID = testIDs.get(key);
+		return testID == null ? -1 : testID;
+	}
+
+	/**
+	 * Returns the test with the given test ID.
+	 *
+	 * Throws an IllegalArgumentException if there is no test with the given
+	 * test ID.
+	 *
+	 * @param testID
+	 *            a test ID
+	 * @return the test with the given test ID
+	 */
+	public TestMethod getTest(int testID) {
+		if (testID < 0 || testID >= tests.size())
+			throw new IllegalArgumentException("There is no test with ID " + testID);
+		return tests.get(testID);
+	}
+
+	/**
+	 * Returns the tests of this TestCatalog, indexed by test ID. The list
+	 * cannot be modified.
+	 *
+	 * @return the tests of this TestCatalog
+	 */
+	public List<TestMethod> getTests() {
+		return Collections.unmodifiableList(tests);
+	}
+
+	/**
+	 * Returns the number of tests in this TestCatalog.
+	 *
+	 * @return the number of tests in this TestCatalog
+	 */
+	public int size() {
+		return tests.size();
+	}
+}
@@ -16,12 +16,18 @@ public class TestMethod implements Comparable<TestMethod> {
   private final Class<?> testClass;
   // The name of this test method
   private final String name;
+  // The name of the test class and the name of this test method, which identifies this test method
+  private final String key;
+  // The hash code of this test method
+  private final int hash;
 
   private static final char SEPARATOR = '#';
 
   public TestMethod(Class<?> testClass, String name) {
     this.testClass = testClass;
     this.name = name;
+    this.key = testClass.getCanonicalName() + SEPARATOR + name;
+    this.hash = 37 * 19 * key.hashCode();
   }
 
   /**
@@ -42,9 +48,19 @@ public class TestMethod implements Comparable<TestMethod> {
     return this.name;
   }
 
+  /**
+   * Returns the name of the test class of this test method and the name of
+   * this test method, separated by '#'. The key is computed once.
+   * 
+   * @return the key of this test method
+   */
+  public String getKey() {
+    return this.key;
+  }
+
   @Override
   public int hashCode() {
-    return 37 * 19 * this.toString().hashCode();
+    return this.hash;
   }
 
   /**
@@ -57,9 +73,12 @@ public class TestMethod implements Comparable<TestMethod> {
    */
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
     if (obj instanceof TestMethod) {
       TestMethod other = (TestMethod) obj;
-      return this.toString().equals(other.toString());
+      return this.hash == other.hash && this.key.equals(other.key);
     }
     return false;
   }
@@ -76,7 +95,7 @@ public class TestMethod implements Comparable<TestMethod> {
   public int compareTo(TestMethod obj) {
     if (obj instanceof TestMethod) {
       TestMethod other = (TestMethod) obj;
-      return this.toString().compareTo(other.toString());
+      return this.key.compareTo(other.key);
     }
     return -1;
   }
@@ -88,6 +107,6 @@ public class TestMethod implements Comparable<TestMethod> {
    */
   @Override
   public String toString() {
-    return this.testClass.getCanonicalName() + SEPARATOR + this.name;
+    return this.key;
   }
 }
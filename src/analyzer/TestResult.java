@@ -0,0 +1,80 @@
+package analyzer;
+
+import java.util.List;
+
+import util.CompressedBitmap;
+
+/**
+ * A TestResult stores the result of running a single test method against the
+ * original program or against a mutant.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class TestResult {
+	// Whether or not the test passed
+	private final boolean passed;
+	// Whether or not the test was stopped because it exceeded its time budget
+	private final boolean timedOut;
+	// How long the test ran, in milliseconds
+	private final long runtime;
+	// IDs of the mutants covered by the test. Only gathered for the original program
+	private final CompressedBitmap coveredMutants;
+
+	public TestResult(boolean passed, boolean timedOut, long runtime, CompressedBitmap coveredMutants) {
+		this.passed = passed && !timedOut;
+		this.timedOut = timedOut;
+		this.runtime = runtime;
+		this.coveredMutants = coveredMutants == null ? new CompressedBitmap() : coveredMutants;
+	}
+
+	/**
+	 * Returns true if the test passed. Returns false otherwise, including when
+	 * the test timed out.
+	 * 
+	 * @return true if the test passed, false otherwise
+	 */
+	public boolean wasSuccessful() {
+		return passed;
+	}
+
+	/**
+	 * Returns true if the test was stopped because it exceeded its time
+	 * budget. Returns false otherwise.
+	 * 
+	 * @return true if the test timed out, false otherwise
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * Returns how long the test ran, in milliseconds.
+	 * 
+	 * @return the runtime of the test in milliseconds
+	 */
+	public long getRuntime() {
+		return runtime;
+	}
+
+	/**
+	 * Returns the IDs of the mutants covered by the test. The list is empty
+	 * unless the test was run against the original program.
+	 * 
+	 * @return the IDs of the mutants covered by the test
+	 */
+	public List<Integer> getCoveredMutantIDs() {
+		return coveredMutants.toList();
+	}
+
+	/**
+	 * Returns the IDs of the mutants covered by the test. The bitmap is empty
+	 * unless the test was run against the original program, and must not be
+	 * modified.
+	 * 
+	 * @return the IDs of the mutants covered by the test
+	 */
+	public CompressedBitmap getCoveredMutants() {
+		return coveredMutants;
+	}
+}
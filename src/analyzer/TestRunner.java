@@ -0,0 +1,90 @@
+package analyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A TestRunner runs a single test method, or a batch of test methods, against
+ * either the original program or a mutant. It can also run a schedule of
+ * WorkOrders, setting up each test class only once. A MutantAnalyzer may use
+ * several TestRunners at once to run WorkOrders in parallel.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public interface TestRunner extends Closeable {
+
+	/**
+	 * Runs the given test against the mutant with the given ID and returns the
+	 * result. If the given mutant ID is 0, the test is run against the
+	 * original program and coverage information is gathered.
+	 * 
+	 * If the test runs longer than the given timeout, it is stopped and a
+	 * timed out result is returned.
+	 * 
+	 * Throws an IOException if this runner is no longer able to run tests.
+	 * 
+	 * @param test
+	 *            the test method to run
+	 * @param mutantID
+	 *            the ID of the mutant to run the test against, or 0 for the
+	 *            original program
+	 * @param timeout
+	 *            the time budget of the test in milliseconds, or 0 for no
+	 *            time budget
+	 * @return the result of running the test
+	 * @throws IOException
+	 */
+	TestResult run(TestMethod test, int mutantID, long timeout) throws IOException;
+
+	/**
+	 * Runs the given tests against the mutant with the given ID in a single
+	 * JUnit run and returns their results, in the order in which the tests
+	 * are given. Unlike running the tests one by one, test classes are set up
+	 * once for the whole batch. No coverage information is gathered.
+	 * 
+	 * If a test runs longer than its timeout, it is stopped, it has a timed
+	 * out result, and the remaining tests of the batch are not run. The result
+	 * of a test which was not run is null.
+	 * 
+	 * Throws an IOException if this runner is no longer able to run tests.
+	 * 
+	 * @param tests
+	 *            the test methods to run
+	 * @param mutantID
+	 *            the ID of the mutant to run the tests against
+	 * @param timeouts
+	 *            the time budget of each test in milliseconds, or 0 for no
+	 *            time budget
+	 * @return the results of the tests
+	 * @throws IOException
+	 */
+	List<TestResult> run(List<TestMethod> tests, int mutantID, List<Long> timeouts) throws IOException;
+
+	/**
+	 * Runs the given WorkOrders, each against its own mutant, and returns
+	 * their results in the order in which the WorkOrders are given. The
+	 * WorkOrders of a test class are run in order under a single class
+	 * fixture, i.e. its @BeforeClass and @AfterClass methods are run once,
+	 * against the original program, and the mutant is switched between test
+	 * methods. WorkOrders of test classes which do not support this are run
+	 * one by one. No coverage information is gathered.
+	 * 
+	 * If a WorkOrder runs longer than its timeout, it is stopped, it has a
+	 * timed out result, and the class fixture is set up again for the
+	 * remaining WorkOrders.
+	 * 
+	 * Throws an IOException if this runner is no longer able to run tests.
+	 * 
+	 * @param workOrders
+	 *            the WorkOrders to run
+	 * @param timeouts
+	 *            the time budget of each WorkOrder in milliseconds, or 0 for
+	 *            no time budget
+	 * @return the results of the WorkOrders
+	 * @throws IOException
+	 */
+	List<TestResult> runWorkOrders(List<WorkOrder> workOrders, List<Long> timeouts) throws IOException;
+
+}
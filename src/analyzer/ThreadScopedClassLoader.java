@@ -0,0 +1,97 @@
+package analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A ThreadScopedClassLoader loads classes from the given URLs and rewrites
+ * mutated classes so that they read the mutant identifier of the current
+ * thread instead of the global major.mutation.Config.__M_NO (see
+ * ConfigAccessRewriter). Tests loaded by this classloader can be run by a
+ * ThreadScopedTestRunner. Class files which were compiled in memory (see
+ * Mutator#getCompiledClasses()) are defined from the given bytes instead of
+ * being read from the URLs.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class ThreadScopedClassLoader extends URLClassLoader {
+
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+
+	// Class files compiled in memory, by binary name
+	private final Map<String, byte[]> classFiles;
+
+	public ThreadScopedClassLoader(URL[] urls, ClassLoader parent) {
+		this(urls, parent, Collections.<String, byte[]>emptyMap());
+	}
+
+	/**
+	 * Creates a ThreadScopedClassLoader which loads classes from the given
+	 * URLs, except for the given class files, which are indexed by binary
+	 * name.
+	 * 
+	 * @param urls
+	 *            the URLs from which classes are loaded
+	 * @param parent
+	 *            the parent classloader
+	 * @param classFiles
+	 *            class files compiled in memory, by binary name
+	 */
+	public ThreadScopedClassLoader(URL[] urls, ClassLoader parent, Map<String, byte[]> classFiles) {
+		super(urls, parent);
+		this.classFiles = classFiles;
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+		byte[] classFile = classFiles.get(name);
+		try {
+			if (classFile == null) {
+				URL url = findResource(name.replace('.', '/') + ".class");
+				if (url == null)
+					throw new ClassNotFoundException(name);
+				classFile = readClassFile(url);
+			}
+			classFile = ConfigAccessRewriter.rewrite(classFile);
+		} catch (IOException | IllegalArgumentException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+		int packageEnd = name.lastIndexOf('.');
+		if (packageEnd > 0) {
+			String packageName = name.substring(0, packageEnd);
+			if (getPackage(packageName) == null) {
+				try {
+					definePackage(packageName, null, null, null, null, null, null, null);
+				} catch (IllegalArgumentException e) {
+					// Another thread defined the package first
+				}
+			}
+		}
+		return defineClass(name, classFile, 0, classFile.length);
+	}
+
+	/**
+	 * Returns the contents of the class file at the given URL.
+	 */
+	private static byte[] readClassFile(URL url) throws IOException {
+		InputStream in = url.openStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
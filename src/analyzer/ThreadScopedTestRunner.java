@@ -0,0 +1,57 @@
+package analyzer;
+
+import major.mutation.Config;
+import util.CompressedBitmap;
+
+/**
+ * A ThreadScopedTestRunner runs tests in the current JVM, selecting the mutant
+ * for the calling thread only (see major.mutation.Config#setThreadMutantNo(int)).
+ * Several ThreadScopedTestRunners may therefore run tests at the same time,
+ * provided that the mutated classes are loaded by a ThreadScopedClassLoader
+ * and that major.mutation.Config is in thread-scoped mode.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class ThreadScopedTestRunner extends InProcessTestRunner {
+
+	public ThreadScopedTestRunner() {
+		this(false);
+	}
+
+	public ThreadScopedTestRunner(boolean failFast) {
+		super(failFast);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.InProcessTestRunner#selectMutant(int)
+	 */
+	@Override
+	protected void selectMutant(int mutantID) {
+		Config.setThreadMutantNo(mutantID);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.InProcessTestRunner#deselectMutant(int)
+	 */
+	@Override
+	protected CompressedBitmap deselectMutant(int mutantID) {
+		CompressedBitmap coveredMutants = Config.getThreadCoverage();
+		Config.clearThreadMutantNo();
+		return coveredMutants;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		Config.clearThreadMutantNo();
+	}
+}
@@ -74,7 +74,12 @@ public class WorkOrder implements Comparable<WorkOrder> {
 		WorkOrder otherWorkOrder = (WorkOrder)obj;
 		Mutant otherMutant = otherWorkOrder.getMutant();
 		TestMethod otherTestMethod = otherWorkOrder.getTestMethod();
-		return (this.mutant == otherMutant && this.testMethod == otherTestMethod);
+		return this.mutant.getID() == otherMutant.getID() && this.testMethod.equals(otherTestMethod);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * mutant.getID() + testMethod.hashCode();
 	}
 	
 }
@@ -1,6 +1,13 @@
 package eclipseFacade;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
@@ -9,11 +16,15 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
@@ -26,6 +37,9 @@ import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.ide.IDE;
 import org.eclipse.ui.texteditor.ITextEditor;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkUtil;
 
 /**
  * This class provides functionality such as retrieving selection locations and highlighting lines
@@ -38,6 +52,8 @@ public class EclipseFacade {
 	
 	// File separator. Differs depending on operating system
 	private static final char FILE_SEPARATOR = File.separatorChar;
+	// ID of JDT's Package Explorer view
+	private static final String PACKAGE_EXPLORER_ID = "org.eclipse.jdt.ui.PackageExplorer";
 	
 	/**
 	 * If a project is selected, this method returns the project's location as a string. 
@@ -135,6 +151,79 @@ public class EclipseFacade {
 	    throw new JavaFileNotSelectedException("Selection is not a java file");
 	}
 	
+	/**
+	 * Returns the java files in the selection as objects of type ICompilationUnit, in order of
+	 * selection. A selected package contributes its java files, and a selected source folder or
+	 * java project contributes the java files of all of its packages. If the selection contains no
+	 * java file, a JavaFileNotSelectedException is thrown. 
+	 * 
+	 * @return the selected java files
+	 * @throws JavaFileNotSelectedException
+	 */
+	public static List<ICompilationUnit> getSelectedJavaFiles() throws JavaFileNotSelectedException {
+		IWorkbenchPage page = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
+		if(page != null) {
+			ISelection selection = page.getSelection();
+			if(selection != null && selection instanceof IStructuredSelection) {
+				Set<ICompilationUnit> javaFiles = new LinkedHashSet<ICompilationUnit>();
+				try {
+					for(Object element : ((IStructuredSelection) selection).toList()) addJavaFiles(element, javaFiles);
+				} catch (JavaModelException e) {
+					throw new JavaFileNotSelectedException("Java files of the selection could not be listed");
+				}
+				if(!javaFiles.isEmpty()) return new ArrayList<ICompilationUnit>(javaFiles);
+			}
+		}
+		throw new JavaFileNotSelectedException("Selection does not contain a java file");
+	}
+	
+	/**
+	 * Adds the java files contained in the given selected element to the given set.
+	 */
+	private static void addJavaFiles(Object element, Set<ICompilationUnit> javaFiles) throws JavaModelException {
+		if(element instanceof ICompilationUnit) {
+			javaFiles.add((ICompilationUnit) element);
+		} else if(element instanceof IPackageFragment) {
+			IPackageFragment packageFragment = (IPackageFragment) element;
+			if(packageFragment.getKind() == IPackageFragmentRoot.K_SOURCE) javaFiles.addAll(Arrays.asList(packageFragment.getCompilationUnits()));
+		} else if(element instanceof IPackageFragmentRoot) {
+			IPackageFragmentRoot root = (IPackageFragmentRoot) element;
+			if(root.getKind() != IPackageFragmentRoot.K_SOURCE) return;
+			for(IJavaElement child : root.getChildren()) addJavaFiles(child, javaFiles);
+		} else if(element instanceof IJavaProject) {
+			for(IPackageFragmentRoot root : ((IJavaProject) element).getPackageFragmentRoots()) addJavaFiles(root, javaFiles);
+		} else if(element instanceof IProject) {
+			// Projects are not java elements in views other than the package explorer
+			IJavaProject javaProject = JavaCore.create((IProject) element);
+			if(javaProject != null && javaProject.exists()) addJavaFiles(javaProject, javaFiles);
+		}
+	}
+	
+	/**
+	 * Returns the java project of the first element selected in the Package Explorer, even if
+	 * another part, e.g. a view of this plugin, is active. If no element of a java project is
+	 * selected there, a SelectionNotAdaptableException is thrown. 
+	 * 
+	 * @return the java project selected in the Package Explorer
+	 * @throws SelectionNotAdaptableException
+	 */
+	public static IJavaProject getSelectedJavaProject() throws SelectionNotAdaptableException {
+		IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+		if(window != null) {
+			ISelection selection = window.getSelectionService().getSelection(PACKAGE_EXPLORER_ID);
+			if(selection instanceof IStructuredSelection) {
+				Object firstElement = ((IStructuredSelection) selection).getFirstElement();
+				if(firstElement instanceof IJavaElement) return ((IJavaElement) firstElement).getJavaProject();
+				if(firstElement instanceof IAdaptable) {
+					IProject project = ((IAdaptable) firstElement).getAdapter(IProject.class);
+					IJavaProject javaProject = project != null ? JavaCore.create(project) : null;
+					if(javaProject != null && javaProject.exists()) return javaProject;
+				}
+			}
+		}
+		throw new SelectionNotAdaptableException("No java project is selected in the Package Explorer");
+	}
+	
 	/**
 	 * Returns the location of the given java project's bin directory as a pathname string.
 	 * 
@@ -163,6 +252,44 @@ public class EclipseFacade {
 		return projectLocation + FILE_SEPARATOR + "src" + FILE_SEPARATOR + "test";
 	}
 	
+	/**
+	 * Returns the classpath entries of the bundle which contains the given class
+	 * as files, so that the class can be loaded outside of Eclipse, e.g. in a
+	 * forked JVM.
+	 * 
+	 * Throws an IOException if the class is not loaded by a bundle or if the
+	 * bundle's files could not be located.
+	 * 
+	 * @param clazz a class loaded by some bundle
+	 * @return the classpath entries of the bundle which contains the given class
+	 * @throws IOException
+	 */
+	public static List<File> getBundleClasspath(Class<?> clazz) throws IOException {
+		Bundle bundle = FrameworkUtil.getBundle(clazz);
+		if(bundle == null) throw new IOException(clazz.getName() + " is not loaded by a bundle");
+		// FileLocator.getBundleFileLocation, which replaces getBundleFile, is missing
+		// from the Eclipse releases this plugin supports (see MANIFEST.MF)
+		@SuppressWarnings("deprecation")
+		File bundleFile = FileLocator.getBundleFile(bundle);
+		String bundleClasspath = bundle.getHeaders().get(Constants.BUNDLE_CLASSPATH);
+		if(bundleClasspath == null) bundleClasspath = ".";
+		List<File> classpath = new ArrayList<File>();
+		for(String entry : bundleClasspath.split(",")) {
+			// Drop attributes and directives such as ";optional"
+			entry = entry.split(";")[0].trim();
+			if(entry.equals(".")) {
+				classpath.add(bundleFile);
+				// Bundles launched from a workspace keep their classes in an output folder
+				File binDirectory = new File(bundleFile, "bin");
+				if(binDirectory.isDirectory()) classpath.add(binDirectory);
+			} else {
+				URL entryURL = bundle.getEntry(entry);
+				if(entryURL != null) classpath.add(new File(FileLocator.toFileURL(entryURL).getPath()));
+			}
+		}
+		return classpath;
+	}
+	
 	/**
 	 * Highlights the line corresponding to the given line number in the given file. 
 	 * Returns true for success. Returns false otherwise. 
@@ -3,8 +3,8 @@ package major.mutation;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+
+import util.CompressedBitmap;
 
 /**
  * A simple driver class for Major --
@@ -23,17 +23,47 @@ public class Config {
      */
     public static int __M_NO = -1;
 
+    // Number of mutants, which determines the size of coverage sets
+    private static volatile int numMutants = 0;
+
     // Set to store IDs of covered mutants
-    public static Set<Integer> covSet = new TreeSet<Integer>();
-    
+    private static volatile CoverageSet covSet = new CoverageSet(numMutants);
+
+    /*
+     * Thread-scoped mutant selection:
+     *
+     * Mutated classes read __M_NO directly, so only one mutant can be active
+     * per classloader. Classes loaded by analyzer.ThreadScopedClassLoader call
+     * getMutantNo() instead. In thread-scoped mode, every thread that selected
+     * a mutant (and every thread it starts) sees its own mutant identifier and
+     * records its own coverage information.
+     */
+    private static volatile boolean threadScoped = false;
+
+    // The mutant selected by the current thread, if any
+    private static final InheritableThreadLocal<Selection> selection = new InheritableThreadLocal<Selection>();
+
+    // A mutant identifier together with the coverage recorded under it
+    private static class Selection {
+        private final int mutantNo;
+        private final CoverageSet covSet = new CoverageSet(numMutants);
+
+        private Selection(int mutantNo) {
+            this.mutantNo = mutantNo;
+        }
+    }
+
     // The coverage method is called if and only if the
     // mutant identifier is set to 0!
+    // Neither locks nor allocates (see CoverageSet)
     public static boolean COVERED(int from, int to) {
-    	synchronized (covSet) {
-            for (int i=from; i<=to; ++i) {
-                covSet.add(i);
-            }
+        CoverageSet set = covSet;
+        if (threadScoped) {
+            Selection current = selection.get();
+            if (current != null)
+                set = current.covSet;
         }
+        set.addRange(from, to);
         // Always return false as required by
         // Conditional Mutation!
         return false;
@@ -42,17 +72,75 @@ public class Config {
     /*
      * Additional methods for the mutation analysis back-end
      */
+    // Size the coverage sets for the given number of mutants,
+    // discarding the coverage information
+    public static void setNumberOfMutants(int mutants) {
+        numMutants = mutants;
+        covSet = new CoverageSet(mutants);
+    }
+
     // Reset the coverage information
     public static void reset() {
-        synchronized (covSet) {
-            covSet.clear();
-        }
+        covSet.clear();
     }
 
     // Get list of all covered mutants
     public static List<Integer> getCoverageList() {
-        synchronized (covSet) {
-            return new ArrayList<Integer>(covSet);
+        return covSet.toList();
+    }
+
+    // Get all covered mutants as a compressed bitmap
+    public static CompressedBitmap getCoverage() {
+        return covSet.toBitmap();
+    }
+
+    // Get the mutant identifier of the current thread -- called by
+    // classes loaded by analyzer.ThreadScopedClassLoader instead of
+    // reading __M_NO
+    public static int getMutantNo() {
+        if (threadScoped) {
+            Selection current = selection.get();
+            if (current != null)
+                return current.mutantNo;
         }
+        return __M_NO;
+    }
+
+    // Enable or disable thread-scoped mutant selection
+    public static void setThreadScoped(boolean enabled) {
+        threadScoped = enabled;
+    }
+
+    // Is thread-scoped mutant selection enabled?
+    public static boolean isThreadScoped() {
+        return threadScoped;
+    }
+
+    // Select a mutant for the current thread and the threads it starts,
+    // discarding any coverage information recorded by the thread so far
+    public static void setThreadMutantNo(int mutantNo) {
+        selection.set(new Selection(mutantNo));
+    }
+
+    // Remove the current thread's mutant selection
+    public static void clearThreadMutantNo() {
+        selection.remove();
+    }
+
+    // Get list of all mutants covered under the current thread's selection
+    public static List<Integer> getThreadCoverageList() {
+        Selection current = selection.get();
+        if (current == null)
+            return new ArrayList<Integer>();
+        return current.covSet.toList();
+    }
+
+    // Get all mutants covered under the current thread's selection as a
+    // compressed bitmap
+    public static CompressedBitmap getThreadCoverage() {
+        Selection current = selection.get();
+        if (current == null)
+            return new CompressedBitmap();
+        return current.covSet.toBitmap();
     }
 }
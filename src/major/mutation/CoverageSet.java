@@ -0,0 +1,115 @@
+// This package name is required by Major!
+package major.mutation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import util.CompressedBitmap;
+
+/**
+ * A fixed-size, lock-free set of covered mutant IDs, backed by an atomic
+ * bitset. Recording IDs that are already covered only reads memory, and
+ * recording new IDs uses compare-and-set instead of locking; no Integer is
+ * ever boxed. IDs beyond the capacity (which should not happen if the
+ * capacity is the number of mutants) are kept in a synchronized overflow set.
+ * A capacity of 0 means that the number of mutants is unknown.
+ */
+final class CoverageSet {
+
+    // Capacity used when the number of mutants is unknown
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    // The bits, 64 per word
+    private final AtomicLongArray words;
+
+    // Number of IDs stored in the bitset
+    private final int capacity;
+
+    // IDs that do not fit into the bitset
+    private final Set<Integer> overflow = new TreeSet<Integer>();
+
+    CoverageSet(int capacity) {
+        // IDs start at 1, so bit 0 is never used
+        this.capacity = (capacity > 0 ? capacity : DEFAULT_CAPACITY) + 1;
+        this.words = new AtomicLongArray(((this.capacity - 1) >>> 6) + 1);
+    }
+
+    // Add all IDs from 'from' to 'to' (inclusive); IDs below 1 are ignored
+    void addRange(int from, int to) {
+        if (from < 1)
+            from = 1;
+        int last = Math.min(to, capacity - 1);
+        if (from <= last) {
+            int firstWord = from >>> 6;
+            int lastWord = last >>> 6;
+            for (int w = firstWord; w <= lastWord; ++w) {
+                long mask = -1L;
+                if (w == firstWord)
+                    mask &= -1L << (from & 63);
+                if (w == lastWord)
+                    mask &= -1L >>> (63 - (last & 63));
+                long old = words.get(w);
+                // Fast path: the bits are already set
+                while ((old & mask) != mask) {
+                    if (words.compareAndSet(w, old, old | mask))
+                        break;
+                    old = words.get(w);
+                }
+            }
+        }
+        if (to >= capacity) {
+            synchronized (overflow) {
+                for (int i = Math.max(from, capacity); i <= to; ++i) {
+                    overflow.add(i);
+                }
+            }
+        }
+    }
+
+    // Remove all IDs
+    void clear() {
+        for (int w = 0; w < words.length(); ++w) {
+            if (words.get(w) != 0L)
+                words.set(w, 0L);
+        }
+        synchronized (overflow) {
+            overflow.clear();
+        }
+    }
+
+    // Get list of all IDs in ascending order
+    List<Integer> toList() {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int w = 0; w < words.length(); ++w) {
+            long word = words.get(w);
+            while (word != 0L) {
+                list.add((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        synchronized (overflow) {
+            list.addAll(overflow);
+        }
+        return list;
+    }
+
+    // Get all IDs as a compressed bitmap
+    CompressedBitmap toBitmap() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int w = 0; w < words.length(); ++w) {
+            long word = words.get(w);
+            while (word != 0L) {
+                bitmap.add((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        synchronized (overflow) {
+            for (int id : overflow)
+                bitmap.add(id);
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,156 @@
+package mutator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.ForwardingJavaFileObject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import com.sun.tools.javac.api.JavacTool;
+
+/**
+ * A CompileService compiles java files with Major's javac. The compiler and
+ * its file manager are created once and reused by every compilation of this
+ * process, so that javac stays loaded and warmed up and the file manager keeps
+ * the indexes of the archives it has opened. The compiled classes are written
+ * to the given output directory, as the worker JVMs load them from there, and
+ * are also returned in memory, so that they can be defined without being read
+ * back from disk.
+ *
+ * Major writes mutants.log to the working directory of the process and reads
+ * its options from system properties, both of which are shared by all
+ * compilations. Compilations are therefore run one at a time, and each one
+ * moves mutants.log to its own destination before the next one starts.
+ *
+ * @author Raymond Tang
+ *
+ */
+public final class CompileService {
+	// File separator. Differs depending on operating system
+	private static final char FILE_SEPARATOR = File.separatorChar;
+	// The CompileService shared by all mutators of this process
+	private static final CompileService INSTANCE = new CompileService();
+	// Major's javac
+	private final JavaCompiler compiler;
+	// File manager of the compiler, or null if no compilation has been run yet
+	private StandardJavaFileManager fileManager;
+
+	private CompileService() {
+		this.compiler = JavacTool.create();
+	}
+
+	/**
+	 * Returns the CompileService shared by all mutators of this process.
+	 *
+	 * @return the CompileService of this process
+	 */
+	public static CompileService getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Compiles the given java files with the given javac options, writing the
+	 * compiled classes to the given output directory and moving the
+	 * mutants.log written by Major to the given file. The given system
+	 * properties are set while the files are compiled. Returns the compiled
+	 * classes, by binary name.
+	 *
+	 * All java files are compiled in a single javac invocation, so Major
+	 * numbers the mutants of all of them consecutively, in one mutants.log.
+	 *
+	 * Throws a MutateException if the java files could not be compiled.
+	 * Throws an IOException if mutants.log could not be moved.
+	 *
+	 * @param javaFiles
+	 *            the java files to compile
+	 * @param outputDirectory
+	 *            the directory to which compiled classes are written
+	 * @param options
+	 *            javac options, e.g. -XMutator:ALL
+	 * @param properties
+	 *            system properties read by Major
+	 * @param mutantsLog
+	 *            the file to which mutants.log is moved
+	 * @return the compiled classes, by binary name
+	 * @throws IOException
+	 * @throws MutateException
+	 */
+	public synchronized Map<String, byte[]> compile(List<File> javaFiles, File outputDirectory, List<String> options,
+			Map<String, String> properties, File mutantsLog) throws IOException, MutateException {
+		if (fileManager == null)
+			fileManager = compiler.getStandardFileManager(null, null, null);
+		outputDirectory.mkdirs();
+		fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(outputDirectory));
+		for (Map.Entry<String, String> property : properties.entrySet())
+			System.setProperty(property.getKey(), property.getValue());
+		final Map<String, byte[]> classes = new HashMap<String, byte[]>();
+		ForwardingJavaFileManager<StandardJavaFileManager> capturingFileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(
+				fileManager) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, final String className, Kind kind,
+					FileObject sibling) throws IOException {
+				JavaFileObject file = super.getJavaFileForOutput(location, className, kind, sibling);
+				if (kind != Kind.CLASS)
+					return file;
+				return new ForwardingJavaFileObject<JavaFileObject>(file) {
+					@Override
+					public OutputStream openOutputStream() throws IOException {
+						final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+						return new FilterOutputStream(super.openOutputStream()) {
+							@Override
+							public void write(int b) throws IOException {
+								out.write(b);
+								bytes.write(b);
+							}
+
+							@Override
+							public void write(byte[] b, int off, int len) throws IOException {
+								out.write(b, off, len);
+								bytes.write(b, off, len);
+							}
+
+							@Override
+							public void close() throws IOException {
+								super.close();
+								synchronized (classes) {
+									classes.put(className, bytes.toByteArray());
+								}
+							}
+						};
+					}
+				};
+			}
+		};
+		Boolean compiled = compiler.getTask(null, capturingFileManager, null, options, null,
+				fileManager.getJavaFileObjectsFromFiles(javaFiles)).call();
+		// Major creates mutants.log in the working directory
+		Path source = Paths.get(System.getProperty("user.dir") + FILE_SEPARATOR + "mutants.log");
+		if (!Boolean.TRUE.equals(compiled)) {
+			Files.deleteIfExists(source);
+			throw new MutateException("Error occurred while trying to compile mutants");
+		}
+		try {
+			Files.move(source, mutantsLog.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new IOException("Error occurred while trying to export mutants.log", e);
+		}
+		return Collections.unmodifiableMap(classes);
+	}
+}
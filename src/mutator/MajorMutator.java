@@ -3,25 +3,23 @@ package mutator;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
-import javax.tools.JavaCompiler;
-
 import org.apache.commons.io.FilenameUtils;
 
-import com.sun.tools.javac.api.JavacTool;
-
 import analyzer.Mutant;
 
 /**
- * Given a java file, this Mutator provides functionality such as compiling and
- * generating mutants using Major.
+ * Given one or more java files, this Mutator provides functionality such as
+ * compiling and generating mutants using Major. Several java files, e.g. all
+ * the java files of a package or project, are compiled in a single javac
+ * invocation, so their mutants are numbered consecutively in one mutants.log
+ * and can be analyzed together.
  * 
  * @author Raymond Tang
  *
@@ -30,10 +28,14 @@ import analyzer.Mutant;
 public class MajorMutator implements Mutator {
 	// File separator. Differs depending on operating system
 	private static final char FILE_SEPARATOR = File.separatorChar;
-	// The given java file
-	private File javaFile;
-	// The fully qualified name of the java file
-	private String fullyQualifiedName;
+	// Number of mutated source files kept if mutants are not exported
+	private static final int MUTATED_SOURCE_CACHE_SIZE = 16;
+	// The given java files
+	private List<File> javaFiles;
+	// The fully qualified name of each java file, in order of javaFiles
+	private List<String> fullyQualifiedNames;
+	// Index in javaFiles of each java file, by fully qualified name
+	private Map<String, Integer> javaFileIndices;
 	// The location of the java file's project
 	private String projectLocation;
 	// The value of the exportMutants property (either true or false)
@@ -42,12 +44,20 @@ public class MajorMutator implements Mutator {
 	private File exportDirectory;
 	// The directory to which the mutants.log file is exported
 	private File mutantsLogDirectory;
+	// The index of mutants.log, or null if it has not been read since mutants were generated
+	private MutantsLog mutantsLog;
+	// Index in javaFiles of the java file of each mutant, indexed by mutant ID - 1, or null if not computed yet
+	private int[] javaFileOfMutant;
+	// Mutated source files written on demand, or null if none has been written since mutants were generated
+	private MutatedSourceCache mutatedSources;
 	// The directory to which the mutated .class files is exported
 	private File binDirectory;
-	// Base timeout factor (seconds) for test runtime
+	// Timeout factor for test runtime, relative to the runtime against the original program
 	private int timeoutFactor;
 	// Number of generated mutants
 	private int numMutants;
+	// Classes compiled by the last mutation, by binary name
+	private Map<String, byte[]> compiledClasses;
 
 	/**
 	 * By default, mutant source files are not generated. If the option to
@@ -65,20 +75,64 @@ public class MajorMutator implements Mutator {
 	 * @param projectLocation
 	 *            the location of the java file's project a pathname string
 	 * @param binLocation
-	 *            the location of the java project's bin as a pathname string
+	 *            the location of the directory to which mutated classes are
+	 *            compiled as a pathname string, which should not be the java
+	 *            project's bin so that the workspace does not rebuild it
 	 * @throws IOException
 	 */
 	public MajorMutator(File javaFile, String fullyQualifiedName, String projectLocation, String binLocation)
 			throws IOException {
-		if (javaFile == null || fullyQualifiedName == null || projectLocation == null)
+		this(Collections.singletonList(javaFile), Collections.singletonList(fullyQualifiedName), projectLocation,
+				binLocation);
+	}
+
+	/**
+	 * Creates a MajorMutator of the given java files, which are compiled
+	 * together and share one mutants.log. By default, mutant source files are
+	 * not generated. If the option to generate mutant source files is set to
+	 * true, then the default export directory is "./mutants".
+	 * 
+	 * An IllegalArgumentException is thrown if any of the given parameters are
+	 * null, if no java file is given, if the number of fully qualified names
+	 * differs from the number of java files or if one of the files is not a
+	 * java file. A FileNotFoundException is thrown if one of the files does
+	 * not exist.
+	 * 
+	 * @param javaFiles
+	 *            java Files, e.g. all the java files of a package
+	 * @param fullyQualifiedNames
+	 *            the fully qualified names of the java files, in the same
+	 *            order
+	 * @param projectLocation
+	 *            the location of the java files' project a pathname string
+	 * @param binLocation
+	 *            the location of the directory to which mutated classes are
+	 *            compiled as a pathname string, which should not be the java
+	 *            project's bin so that the workspace does not rebuild it
+	 * @throws IOException
+	 */
+	public MajorMutator(List<File> javaFiles, List<String> fullyQualifiedNames, String projectLocation,
+			String binLocation) throws IOException {
+		if (javaFiles == null || fullyQualifiedNames == null || projectLocation == null)
 			throw new IllegalArgumentException("parameters cannot be null");
-		if (!javaFile.exists())
-			throw new FileNotFoundException("File " + javaFile.toString() + " does not exist");
-		String fileExtension = FilenameUtils.getExtension(javaFile.getPath());
-		if (!fileExtension.equals("java"))
-			throw new IllegalArgumentException(javaFile + " is not a java file");
-		this.javaFile = javaFile;
-		this.fullyQualifiedName = fullyQualifiedName;
+		if (javaFiles.isEmpty())
+			throw new IllegalArgumentException("at least one java file must be given");
+		if (javaFiles.size() != fullyQualifiedNames.size())
+			throw new IllegalArgumentException("each java file must have exactly one fully qualified name");
+		javaFileIndices = new HashMap<String, Integer>();
+		for (int i = 0; i < javaFiles.size(); i++) {
+			File javaFile = javaFiles.get(i);
+			if (javaFile == null || fullyQualifiedNames.get(i) == null)
+				throw new IllegalArgumentException("parameters cannot be null");
+			if (!javaFile.exists())
+				throw new FileNotFoundException("File " + javaFile.toString() + " does not exist");
+			String fileExtension = FilenameUtils.getExtension(javaFile.getPath());
+			if (!fileExtension.equals("java"))
+				throw new IllegalArgumentException(javaFile + " is not a java file");
+			javaFileIndices.put(fullyQualifiedNames.get(i), i);
+		}
+		this.javaFiles = Collections.unmodifiableList(new ArrayList<File>(javaFiles));
+		this.fullyQualifiedNames = Collections.unmodifiableList(new ArrayList<String>(fullyQualifiedNames));
 		this.projectLocation = projectLocation;
 		mutantsLogDirectory = new File(this.projectLocation);
 		binDirectory = new File(binLocation);
@@ -88,6 +142,7 @@ public class MajorMutator implements Mutator {
 		setExportDirectory(exportDirectory);
 		setTimeoutFactor(8);
 		numMutants = 0;
+		compiledClasses = Collections.emptyMap();
 	}
 
 	/*
@@ -97,52 +152,46 @@ public class MajorMutator implements Mutator {
 	 */
 	@Override
 	public void mutate() throws IOException, MutateException {
-		// The directory in which compiled mutated files will be stored
-		String binLocation = binDirectory.getAbsolutePath();
 		// Flag for mutation
-		String mutateFlag = "-XMutator:ALL";
-		String[] arguments = { "-d", binLocation, mutateFlag, javaFile.getPath() };
-		// Create JavaCompiler object
-		// Assuming that Major's javac is in the project directory, major's
-		// compiler will be used
-		JavaCompiler compiler = JavacTool.create();
-		// Compile and run the program
-		int status = compiler.run(null, null, null, arguments);
-
-		if (status != 0)
-			throw new MutateException("Error occurred while trying to compile mutants");
-
-		// mutants.log is created in the working directory by default
-		// Move mutants.log into the project directory
-		String sourceDirectory = System.getProperty("user.dir");
-		Path source = Paths.get(sourceDirectory + FILE_SEPARATOR + "mutants.log");
-		Path target = Paths.get(mutantsLogDirectory.getAbsolutePath() + FILE_SEPARATOR + "mutants.log");
-		try {
-			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
-		} catch (IOException e) {
-			throw new IOException("Error occurred while trying to export mutants.log", e);
-		}
+		List<String> options = Collections.singletonList("-XMutator:ALL");
+		// Major reads whether and where to export mutants from system properties
+		Map<String, String> properties = new HashMap<String, String>();
+		properties.put("major.export.mutants", String.valueOf(exportMutants));
+		properties.put("major.export.directory", exportDirectory.getAbsolutePath());
+		File target = new File(mutantsLogDirectory.getAbsolutePath() + FILE_SEPARATOR + "mutants.log");
+		mutantsLog = null;
+		javaFileOfMutant = null;
+		mutatedSources = null;
+		// Compile all java files at once with the warm compiler shared by all
+		// mutators, which also moves mutants.log into the project directory
+		compiledClasses = CompileService.getInstance().compile(javaFiles, binDirectory, options, properties, target);
 		// Record number of mutants generated
 		numMutants = this.getNumberOfMutantsAfterCompile();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see mutator.Mutator#readMutants()
+	 */
+	@Override
+	public void readMutants() throws IOException {
+		mutantsLog = null;
+		javaFileOfMutant = null;
+		mutatedSources = null;
+		compiledClasses = Collections.emptyMap();
+		numMutants = this.getMutantsLogIndex().size();
+	}
+
 	/**
 	 * Returns the number of generated mutants. This method is run directly
-	 * after compiling in the mutate method.
+	 * after compiling in the mutate method, and indexes mutants.log.
 	 * 
 	 * @return the number of generated mutants
 	 */
 	private int getNumberOfMutantsAfterCompile() {
 		try {
-			File mutantsLog = this.getMutantsLogFile();
-			Scanner sc = new Scanner(mutantsLog);
-			int numMutants = 0;
-			while (sc.hasNext()) {
-				sc.nextLine();
-				numMutants++;
-			}
-			sc.close();
-			return numMutants;
+			return this.getMutantsLogIndex().size();
 		} catch (Exception e) {
 			return 0;
 		}
@@ -155,7 +204,7 @@ public class MajorMutator implements Mutator {
 	 */
 	@Override
 	public File getJavaFile() {
-		return javaFile;
+		return javaFiles.get(0);
 	}
 
 	/*
@@ -165,7 +214,56 @@ public class MajorMutator implements Mutator {
 	 */
 	@Override
 	public String getFullyQualifiedNameOfJavaFile() {
-		return fullyQualifiedName;
+		return fullyQualifiedNames.get(0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see mutator.Mutator#getJavaFiles()
+	 */
+	@Override
+	public List<File> getJavaFiles() {
+		return javaFiles;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see mutator.Mutator#getJavaFile(analyzer.Mutant)
+	 */
+	@Override
+	public File getJavaFile(Mutant mutant) throws IOException {
+		return javaFiles.get(this.getJavaFileIndex(mutant.getID()));
+	}
+
+	/**
+	 * Returns the index in javaFiles of the java file in which the mutant with
+	 * the given ID occurs. Each mutant is mapped to a java file by the class
+	 * in which it occurs, as logged in mutants.log, whose top-level class is
+	 * named after its java file. The mutants of other top-level classes
+	 * declared in a java file are mapped to the java file of the preceding
+	 * mutant, since javac visits the classes of a java file one after the
+	 * other.
+	 */
+	private int getJavaFileIndex(int mutantID) throws IOException {
+		MutantsLog log = this.getMutantsLogIndex();
+		if (!log.contains(mutantID))
+			throw new IllegalArgumentException("There is no mutant with ID " + mutantID);
+		if (javaFiles.size() == 1)
+			return 0;
+		if (javaFileOfMutant == null) {
+			int[] indices = new int[log.size()];
+			int previous = 0;
+			for (int id = 1; id <= log.size(); id++) {
+				String className = log.getDescriptor(id).getClassName();
+				int nested = className.indexOf('$');
+				Integer index = javaFileIndices.get(nested < 0 ? className : className.substring(0, nested));
+				indices[id - 1] = previous = index != null ? index : previous;
+			}
+			javaFileOfMutant = indices;
+		}
+		return javaFileOfMutant[mutantID - 1];
 	}
 
 	/*
@@ -219,9 +317,60 @@ public class MajorMutator implements Mutator {
 		if (directory == null)
 			throw new IllegalArgumentException("directory cannot be null");
 		exportDirectory = directory;
+		mutatedSources = null;
 		System.setProperty("major.export.directory", exportDirectory.getAbsolutePath());
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see mutator.Mutator#getMutatedSourceFile(analyzer.Mutant)
+	 */
+	@Override
+	public File getMutatedSourceFile(Mutant mutant) throws IOException {
+		int javaFileIndex = this.getJavaFileIndex(mutant.getID());
+		// Major exports the mutated source file of mutant 5 to exportDirectory/5/packageName/sourceFileName
+		String relativePath = fullyQualifiedNames.get(javaFileIndex).replace('.', FILE_SEPARATOR) + ".java";
+		if (exportMutants) {
+			File mutatedFile = new File(exportDirectory, mutant.getID() + FILE_SEPARATOR + relativePath);
+			if (!mutatedFile.exists())
+				throw new FileNotFoundException("File " + mutatedFile + " does not exist");
+			return mutatedFile;
+		}
+		File javaFile = javaFiles.get(javaFileIndex);
+		if (javaFile.lastModified() > this.getMutantsLogFile().lastModified())
+			throw new IOException("The java file " + javaFile + " changed since mutants were generated");
+		if (mutatedSources == null)
+			mutatedSources = new MutatedSourceCache(exportDirectory, MUTATED_SOURCE_CACHE_SIZE);
+		return mutatedSources.get(this.getMutantsLogIndex().getDescriptor(mutant.getID()),
+				this.getOccurrence(mutant.getID(), javaFileIndex), javaFile, relativePath);
+	}
+
+	/**
+	 * Returns which occurrence, counted from 0, of the original code of the
+	 * mutant with the given ID on the mutant's line the mutant mutates. javac
+	 * visits the code of a line from left to right, and every occurrence of
+	 * the same code gets the same mutants, so the mutant mutates the n-th
+	 * occurrence if n preceding mutants of the same java file and line have
+	 * the same operator, original and mutated code, e.g. the second of two
+	 * identical conditions on one line.
+	 */
+	private int getOccurrence(int mutantID, int javaFileIndex) throws IOException {
+		MutantsLog log = this.getMutantsLogIndex();
+		MutantDescriptor mutant = log.getDescriptor(mutantID);
+		int occurrence = 0;
+		for (int id = 1; id < mutantID; id++) {
+			MutantDescriptor other = log.getDescriptor(id);
+			if (other.getLineNumber() == mutant.getLineNumber()
+					&& other.getOperator().equals(mutant.getOperator())
+					&& other.getOriginalCode().equals(mutant.getOriginalCode())
+					&& other.getReplacementCode().equals(mutant.getReplacementCode())
+					&& this.getJavaFileIndex(id) == javaFileIndex)
+				occurrence++;
+		}
+		return occurrence;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -243,6 +392,8 @@ public class MajorMutator implements Mutator {
 	 */
 	@Override
 	public List<String> getMutantsLog() throws FileNotFoundException {
+		if (this.mutantsLog != null)
+			return this.mutantsLog.getLines();
 		File mutantsLog = this.getMutantsLogFile();
 		Scanner scanner = new Scanner(mutantsLog);
 		ArrayList<String> log = new ArrayList<String>();
@@ -254,6 +405,18 @@ public class MajorMutator implements Mutator {
 		return log;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see mutator.Mutator#getMutantsLogIndex()
+	 */
+	@Override
+	public MutantsLog getMutantsLogIndex() throws IOException {
+		if (mutantsLog == null)
+			mutantsLog = MutantsLog.read(this.getMutantsLogFile());
+		return mutantsLog;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -274,6 +437,8 @@ public class MajorMutator implements Mutator {
 		if (directory == null)
 			throw new IllegalArgumentException("directory cannot be null");
 		mutantsLogDirectory = directory;
+		mutantsLog = null;
+		javaFileOfMutant = null;
 	}
 
 	/*
@@ -329,6 +494,16 @@ public class MajorMutator implements Mutator {
 		return this.numMutants;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see mutator.Mutator#getCompiledClasses()
+	 */
+	@Override
+	public Map<String, byte[]> getCompiledClasses() {
+		return compiledClasses;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
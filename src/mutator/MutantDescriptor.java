@@ -0,0 +1,159 @@
+package mutator;
+
+/**
+ * A MutantDescriptor describes a mutant as logged by Major in a line of
+ * mutants.log, which has the form
+ *
+ * ID:OPERATOR:ORIGINAL_OPERATOR:REPLACEMENT_OPERATOR:METHOD:LINE:ORIGINAL |==> REPLACEMENT
+ *
+ * e.g. 1:AOR:+(int,int):-(int,int):calc.Calc@add(int,int):5:a + b |==> a - b
+ *
+ * @author Raymond Tang
+ *
+ */
+public final class MutantDescriptor {
+	// Separates the original code from the mutated code
+	private static final String CODE_SEPARATOR = " |==> ";
+	// The ID of the mutant
+	private final int id;
+	// The name of the mutation operator, e.g. AOR
+	private final String operator;
+	// The original operator, e.g. +(int,int)
+	private final String originalOperator;
+	// The replacement operator, e.g. -(int,int)
+	private final String replacementOperator;
+	// The method in which the mutant occurs, e.g. calc.Calc@add(int,int)
+	private final String method;
+	// The number of the source file line on which the mutant occurs
+	private final int lineNumber;
+	// The original code and the mutated code, separated by " |==> "
+	private final String code;
+	// The line of mutants.log describing the mutant
+	private final String logLine;
+
+	/**
+	 * Creates a MutantDescriptor from the given line of mutants.log.
+	 *
+	 * An IllegalArgumentException is thrown if the line is null or is not of
+	 * the form described above.
+	 *
+	 * @param logLine
+	 *            a line of mutants.log
+	 */
+	public MutantDescriptor(String logLine) {
+		if (logLine == null)
+			throw new IllegalArgumentException("logLine cannot be null");
+		String[] fields = logLine.split(":", 7);
+		if (fields.length < 7)
+			throw new IllegalArgumentException("Malformed mutants.log line: " + logLine);
+		try {
+			this.id = Integer.parseInt(fields[0]);
+			this.lineNumber = Integer.parseInt(fields[5]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed mutants.log line: " + logLine);
+		}
+		this.operator = fields[1];
+		this.originalOperator = fields[2];
+		this.replacementOperator = fields[3];
+		this.method = fields[4];
+		this.code = fields[6];
+		this.logLine = logLine;
+	}
+
+	/**
+	 * Returns the ID of the mutant.
+	 *
+	 * @return the ID of the mutant
+	 */
+	public int getID() {
+		return id;
+	}
+
+	/**
+	 * Returns the name of the mutation operator which generated the mutant,
+	 * e.g. AOR.
+	 *
+	 * @return the name of the mutation operator
+	 */
+	public String getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Returns the original operator, e.g. +(int,int).
+	 *
+	 * @return the original operator
+	 */
+	public String getOriginalOperator() {
+		return originalOperator;
+	}
+
+	/**
+	 * Returns the replacement operator, e.g. -(int,int).
+	 *
+	 * @return the replacement operator
+	 */
+	public String getReplacementOperator() {
+		return replacementOperator;
+	}
+
+	/**
+	 * Returns the method in which the mutant occurs, e.g.
+	 * calc.Calc@add(int,int).
+	 *
+	 * @return the method in which the mutant occurs
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Returns the binary name of the class in which the mutant occurs, e.g.
+	 * calc.Calc, or calc.Calc$Inner for a mutant in a nested class.
+	 *
+	 * @return the binary name of the class in which the mutant occurs
+	 */
+	public String getClassName() {
+		int separator = method.indexOf('@');
+		return separator < 0 ? method : method.substring(0, separator);
+	}
+
+	/**
+	 * Returns the number of the source file line on which the mutant occurs.
+	 *
+	 * @return the number of the source file line on which the mutant occurs
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Returns the original code, e.g. a + b.
+	 *
+	 * @return the original code
+	 */
+	public String getOriginalCode() {
+		int separator = code.indexOf(CODE_SEPARATOR);
+		return separator < 0 ? code : code.substring(0, separator);
+	}
+
+	/**
+	 * Returns the mutated code, e.g. a - b.
+	 *
+	 * @return the mutated code
+	 */
+	public String getReplacementCode() {
+		int separator = code.indexOf(CODE_SEPARATOR);
+		return separator < 0 ? "" : code.substring(separator + CODE_SEPARATOR.length());
+	}
+
+	/**
+	 * Returns the line of mutants.log describing the mutant.
+	 *
+	 * @return the line of mutants.log describing the mutant
+	 */
+	@Override
+	public String toString() {
+		return logLine;
+	}
+}
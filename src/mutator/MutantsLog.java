@@ -0,0 +1,313 @@
+package mutator;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import analyzer.Mutant;
+
+/**
+ * A MutantsLog is an index of mutants.log, in which the i-th line describes
+ * the mutant with ID i (see MutantDescriptor). The file is read once, through
+ * a memory-mapped FileChannel, and indexed in a single pass: the offset of each
+ * line, the mutation operator and the source file line of each mutant are
+ * stored in arrays, so that a mutant's line of mutants.log, operator and
+ * source file line are looked up in constant time, and the mutants on a
+ * given source file line or generated by a given operator without scanning
+ * the log. MutantDescriptors are decoded from the log's bytes on demand.
+ *
+ * The bytes of the log are copied out of the mapping, so that mutants.log is
+ * not kept mapped and can be replaced by the next mutation.
+ *
+ * @author Raymond Tang
+ *
+ */
+public final class MutantsLog {
+	// Number of colons preceding the code in a line of mutants.log
+	private static final int NUM_FIELD_SEPARATORS = 6;
+	// The bytes of mutants.log
+	private final byte[] log;
+	// Offset of the line of each mutant in the log, indexed by mutant ID - 1, followed by the length of the log
+	private final int[] lineOffsets;
+	// Number of the source file line on which each mutant occurs, indexed by mutant ID - 1
+	private final int[] lineNumbers;
+	// Index in operators of the operator of each mutant, indexed by mutant ID - 1
+	private final int[] operatorIndices;
+	// Names of the mutation operators, in order of first occurrence
+	private final List<String> operators;
+	// IDs of the mutants generated by each operator, in order of operators
+	private final List<BitSet> mutantsByOperator;
+	// IDs of the mutants, sorted by source file line and then by ID
+	private final int[] mutantsByLine;
+	// Source file line of each mutant of mutantsByLine
+	private final int[] sortedLineNumbers;
+
+	/**
+	 * Reads and indexes the given mutants.log file.
+	 *
+	 * Throws a FileNotFoundException if the file does not exist. Throws an
+	 * IOException if the file could not be read or if one of its lines does
+	 * not describe a mutant.
+	 *
+	 * @param file
+	 *            the mutants.log file
+	 * @return the MutantsLog of the file
+	 * @throws IOException
+	 */
+	public static MutantsLog read(File file) throws IOException {
+		if (!file.exists())
+			throw new FileNotFoundException("mutants.log does not exist");
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("mutants.log is too large to be read");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			byte[] log = new byte[buffer.remaining()];
+			buffer.get(log);
+			return new MutantsLog(log);
+		}
+	}
+
+	private MutantsLog(byte[] log) throws IOException {
+		this.log = log;
+		// Trailing line breaks do not start a new line
+		int length = log.length;
+		while (length > 0 && (log[length - 1] == '\n' || log[length - 1] == '\r'))
+			length--;
+		int numLines = length > 0 ? 1 : 0;
+		for (int i = 0; i < length; i++) {
+			if (log[i] == '\n')
+				numLines++;
+		}
+		this.lineOffsets = new int[numLines + 1];
+		this.lineNumbers = new int[numLines];
+		this.operatorIndices = new int[numLines];
+		this.operators = new ArrayList<String>();
+		this.mutantsByOperator = new ArrayList<BitSet>();
+		Map<String, Integer> operatorIndex = new HashMap<String, Integer>();
+		int[] separators = new int[NUM_FIELD_SEPARATORS];
+		int offset = 0;
+		for (int line = 0; line < numLines; line++) {
+			lineOffsets[line] = offset;
+			int numSeparators = 0;
+			while (offset < length && log[offset] != '\n') {
+				if (log[offset] == ':' && numSeparators < NUM_FIELD_SEPARATORS)
+					separators[numSeparators++] = offset;
+				offset++;
+			}
+			offset++;
+			if (numSeparators < NUM_FIELD_SEPARATORS)
+				throw new IOException("Line " + (line + 1) + " of mutants.log does not describe a mutant");
+			lineNumbers[line] = parseInt(separators[4] + 1, separators[5], line);
+			String operator = new String(log, separators[0] + 1, separators[1] - separators[0] - 1,
+					StandardCharsets.UTF_8);
+			Integer index = operatorIndex.get(operator);
+			if (index == null) {
+				index = operators.size();
+				operatorIndex.put(operator, index);
+				operators.add(operator);
+				mutantsByOperator.add(new BitSet());
+			}
+			operatorIndices[line] = index;
+			mutantsByOperator.get(index).set(line + 1);
+		}
+		lineOffsets[numLines] = length;
+		// Sort mutants by source file line, then by ID
+		long[] keys = new long[numLines];
+		for (int line = 0; line < numLines; line++)
+			keys[line] = ((long) lineNumbers[line] << 32) | (line + 1);
+		Arrays.sort(keys);
+		this.mutantsByLine = new int[numLines];
+		this.sortedLineNumbers = new int[numLines];
+		for (int i = 0; i < numLines; i++) {
+			mutantsByLine[i] = (int) keys[i];
+			sortedLineNumbers[i] = (int) (keys[i] >>> 32);
+		}
+	}
+
+	/**
+	 * Returns the number of mutants in mutants.log.
+	 *
+	 * @return the number of mutants
+	 */
+	public int size() {
+		return lineNumbers.length;
+	}
+
+	/**
+	 * Returns true if mutants.log describes the mutant with the given ID.
+	 * Returns false otherwise.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return true if mutants.log describes the mutant, false otherwise
+	 */
+	public boolean contains(int mutantID) {
+		return mutantID >= 1 && mutantID <= size();
+	}
+
+	/**
+	 * Returns the line of mutants.log describing the mutant with the given ID.
+	 *
+	 * An IllegalArgumentException is thrown if there is no such mutant.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return the line of mutants.log describing the mutant
+	 */
+	public String getLine(int mutantID) {
+		checkMutantID(mutantID);
+		int start = lineOffsets[mutantID - 1];
+		int end = lineOffsets[mutantID];
+		while (end > start && (log[end - 1] == '\n' || log[end - 1] == '\r'))
+			end--;
+		return new String(log, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the MutantDescriptor of the mutant with the given ID.
+	 *
+	 * An IllegalArgumentException is thrown if there is no such mutant.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return the MutantDescriptor of the mutant
+	 */
+	public MutantDescriptor getDescriptor(int mutantID) {
+		return new MutantDescriptor(getLine(mutantID));
+	}
+
+	/**
+	 * Returns the number of the source file line on which the mutant with the
+	 * given ID occurs.
+	 *
+	 * An IllegalArgumentException is thrown if there is no such mutant.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return the number of the source file line on which the mutant occurs
+	 */
+	public int getLineNumber(int mutantID) {
+		return lineNumbers[checkMutantID(mutantID) - 1];
+	}
+
+	/**
+	 * Returns the name of the mutation operator which generated the mutant
+	 * with the given ID.
+	 *
+	 * An IllegalArgumentException is thrown if there is no such mutant.
+	 *
+	 * @param mutantID
+	 *            the ID of a mutant
+	 * @return the name of the mutation operator
+	 */
+	public String getOperator(int mutantID) {
+		return operators.get(operatorIndices[checkMutantID(mutantID) - 1]);
+	}
+
+	/**
+	 * Returns the names of the mutation operators occurring in mutants.log, in
+	 * order of first occurrence.
+	 *
+	 * @return the names of the mutation operators
+	 */
+	public List<String> getOperators() {
+		return Collections.unmodifiableList(operators);
+	}
+
+	/**
+	 * Returns the mutants generated by the mutation operator with the given
+	 * name, in order of ID.
+	 *
+	 * @param operator
+	 *            the name of a mutation operator
+	 * @return the mutants generated by the operator
+	 */
+	public List<Mutant> getMutantsByOperator(String operator) {
+		List<Mutant> mutants = new ArrayList<Mutant>();
+		int index = operators.indexOf(operator);
+		if (index < 0)
+			return mutants;
+		BitSet mutantIDs = mutantsByOperator.get(index);
+		for (int mutantID = mutantIDs.nextSetBit(0); mutantID >= 0; mutantID = mutantIDs.nextSetBit(mutantID + 1))
+			mutants.add(new Mutant(mutantID));
+		return mutants;
+	}
+
+	/**
+	 * Returns the mutants occurring on the source file line with the given
+	 * number, in order of ID. If several java files were mutated together, the
+	 * mutants occurring on that line of any of them are returned.
+	 *
+	 * @param lineNumber
+	 *            the number of a source file line
+	 * @return the mutants occurring on the line
+	 */
+	public List<Mutant> getMutantsOnLine(int lineNumber) {
+		List<Mutant> mutants = new ArrayList<Mutant>();
+		int i = Arrays.binarySearch(sortedLineNumbers, lineNumber);
+		if (i < 0)
+			return mutants;
+		while (i > 0 && sortedLineNumbers[i - 1] == lineNumber)
+			i--;
+		for (; i < sortedLineNumbers.length && sortedLineNumbers[i] == lineNumber; i++)
+			mutants.add(new Mutant(mutantsByLine[i]));
+		return mutants;
+	}
+
+	/**
+	 * Returns the lines of mutants.log. The i-th string in the list is the
+	 * i-th line in mutants.log; lines are decoded when they are accessed. The
+	 * list cannot be modified.
+	 *
+	 * @return the lines of mutants.log
+	 */
+	public List<String> getLines() {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				if (index < 0 || index >= size())
+					throw new IndexOutOfBoundsException("Index: " + index);
+				return getLine(index + 1);
+			}
+
+			@Override
+			public int size() {
+				return MutantsLog.this.size();
+			}
+		};
+	}
+
+	private int checkMutantID(int mutantID) {
+		if (!contains(mutantID))
+			throw new IllegalArgumentException("There is no mutant with ID " + mutantID);
+		return mutantID;
+	}
+
+	/**
+	 * Returns the non-negative int written in the log from the given start to
+	 * the given end.
+	 */
+	private int parseInt(int start, int end, int line) throws IOException {
+		if (start >= end)
+			throw new IOException("Line " + (line + 1) + " of mutants.log does not describe a mutant");
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			if (log[i] < '0' || log[i] > '9' || value > (Integer.MAX_VALUE - 9) / 10)
+				throw new IOException("Line " + (line + 1) + " of mutants.log does not describe a mutant");
+			value = value * 10 + (log[i] - '0');
+		}
+		return value;
+	}
+}
@@ -0,0 +1,145 @@
+package mutator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A MutatedSourceCache writes the mutated source file of a mutant when it is
+ * needed, instead of Major exporting a mutated copy of the java files for
+ * every mutant. The mutated source file of a mutant is the java file
+ * containing the mutant, in which the original code of the mutant is replaced
+ * by its mutated code (see MutantDescriptor), and is written where Major would
+ * have exported it, i.e. exportDirectory/mutantID/packageName/sourceFileName.
+ * Only the requested mutant is ever written, and nothing is compiled.
+ *
+ * At most a given number of mutated source files are kept; once more are
+ * written, the directory of the least recently used mutant is deleted.
+ *
+ * @author Raymond Tang
+ *
+ */
+final class MutatedSourceCache {
+	// The directory containing the directory of each mutant
+	private final File exportDirectory;
+	// Directory of each mutant whose mutated source file was written, least recently used first
+	private final Map<Integer, File> mutantDirectories;
+
+	/**
+	 * Creates a MutatedSourceCache writing mutated source files to the
+	 * directory of each mutant in the given export directory, and keeping at
+	 * most the given number of mutated source files.
+	 */
+	MutatedSourceCache(File exportDirectory, final int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		this.exportDirectory = exportDirectory;
+		this.mutantDirectories = new LinkedHashMap<Integer, File>(capacity * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, File> eldest) {
+				if (size() <= capacity)
+					return false;
+				FileUtils.deleteQuietly(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns the mutated source file of the given mutant, which occurs in the
+	 * given java file, writing it at the given path relative to the directory
+	 * of the mutant unless it was written by this MutatedSourceCache and still
+	 * exists. The original code of the mutant is replaced at the given
+	 * occurrence, counted from 0, of the original code starting on the
+	 * mutant's line.
+	 *
+	 * Throws an IOException if the java file could not be read, if the
+	 * original code does not occur there, or if the mutated source file could
+	 * not be written.
+	 */
+	File get(MutantDescriptor mutant, int occurrence, File javaFile, String relativePath) throws IOException {
+		File mutantDirectory = new File(exportDirectory, String.valueOf(mutant.getID()));
+		File mutatedFile = new File(mutantDirectory, relativePath);
+		if (mutantDirectories.get(mutant.getID()) != null && mutatedFile.exists())
+			return mutatedFile;
+		// Major compiles the java file with the default encoding
+		String source = new String(Files.readAllBytes(javaFile.toPath()), Charset.defaultCharset());
+		String mutatedSource = mutate(source, mutant, occurrence);
+		if (mutatedSource == null)
+			throw new IOException("The original code of mutant " + mutant.getID() + " (" + mutant.getOriginalCode()
+					+ ") does not occur on line " + mutant.getLineNumber() + " of " + javaFile);
+		mutatedFile.getParentFile().mkdirs();
+		Files.write(mutatedFile.toPath(), mutatedSource.getBytes(Charset.defaultCharset()));
+		mutantDirectories.put(mutant.getID(), mutantDirectory);
+		return mutatedFile;
+	}
+
+	/**
+	 * Returns the given source, in which the given occurrence, counted from 0,
+	 * of the original code of the given mutant starting on the mutant's line
+	 * is replaced by its mutated code, or null if there is no such occurrence.
+	 * Major logs code as printed by javac, so whitespace, including line
+	 * breaks, is ignored when looking for the original code, and the original
+	 * code only occurs where it does not start or end inside an identifier or
+	 * a literal.
+	 */
+	static String mutate(String source, MutantDescriptor mutant, int occurrence) {
+		String original = mutant.getOriginalCode().replaceAll("\\s+", "");
+		if (original.isEmpty())
+			return null;
+		// Find the mutant's line
+		int lineStart = 0;
+		for (int line = 1; line < mutant.getLineNumber(); line++) {
+			while (lineStart < source.length() && !isLineBreak(source.charAt(lineStart)))
+				lineStart++;
+			if (lineStart == source.length())
+				return null;
+			if (source.startsWith("\r\n", lineStart))
+				lineStart++;
+			lineStart++;
+		}
+		for (int start = lineStart; start < source.length() && !isLineBreak(source.charAt(start)); start++) {
+			if (source.charAt(start) != original.charAt(0) || (start > 0
+					&& continuesToken(source.charAt(start - 1), original.charAt(0))))
+				continue;
+			int end = start;
+			int matched = 0;
+			while (end < source.length() && matched < original.length()) {
+				char c = source.charAt(end);
+				if (Character.isWhitespace(c)) {
+					end++;
+				} else if (c == original.charAt(matched)) {
+					end++;
+					matched++;
+				} else {
+					break;
+				}
+			}
+			if (matched < original.length() || (end < source.length()
+					&& continuesToken(original.charAt(original.length() - 1), source.charAt(end))))
+				continue;
+			if (occurrence-- == 0)
+				return source.substring(0, start) + mutant.getReplacementCode() + source.substring(end);
+		}
+		return null;
+	}
+
+	private static boolean isLineBreak(char c) {
+		return c == '\n' || c == '\r';
+	}
+
+	/**
+	 * Returns true if the given characters, one following the other, belong to
+	 * the same identifier or literal.
+	 */
+	private static boolean continuesToken(char previous, char next) {
+		return Character.isJavaIdentifierPart(previous) && Character.isJavaIdentifierPart(next);
+	}
+}
@@ -4,11 +4,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import analyzer.Mutant;
 
 /**
- * A Mutator compiles and generates mutants in a given java file.
+ * A Mutator compiles and generates mutants in one or more given java files.
  * 
  * @author Raymond Tang
  *
@@ -30,7 +31,29 @@ public interface Mutator {
 	void mutate() throws IOException, MutateException;
 
 	/**
-	 * Returns the java file that is being mutated by this mutator.
+	 * Reads the mutants generated by an earlier call to mutate() from
+	 * mutants.log instead of generating them again, so that the results of an
+	 * earlier analysis of them can be reloaded. No class is compiled.
+	 * 
+	 * Throws a FileNotFoundException if mutants.log does not exist. Throws an
+	 * IOException if mutants.log could not be read.
+	 * 
+	 * @throws IOException
+	 */
+	void readMutants() throws IOException;
+
+	/**
+	 * Returns the classes compiled by the last call to mutate(), by binary
+	 * name, so that a classloader can define them without reading them from
+	 * the bin directory. Returns an empty map if mutate() has not been called.
+	 * 
+	 * @return the compiled classes, by binary name
+	 */
+	Map<String, byte[]> getCompiledClasses();
+
+	/**
+	 * Returns the java file that is being mutated by this mutator. If several
+	 * java files are being mutated, the first one is returned.
 	 * 
 	 * @return the java file that is being mutated by this mutator
 	 */
@@ -38,13 +61,37 @@ public interface Mutator {
 
 	/**
 	 * Returns the fully qualified name of the java file being mutated by this
-	 * mutator.
+	 * mutator. If several java files are being mutated, the fully qualified
+	 * name of the first one is returned.
 	 * 
 	 * @return the fully qualified name of the java file being mutated by this
 	 *         mutator
 	 */
 	String getFullyQualifiedNameOfJavaFile();
 
+	/**
+	 * Returns the java files that are being mutated by this mutator. They are
+	 * compiled together, and the IDs of their mutants are unique across all of
+	 * them.
+	 * 
+	 * @return the java files that are being mutated by this mutator
+	 */
+	List<File> getJavaFiles();
+
+	/**
+	 * Returns the java file in which the given mutant occurs.
+	 * 
+	 * Throws a FileNotFoundException if mutants.log does not exist. Throws an
+	 * IOException if mutants.log could not be read. An
+	 * IllegalArgumentException is thrown if there is no such mutant.
+	 * 
+	 * @param mutant
+	 *            a mutant
+	 * @return the java file in which the mutant occurs
+	 * @throws IOException
+	 */
+	File getJavaFile(Mutant mutant) throws IOException;
+
 	/**
 	 * Returns the location of the java file's project as a pathname string.
 	 * 
@@ -83,6 +130,26 @@ public interface Mutator {
 	 */
 	void setExportDirectory(File directory);
 
+	/**
+	 * Returns the mutated source file of the given mutant, i.e. the java file
+	 * containing the mutant, located in the subfolder of the export directory
+	 * named after the mutant's ID. If the exportMutants property is false, the
+	 * mutated source file of the mutant alone is generated from mutants.log
+	 * when this method is called, and only the most recently used mutated
+	 * source files are kept.
+	 * 
+	 * Throws a FileNotFoundException if mutants.log or the mutated source file
+	 * does not exist. Throws an IOException if the mutated source file could
+	 * not be generated, e.g. because the java file changed since the mutants
+	 * were generated.
+	 * 
+	 * @param mutant
+	 *            a mutant
+	 * @return the mutated source file of the mutant
+	 * @throws IOException
+	 */
+	File getMutatedSourceFile(Mutant mutant) throws IOException;
+
 	/**
 	 * Returns the mutants.log file.
 	 * 
@@ -104,6 +171,21 @@ public interface Mutator {
 	 */
 	List<String> getMutantsLog() throws FileNotFoundException;
 
+	/**
+	 * Returns the index of mutants.log, from which the description, mutation
+	 * operator and source file line of each mutant are looked up without
+	 * reading mutants.log again (see MutantsLog). mutants.log is read once,
+	 * the first time this method is called after mutants are generated.
+	 * 
+	 * Throws a FileNotFoundException if mutants.log does not exist. Throws an
+	 * IOException if mutants.log could not be read or does not describe
+	 * mutants.
+	 * 
+	 * @return the index of mutants.log
+	 * @throws IOException
+	 */
+	MutantsLog getMutantsLogIndex() throws IOException;
+
 	/**
 	 * Returns the export directory of mutants.log.
 	 * 
@@ -120,18 +202,21 @@ public interface Mutator {
 	void setMutantsLogDirectory(File directory);
 
 	/**
-	 * Returns the timeout factor in seconds for test runtime.
+	 * Returns the timeout factor for test runtime. A test run against a
+	 * mutant may take at most this many times as long as the same test run
+	 * against the original program.
 	 * 
-	 * @return the timeout factor in seconds for test runtime
+	 * @return the timeout factor for test runtime
 	 */
 	int getTimeoutFactor();
 
 	/**
-	 * Sets the timeout factor for test runtime.
+	 * Sets the timeout factor for test runtime. A test run against a mutant
+	 * may take at most this many times as long as the same test run against
+	 * the original program.
 	 * 
 	 * @param timeoutFactor
-	 *            the amount of time in seconds to which the timeout factor will
-	 *            be set
+	 *            the value to which the timeout factor will be set
 	 */
 	void setTimeoutFactor(int timeoutFactor);
 
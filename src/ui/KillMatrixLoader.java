@@ -0,0 +1,88 @@
+package ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import analyzer.KillMatrixFile;
+import analyzer.StoredMutantAnalyzer;
+import major.mutation.Config;
+import mutator.MajorMutator;
+import mutator.MutantsLog;
+import mutator.Mutator;
+
+/**
+ * A KillMatrixLoader reloads the results of the last mutation testing run in
+ * a java project from the project's mutants.log and killMatrix.bin, without
+ * generating mutants or running any test. The mutated java files are found
+ * from the classes in which the mutants occur, as logged in mutants.log, in
+ * the order in which they were compiled.
+ *
+ * @author Raymond Tang
+ *
+ */
+final class KillMatrixLoader {
+	// File separator. Differs depending on operating system
+	private static final char FILE_SEPARATOR = File.separatorChar;
+
+	private KillMatrixLoader() {
+	}
+
+	/**
+	 * Returns the results of the last mutation testing run in the java project
+	 * at the given location, whose classes are compiled to the given bin
+	 * directory and whose test classes are located in the given test
+	 * directory.
+	 *
+	 * Throws an IOException if mutants.log or killMatrix.bin does not exist or
+	 * could not be read, if they do not belong to the same run, or if none of
+	 * the mutated java files exists anymore.
+	 *
+	 * @param projectLocation
+	 *            the location of the java project
+	 * @param binLocation
+	 *            the location of the java project's bin directory
+	 * @param testLocation
+	 *            the location of the java project's test directory
+	 * @return the results of the last run
+	 * @throws IOException
+	 */
+	static StoredMutantAnalyzer load(String projectLocation, String binLocation, String testLocation)
+			throws IOException {
+		MutantsLog log = MutantsLog.read(new File(projectLocation + FILE_SEPARATOR + "mutants.log"));
+		// Top-level classes in which mutants occur, in order of compilation
+		Set<String> classNames = new LinkedHashSet<String>();
+		for (int mutantID = 1; mutantID <= log.size(); mutantID++) {
+			String className = log.getDescriptor(mutantID).getClassName();
+			int nested = className.indexOf('$');
+			classNames.add(nested < 0 ? className : className.substring(0, nested));
+		}
+		List<File> javaFiles = new ArrayList<File>();
+		List<String> fullyQualifiedNames = new ArrayList<String>();
+		for (String className : classNames) {
+			// Other top-level classes of a java file are not named after it
+			File javaFile = new File(projectLocation + FILE_SEPARATOR + "src" + FILE_SEPARATOR
+					+ className.replace('.', FILE_SEPARATOR) + ".java");
+			if (javaFile.exists()) {
+				javaFiles.add(javaFile);
+				fullyQualifiedNames.add(className);
+			}
+		}
+		if (javaFiles.isEmpty())
+			throw new IOException("The mutated java files do not exist");
+		// No mutant is compiled, so the bin directory is never written to
+		Mutator mutator = new MajorMutator(javaFiles, fullyQualifiedNames, projectLocation, binLocation);
+		mutator.readMutants();
+		// Test classes are loaded, without being initialized, to identify the tests
+		ClassLoader classLoader = new URLClassLoader(
+				new URL[] { new File(binLocation).toURI().toURL(), new File(testLocation).toURI().toURL() },
+				Config.class.getClassLoader());
+		return KillMatrixFile.read(Paths.get(projectLocation, KillMatrixFile.FILE_NAME), mutator, classLoader);
+	}
+}
@@ -1,34 +1,21 @@
 package ui;
 
 import java.io.File;
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.text.DecimalFormat;
-import java.util.Collection;
-import java.util.StringJoiner;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.IWorkbenchWindowActionDelegate;
-import org.eclipse.ui.PartInitException;
-import org.eclipse.ui.PlatformUI;
 
-import analyzer.MajorMutantAnalyzer;
-import analyzer.MutantAnalyzer;
 import eclipseFacade.EclipseFacade;
 import eclipseFacade.JavaFileNotSelectedException;
 import eclipseFacade.SelectionNotAdaptableException;
-import major.mutation.Config;
-import mutator.MajorMutator;
-import mutator.MutateException;
-import mutator.Mutator;
-import util.ExtendedTestFinder;
 
 /**
  * Most of this class, including the comments, were auto generated by Eclipse.
@@ -37,11 +24,16 @@ import util.ExtendedTestFinder;
  * <p>
  * <p>
  * This program generates and compiles mutants in the selected java file and
- * runs tests against the mutants. This program produces the mutants.log file, a
- * mutants folder containing mutated source files, and a CSV file,
- * killMatrix.csv, all in the java project's directory. killMatrix.csv contains
- * information about which mutants are killed by which test. Also, this program
- * opens up this plugin's view (MutantView.java).
+ * runs tests against the mutants. If a package, source folder or project is
+ * selected instead, all of its java files, except the tests, are mutated
+ * together: they are compiled at once and their mutants are analyzed in a
+ * single run. This program produces the mutants.log file and a CSV file,
+ * killMatrix.csv, both in the java project's directory. killMatrix.csv
+ * contains information about which mutants are killed by which test. Also,
+ * this program opens up this plugin's view (MutantView.java), from which the
+ * mutated source file of a mutant is written to the project's mutants folder
+ * when it is opened. All of this is done in the background by a MutationJob,
+ * so the workbench stays responsive.
  * 
  * @author Raymond Tang
  *         <p>
@@ -66,8 +58,9 @@ public class MutantAction implements IWorkbenchWindowActionDelegate {
 
 	/**
 	 * This method is invoked when this plugin's button is clicked. This method
-	 * finds the selected java file's file path, project path, test path, and
-	 * bin path, and performs mutation testing.
+	 * finds the file paths of the selected java files, their project's path,
+	 * test path, and bin path, and schedules a MutationJob performing mutation
+	 * testing.
 	 * <p>
 	 * <p>
 	 * Auto generated comment by Eclipse:
@@ -80,129 +73,33 @@ public class MutantAction implements IWorkbenchWindowActionDelegate {
 	 */
 	public void run(IAction action) {
 		try {
-			// Get selected java file (the highlighted java file in the package
-			// explorer)
-			ICompilationUnit fileToMutate = EclipseFacade.getSelectedJavaFile();
-			String fileToMutateLocation = EclipseFacade.getAdaptableSelectionLocation(fileToMutate);
-			String projectLocation = EclipseFacade.getAdaptableSelectionLocation(fileToMutate.getJavaProject());
-			String binLocation = EclipseFacade.getBinLocation(fileToMutate.getJavaProject());
-			String testLocation = EclipseFacade.getTestLocation(fileToMutate.getJavaProject());
-			// Generate and compile mutants in the selected java file
-			Mutator mutator = mutate(fileToMutateLocation, projectLocation, binLocation);
-			// Create a classloader which puts the bin and test directories on
-			// the classpath
-			ClassLoader classLoader = configureClassLoader(binLocation, testLocation);
-			// Create MutantAnalyzer
-			MutantAnalyzer analyzer = createKillMatrix(testLocation, classLoader, mutator);
-			analyzer.exportKillMatrixCSV();
-			// Open view
-			openView(analyzer);
-			// Display summary of mutation results
-			displayMutationSummary(analyzer);
-		} catch (JavaFileNotSelectedException | SelectionNotAdaptableException | JavaModelException e) {
-			MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", "Error: A Java file is not selected");
-		} catch (MutateException e) {
-			MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", "Error: Could not compile mutants");
-		} catch (IOException e) {
-			MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", "Error: " + e.getMessage());
-		} catch (ClassNotFoundException e) {
-			StringJoiner errorMessageJoiner = new StringJoiner("\n");
-			errorMessageJoiner.add("Error: " + e.getMessage());
-			errorMessageJoiner.add("");
-			errorMessageJoiner.add("ClassNotFoundException occurred at");
-			for (StackTraceElement stackTraceElement : e.getStackTrace()) {
-				errorMessageJoiner.add(stackTraceElement.toString());
-			}
-			MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", errorMessageJoiner.toString());
-		} catch (PartInitException e) {
-			MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", "Error: Could not open Mutants view");
-		} catch (Exception e) {
-			StringJoiner errorMessageJoiner = new StringJoiner("\n");
-			String message = e.getMessage() != null ? "Unexpected error: " + e.getMessage() : "Unexpected error";
-			errorMessageJoiner.add(message);
-			errorMessageJoiner.add("");
-			errorMessageJoiner.add("Exception of type " + e.getClass().getName() + " occurred at");
-			for (StackTraceElement stackTraceElement : e.getStackTrace()) {
-				errorMessageJoiner.add(stackTraceElement.toString());
+			// Get selected java files (the highlighted java files, packages,
+			// source folders or project in the package explorer)
+			List<ICompilationUnit> selectedFiles = EclipseFacade.getSelectedJavaFiles();
+			IJavaProject project = selectedFiles.get(0).getJavaProject();
+			String projectLocation = EclipseFacade.getAdaptableSelectionLocation(project);
+			String binLocation = EclipseFacade.getBinLocation(project);
+			String testLocation = EclipseFacade.getTestLocation(project);
+			List<String> filesToMutateLocations = new ArrayList<String>();
+			for (ICompilationUnit fileToMutate : selectedFiles) {
+				// Files of other projects are compiled against another
+				// classpath, and tests are run against mutants rather than
+				// mutated
+				String fileToMutateLocation = EclipseFacade.getAdaptableSelectionLocation(fileToMutate);
+				if (project.equals(fileToMutate.getJavaProject())
+						&& !fileToMutateLocation.startsWith(testLocation + File.separator))
+					filesToMutateLocations.add(fileToMutateLocation);
 			}
-			MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", errorMessageJoiner.toString());
+			if (filesToMutateLocations.isEmpty())
+				throw new JavaFileNotSelectedException("Selection only contains tests");
+			// Generate mutants and run tests against them in the background
+			new MutationJob(window, filesToMutateLocations, projectLocation, binLocation, testLocation).schedule();
+		} catch (JavaFileNotSelectedException | SelectionNotAdaptableException | JavaModelException e) {
+			MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant",
+					"Error: A Java file, package, source folder or project is not selected");
 		}
 	}
 
-	private Mutator mutate(String fileToMutateLocation, String projectLocation, String binLocation)
-			throws IOException, MutateException {
-		File file = new File(fileToMutateLocation);
-		// Fully qualified name of the file
-		String fullyQualifiedName = getFullyQualifiedName(fileToMutateLocation, projectLocation);
-		// Mutate the java file
-		Mutator mutator = new MajorMutator(file, fullyQualifiedName, projectLocation, binLocation);
-		mutator.setExportMutants(true);
-		mutator.mutate();
-		return mutator;
-	}
-
-	private ClassLoader configureClassLoader(String binLocation, String testLocation) throws MalformedURLException {
-		// Add bin and test directories of the java project to the classpath
-		URLClassLoader urlClassLoader = new URLClassLoader(
-				new URL[] { new File(binLocation).toURI().toURL(), new File(testLocation).toURI().toURL() },
-				Config.class.getClassLoader());
-		Thread.currentThread().setContextClassLoader(urlClassLoader);
-		return urlClassLoader;
-	}
-
-	private MutantAnalyzer createKillMatrix(String testLocation, ClassLoader urlClassLoader, Mutator mutator)
-			throws ClassNotFoundException {
-		// Get test classes
-		Collection<Class<?>> testClasses = ExtendedTestFinder.getTestClasses(testLocation, urlClassLoader);
-		// Create MutantAnalyzer
-		MutantAnalyzer analyzer = new MajorMutantAnalyzer(mutator, testClasses);
-		return analyzer;
-	}
-
-	private void openView(MutantAnalyzer analyzer) throws PartInitException {
-		// Open view
-		String viewId = MutantView.ID;
-		MutantView view = (MutantView) PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage()
-				.showView(viewId);
-		view.setMutantAnalyzer(analyzer);
-	}
-
-	private void displayMutationSummary(MutantAnalyzer analyzer) {
-		int numCoveredMutants = analyzer.getNumberOfCoveredMutants();
-		int numKilledMutants = analyzer.getNumberOfKilledMutants();
-		int totalNumMutants = analyzer.getNumberOfMutants();
-		double mutationScore = analyzer.getMutationScore();
-
-		StringJoiner summaryMessageJoiner = new StringJoiner("\n");
-		String formattedMutationScore = new DecimalFormat("#.##").format(mutationScore);
-		summaryMessageJoiner.add("Mutation Score: " + formattedMutationScore);
-		summaryMessageJoiner.add("");
-		summaryMessageJoiner.add("Total number of mutants: " + totalNumMutants);
-		summaryMessageJoiner.add("Number of mutants covered: " + numCoveredMutants);
-		summaryMessageJoiner.add("Number of mutants killed: " + numKilledMutants);
-
-		MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", summaryMessageJoiner.toString());
-	}
-
-	/**
-	 * This method returns the fully qualified name of the file to mutate.
-	 * 
-	 * @param fileLocation
-	 *            the location of the file to mutate
-	 * @param projectLocation
-	 *            the location of the java file's project
-	 * @return the fully qualified name of the file to mutate
-	 */
-	private static String getFullyQualifiedName(String fileLocation, String projectLocation) {
-		char FILE_SEPARATOR = File.separatorChar;
-		int projectPathLength = projectLocation.length();
-		int filePathLength = fileLocation.length();
-		// The (projectPathLength + 5) gets rid of project's path + "/src/" from
-		// the pathname and
-		// the (filePathLength - 5) gets rid of the ".java" file extension
-		return fileLocation.substring(projectPathLength + 5, filePathLength - 5).replace(FILE_SEPARATOR, '.');
-	}
-
 	/**
 	 * Auto generated comment by Eclipse:
 	 * <p>
@@ -1,12 +1,11 @@
 package ui;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.List;
-import java.util.StringTokenizer;
+import java.io.IOException;
 
 import analyzer.Mutant;
 import eclipseFacade.EclipseFacade;
+import mutator.MutantsLog;
 import mutator.Mutator;
 
 /**
@@ -17,8 +16,6 @@ import mutator.Mutator;
  *
  */
 public class MutantHighlighter {
-	// File separator. Differs depending on operating system
-	private static final char FILE_SEPARATOR = File.separatorChar;
 	// A mutator containing information about mutants
 	private Mutator mutator;
 	
@@ -35,16 +32,14 @@ public class MutantHighlighter {
 	 * @return true for success, false otherwise
 	 */
 	public boolean highlightMutantInSource(Mutant mutant) {
-		File exportDirectory = mutator.getExportDirectory();
-		if(!exportDirectory.exists() || exportDirectory.list().length <= 0) return false;
 		try {
 			int mutantID = mutant.getID();
-			List<String> log = mutator.getMutantsLog();
-			if(mutantID < 1 || mutantID > log.size()) return false;
-			String logLine = log.get(mutantID - 1);
-			int mutantLineNumber = this.getMutantLineNumber(logLine);
-			return EclipseFacade.highlightLine(mutator.getJavaFile(), mutantLineNumber);
-		} catch (FileNotFoundException e) {
+			MutantsLog log = mutator.getMutantsLogIndex();
+			if(!log.contains(mutantID)) return false;
+			int mutantLineNumber = log.getLineNumber(mutantID);
+			// The mutant may occur in any of the java files mutated together
+			return EclipseFacade.highlightLine(mutator.getJavaFile(mutant), mutantLineNumber);
+		} catch (IOException e) {
 			return false;
 		}
 	}
@@ -58,46 +53,16 @@ public class MutantHighlighter {
 	 * @return true for success, false otherwise
 	 */
 	public boolean highlightMutantInMutatedSource(Mutant mutant) {
-		File exportDirectory = mutator.getExportDirectory();
-		if(!exportDirectory.exists() || exportDirectory.list().length <= 0) return false;
 		try {
 			int mutantID = mutant.getID();
-			List<String> log = mutator.getMutantsLog();
-			if(mutantID <= 0 || mutantID > log.size()) return false;
-			String logLine = log.get(mutantID - 1);
-			String fullyQualifiedPath = mutator.getFullyQualifiedNameOfJavaFile().replace('.', FILE_SEPARATOR);
-			// Here we assume a particular file system structure for finding mutated source files
-			// E.g., for mutant 5, its file path should be exportDirectory/5/packageName/sourceFileName
-			String mutatedFileLocation = exportDirectory.getAbsolutePath() + FILE_SEPARATOR +
-										 String.valueOf(mutantID) + 
-										 FILE_SEPARATOR + fullyQualifiedPath + ".java";
-			File mutatedFile = new File(mutatedFileLocation);
-			int mutantLineNumber = this.getMutantLineNumber(logLine);
+			MutantsLog log = mutator.getMutantsLogIndex();
+			if(!log.contains(mutantID)) return false;
+			// The mutated source file is generated if mutant source files were not exported
+			File mutatedFile = mutator.getMutatedSourceFile(mutant);
+			int mutantLineNumber = log.getLineNumber(mutantID);
 			return EclipseFacade.highlightLine(mutatedFile, mutantLineNumber);
-		} catch (FileNotFoundException e) {
+		} catch (IOException e) {
 			return false;
 		}
 	}
-	
-	/**
-	 * Returns the number of the source file line on which the mutant corresponding
-	 * with the given mutants.log line occurs. 
-	 * 
-	 * An IllegalArgumentException is thrown if the given log line is null.
-	 * 
-	 * @param logLine a line in mutants.log
-	 * @return the number of the source file line on which the mutant corresponding
-	 * 		   with the given mutants.log line occurs
-	 */
-	private int getMutantLineNumber(String logLine) {
-		// For any given line in mutants.log, the number of the source file line
-		// on which the mutant occurs is the number just before the last colon
-		if(logLine == null) throw new IllegalArgumentException("logLine cannot be null");
-		String reverseLine = new StringBuilder(logLine).reverse().toString();
-		StringTokenizer tokenizer = new StringTokenizer(reverseLine);
-		tokenizer.nextToken(":");
-		String reversedLineNoStr = tokenizer.nextToken(":");
-		String lineNoStr = new StringBuilder(reversedLineNoStr).reverse().toString();
-		return Integer.parseInt(lineNoStr);
-	}
 }
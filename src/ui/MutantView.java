@@ -1,8 +1,17 @@
 package ui;
 
 import java.io.FileNotFoundException;
-import java.util.List;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
@@ -16,7 +25,11 @@ import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.ISharedImages;
@@ -24,12 +37,19 @@ import org.eclipse.ui.IWorkbenchActionConstants;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.ViewPart;
 
+import analyzer.AnalysisListener;
+import analyzer.AnalysisPhase;
 import analyzer.Mutant;
 import analyzer.MutantAnalyzer;
+import analyzer.MutantStatus;
+import analyzer.Outcome;
+import analyzer.WorkOrder;
+import eclipseFacade.EclipseFacade;
+import eclipseFacade.SelectionNotAdaptableException;
+import mutator.MutantsLog;
 import mutator.Mutator;
 import ui.comparators.AliveAndCoveredMutantComparator;
 import ui.comparators.KilledMutantComparator;
-import ui.comparators.MutantIDComparator;
 import ui.comparators.UncoveredMutantComparator;
 import ui.providers.ImageLabelProvider;
 import ui.providers.MutantProvider;
@@ -41,6 +61,8 @@ import ui.providers.MutantProvider;
  * displays whether the mutant was killed or not after running tests against it.
  * Double-clicking on a mutant will open up the source file that was mutated
  * and highlight the line on which the mutant occurs.
+ * The view may be attached to a running analysis, in which case mutants and
+ * the mutation score in the header are updated as results arrive.
  * 
  * @author Raymond Tang
  * 
@@ -63,7 +85,10 @@ public class MutantView extends ViewPart {
 	 * The ID of the view as specified by the extension.
 	 */
 	public static final String ID = "org.rayzor.mutantview.views.MutantView";
+	// Minimum number of milliseconds between two refreshes of the view while an analysis is running
+	private static final int REFRESH_INTERVAL = 200;
 
+	private Label header;
 	private TableViewer viewer;
 	private MutantProvider mutantIDProvider;
 	private ImageLabelProvider imageLabelProvider;
@@ -74,11 +99,14 @@ public class MutantView extends ViewPart {
 	private Action sortAliveAndCoveredFirst;
 	private Action sortUncoveredFirst;
 	private Action sortIDAsc;
+	private Action loadResults;
 	private Action doubleClickAction;
 	// Mutator which contains information about mutants for some java file
 	private Mutator mutator = null;
 	// MutantAnalyzer which contains information about mutants and tests for some java file
 	private MutantAnalyzer analyzer = null;
+	// Forwards the results of the running analysis this view is attached to, if any
+	private LiveUpdater liveUpdater = null;
 
 	/**
 	 * The constructor.
@@ -91,12 +119,15 @@ public class MutantView extends ViewPart {
 	 * to create the viewer and initialize it.
 	 */
 	public void createPartControl(Composite parent) {
-		viewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL);
+		parent.setLayout(new GridLayout(1, false));
+		header = new Label(parent, SWT.NONE);
+		header.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+		viewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.VIRTUAL);
+		viewer.getControl().setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
 		mutantIDProvider = new MutantProvider();
 		imageLabelProvider = new ImageLabelProvider();
 		viewer.setContentProvider(mutantIDProvider);
 		viewer.setLabelProvider(imageLabelProvider);
-		viewer.setComparator(new MutantIDComparator());
 		viewer.setInput(getViewSite());
 
 		// Create the help context id for the viewer's control
@@ -142,6 +173,8 @@ public class MutantView extends ViewPart {
 		manager.add(sortAliveAndCoveredFirst);
 		manager.add(sortUncoveredFirst);
 		manager.add(sortIDAsc);
+		manager.add(new Separator());
+		manager.add(loadResults);
 	}
 
 	/**
@@ -153,6 +186,8 @@ public class MutantView extends ViewPart {
 		manager.add(displayMutant);
 		manager.add(highlightMutantInSource);
 		manager.add(highlightMutantInMutatedSource);
+		manager.add(new Separator());
+		manager.add(loadResults);
 		// Other plug-ins can contribute there actions here
 		manager.add(new Separator(IWorkbenchActionConstants.MB_ADDITIONS));
 	}
@@ -180,6 +215,7 @@ public class MutantView extends ViewPart {
 		createSortAliveAndCoveredFirstAction();
 		createSortUncoveredFirstAction();
 		createSortIDAscAction();
+		createLoadResultsAction();
 		createDoubleClickAction();
 	}
 	
@@ -191,12 +227,14 @@ public class MutantView extends ViewPart {
 				Object obj = ((IStructuredSelection)selection).getFirstElement();
 				int mutantID = ((Mutant)obj).getID();
 				try {
-					List<String> mutantsLog = mutator.getMutantsLog();
-					String logLine = mutantsLog.get(mutantID - 1);
-					showMessage(logLine);
+					MutantsLog mutantsLog = mutator.getMutantsLogIndex();
+					if (mutantsLog.contains(mutantID))
+						showMessage(mutantsLog.getLine(mutantID));
 					
 				} catch (FileNotFoundException e) {
 					showMessage("mutants.log not found");
+				} catch (IOException e) {
+					showMessage("mutants.log could not be read");
 				}
 			}
 		};
@@ -227,7 +265,8 @@ public class MutantView extends ViewPart {
 				Object obj = ((IStructuredSelection)selection).getFirstElement();
 				Mutant mutant = (Mutant)obj;
 				MutantHighlighter highlighter = new MutantHighlighter(mutator);
-				highlighter.highlightMutantInMutatedSource(mutant);
+				if (!highlighter.highlightMutantInMutatedSource(mutant))
+					showMessage("The mutated source file could not be opened");
 			}
 		};
 		highlightMutantInMutatedSource.setText("Highlight Mutant in Mutated Source File");		
@@ -239,7 +278,7 @@ public class MutantView extends ViewPart {
 			public void run() {
 				KilledMutantComparator comparator = new KilledMutantComparator();
 				comparator.setKillMatrix(analyzer);
-				viewer.setComparator(comparator);
+				mutantIDProvider.setComparator(comparator);
 			}
 		};
 		sortKilledFirst.setText("Show Killed Mutants First");
@@ -254,7 +293,7 @@ public class MutantView extends ViewPart {
 			public void run() {
 				AliveAndCoveredMutantComparator comparator = new AliveAndCoveredMutantComparator();
 				comparator.setKillMatrix(analyzer);
-				viewer.setComparator(comparator);
+				mutantIDProvider.setComparator(comparator);
 			}
 		};
 		sortAliveAndCoveredFirst.setText("Show Alive and Covered Mutants First");
@@ -269,7 +308,7 @@ public class MutantView extends ViewPart {
 			public void run() {
 				UncoveredMutantComparator comparator = new UncoveredMutantComparator();
 				comparator.setKillMatrix(analyzer);
-				viewer.setComparator(comparator);
+				mutantIDProvider.setComparator(comparator);
 			}
 		};
 		sortUncoveredFirst.setText("Show Uncovered Mutants First");
@@ -282,7 +321,7 @@ public class MutantView extends ViewPart {
 		// Sorts mutants listed in the view using the MutantComparator
 		sortIDAsc = new Action() {
 			public void run() {
-				viewer.setComparator(new MutantIDComparator());
+				mutantIDProvider.setComparator(null);
 			}
 		};
 		sortIDAsc.setText("Sort by ID");
@@ -291,6 +330,28 @@ public class MutantView extends ViewPart {
 				getImageDescriptor(ISharedImages.IMG_DEF_VIEW));
 	}
 	
+	private void createLoadResultsAction() {
+		// Shows the results of the last run in the project selected in the
+		// Package Explorer, read from its killMatrix.bin without running any test
+		loadResults = new Action() {
+			public void run() {
+				try {
+					IJavaProject project = EclipseFacade.getSelectedJavaProject();
+					String projectLocation = EclipseFacade.getAdaptableSelectionLocation(project);
+					MutantAnalyzer storedAnalyzer = KillMatrixLoader.load(projectLocation,
+							EclipseFacade.getBinLocation(project), EclipseFacade.getTestLocation(project));
+					setMutantAnalyzer(storedAnalyzer);
+				} catch (SelectionNotAdaptableException | JavaModelException e) {
+					showMessage("Error: A java project is not selected in the Package Explorer");
+				} catch (IOException e) {
+					showMessage("Error: The results could not be loaded: " + e.getMessage());
+				}
+			}
+		};
+		loadResults.setText("Load Results of Selected Project");
+		loadResults.setToolTipText("Load Results of Selected Project");
+	}
+	
 	private void createDoubleClickAction() {
 		// Double click on a mutant to highlight the line in the 
 		// source file in which the mutant occurs
@@ -336,17 +397,208 @@ public class MutantView extends ViewPart {
 	}
 	
 	/**
-	 * Provides a MutantAnalyzer to this view. 
+	 * Provides a MutantAnalyzer which has completed its analysis to this view
+	 * and displays a summary of its results in the header.
+	 * This must be called on the UI thread.
 	 * 
 	 * @param analyzer a MutantAnalyzer
 	 */
 	public void setMutantAnalyzer(MutantAnalyzer analyzer) {
+		stopLiveUpdates();
 		this.mutator = analyzer.getMutator();
 		this.analyzer = analyzer;
 		mutantIDProvider.setMutator(mutator);
 		imageLabelProvider.setMutantAnalyzer(this.analyzer);
+		imageLabelProvider.setMutantStatuses(null);
 		viewer.setContentProvider(mutantIDProvider);
 		viewer.setLabelProvider(imageLabelProvider);
+		setSortByStatusEnabled(true);
+		String formattedMutationScore = new DecimalFormat("#.##").format(analyzer.getMutationScore());
+		setHeader("Mutation Score: " + formattedMutationScore + "   Mutants: " + analyzer.getNumberOfMutants()
+				+ "   Covered: " + analyzer.getNumberOfCoveredMutants() + "   Killed: "
+				+ analyzer.getNumberOfKilledMutants());
+	}
+	
+	/**
+	 * Attaches this view to a MutantAnalyzer whose analysis has not started yet.
+	 * All mutants are listed as pending, and are updated as the analysis
+	 * completes them. Updates are coalesced, so that the view is refreshed at
+	 * most once every REFRESH_INTERVAL milliseconds however fast results arrive.
+	 * Once the analysis finishes, the view behaves as if
+	 * setMutantAnalyzer(MutantAnalyzer) had been called.
+	 * This must be called on the UI thread.
+	 * 
+	 * @param analyzer a MutantAnalyzer whose analysis has not started yet
+	 */
+	public void attachMutantAnalyzer(MutantAnalyzer analyzer) {
+		stopLiveUpdates();
+		this.mutator = analyzer.getMutator();
+		this.analyzer = analyzer;
+		liveUpdater = new LiveUpdater(analyzer, viewer.getControl().getDisplay());
+		mutantIDProvider.setMutator(mutator);
+		imageLabelProvider.setMutantAnalyzer(this.analyzer);
+		imageLabelProvider.setMutantStatuses(liveUpdater.statuses);
+		viewer.setContentProvider(mutantIDProvider);
+		viewer.setLabelProvider(imageLabelProvider);
+		// Sorting by status needs the complete results of the analysis
+		setSortByStatusEnabled(false);
+		setHeader(liveUpdater.getSummary());
+		analyzer.addAnalysisListener(liveUpdater);
+	}
+	
+	/**
+	 * Detaches this view from the given MutantAnalyzer if its analysis stopped
+	 * before finishing, e.g. because it was canceled. Mutants completed so far
+	 * keep their status, and the others stay pending.
+	 * This must be called on the UI thread.
+	 * 
+	 * @param analyzer the MutantAnalyzer whose analysis stopped
+	 */
+	public void detachMutantAnalyzer(MutantAnalyzer analyzer) {
+		if(liveUpdater == null || liveUpdater.analyzer != analyzer) return;
+		LiveUpdater stoppedUpdater = liveUpdater;
+		stopLiveUpdates();
+		viewer.refresh();
+		setHeader(stoppedUpdater.getSummary() + "   (stopped)");
+	}
+	
+	@Override
+	public void dispose() {
+		stopLiveUpdates();
+		super.dispose();
 	}
 	
+	/**
+	 * Stops forwarding the results of the running analysis this view is attached to, if any.
+	 */
+	private void stopLiveUpdates() {
+		if(liveUpdater == null) return;
+		liveUpdater.analyzer.removeAnalysisListener(liveUpdater);
+		liveUpdater = null;
+	}
+	
+	private void setSortByStatusEnabled(boolean enabled) {
+		sortKilledFirst.setEnabled(enabled);
+		sortAliveAndCoveredFirst.setEnabled(enabled);
+		sortUncoveredFirst.setEnabled(enabled);
+	}
+	
+	private void setHeader(String text) {
+		header.setText(text);
+		header.getParent().layout();
+	}
+	
+	/**
+	 * Collects the results of a running analysis on the thread running it, and
+	 * refreshes the view with all results collected since the last refresh on
+	 * the UI thread. At most one refresh is pending at any time.
+	 */
+	private class LiveUpdater implements AnalysisListener {
+		// The analyzer whose results are collected
+		private final MutantAnalyzer analyzer;
+		// The display of the view
+		private final Display display;
+		// Statuses of the mutants completed so far, by mutant ID
+		private final Map<Integer, MutantStatus> statuses = new ConcurrentHashMap<Integer, MutantStatus>();
+		// Mutants completed since the last refresh
+		private final Queue<Mutant> completedMutants = new ConcurrentLinkedQueue<Mutant>();
+		// Number of mutants completed so far with each status
+		private final AtomicInteger numKilled = new AtomicInteger();
+		private final AtomicInteger numAlive = new AtomicInteger();
+		private final AtomicInteger numUncovered = new AtomicInteger();
+		// Number of WorkOrders completed so far
+		private final AtomicInteger numWorkOrders = new AtomicInteger();
+		// Whether a refresh is pending
+		private final AtomicBoolean refreshPending = new AtomicBoolean();
+		// Whether the analysis has finished
+		private volatile boolean finished = false;
+		// The phase the analysis is in, or null if it has not started
+		private volatile AnalysisPhase phase = null;
+		
+		// Refreshes the view on the UI thread
+		private final Runnable refresh = new Runnable() {
+			public void run() {
+				refreshPending.set(false);
+				// The view may have been closed or attached to another analysis meanwhile
+				if(liveUpdater != LiveUpdater.this || viewer.getControl().isDisposed()) return;
+				if(finished) {
+					setMutantAnalyzer(analyzer);
+					viewer.refresh();
+					return;
+				}
+				// Only rows which are visible are provided again
+				Mutant mutant;
+				while((mutant = completedMutants.poll()) != null) {
+					int row = mutantIDProvider.getRow(mutant);
+					if(row >= 0) viewer.getTable().clear(row);
+				}
+				setHeader(getSummary());
+			}
+		};
+		
+		LiveUpdater(MutantAnalyzer analyzer, Display display) {
+			this.analyzer = analyzer;
+			this.display = display;
+		}
+		
+		@Override
+		public void phaseStarted(AnalysisPhase phase, int totalWork) {
+			this.phase = phase;
+			scheduleRefresh();
+		}
+		
+		@Override
+		public void workOrderCompleted(WorkOrder workOrder, Outcome outcome) {
+			numWorkOrders.incrementAndGet();
+			scheduleRefresh();
+		}
+		
+		@Override
+		public void mutantCompleted(Mutant mutant, MutantStatus status) {
+			statuses.put(mutant.getID(), status);
+			if(status == MutantStatus.KILLED) numKilled.incrementAndGet();
+			else if(status == MutantStatus.ALIVE) numAlive.incrementAndGet();
+			else numUncovered.incrementAndGet();
+			completedMutants.add(mutant);
+			scheduleRefresh();
+		}
+		
+		@Override
+		public void analysisFinished(MutantAnalyzer analyzer) {
+			finished = true;
+			scheduleRefresh();
+		}
+		
+		/**
+		 * Schedules a refresh of the view in REFRESH_INTERVAL milliseconds,
+		 * unless one is already pending, in which case it will include the
+		 * results collected until then.
+		 */
+		private void scheduleRefresh() {
+			if(!refreshPending.compareAndSet(false, true)) return;
+			if(display.isDisposed()) return;
+			display.asyncExec(new Runnable() {
+				public void run() {
+					if(!display.isDisposed()) display.timerExec(REFRESH_INTERVAL, refresh);
+				}
+			});
+		}
+		
+		/**
+		 * Returns a summary of the results collected so far.
+		 * 
+		 * @return a summary of the results collected so far
+		 */
+		private String getSummary() {
+			if(phase == null) return "Waiting for tests to start";
+			if(phase == AnalysisPhase.COVERAGE) return phase.getDescription();
+			int numMutants = analyzer.getMutator().getNumberOfMutants();
+			int killed = numKilled.get();
+			int numPending = numMutants - killed - numAlive.get() - numUncovered.get();
+			double mutationScore = numMutants == 0 ? 0 : (double) killed / numMutants * 100;
+			return "Mutation Score: " + new DecimalFormat("#.##").format(mutationScore) + " so far   Killed: "
+					+ killed + "   Alive: " + numAlive.get() + "   Uncovered: " + numUncovered.get()
+					+ "   Pending: " + numPending + "   Tests run: " + numWorkOrders.get();
+		}
+	}
 }
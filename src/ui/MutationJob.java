@@ -0,0 +1,391 @@
+package ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PartInitException;
+import org.hamcrest.Matcher;
+import org.junit.runner.JUnitCore;
+
+import activator.PluginActivator;
+import analyzer.AnalysisHistory;
+import analyzer.AnalysisMonitor;
+import analyzer.AnalysisSettings;
+import analyzer.AnalyzeException;
+import analyzer.ExecutionMode;
+import analyzer.MajorMutantAnalyzer;
+import analyzer.MutantAnalyzer;
+import analyzer.ThreadScopedClassLoader;
+import eclipseFacade.EclipseFacade;
+import major.mutation.Config;
+import mutator.MajorMutator;
+import mutator.MutateException;
+import mutator.Mutator;
+import util.ExtendedTestFinder;
+
+/**
+ * A MutationJob performs mutation testing on one or more java files in the
+ * background: it generates and compiles mutants, runs the tests against them,
+ * and exports the kill matrix. Several java files are compiled in a single
+ * javac invocation, and their mutants are analyzed together, so that tests are
+ * found and run against the original program only once for all of them.
+ * How tests are run against mutants is chosen on this plugin's preference
+ * page (see MutationPreferences); if chosen there, results of the previous run
+ * in the project whose inputs did not change are carried forward instead of
+ * running their tests again (see AnalysisHistory).
+ * Its progress, including the throughput and estimated time left of running
+ * tests, is reported to the job's progress monitor, and it can be canceled at
+ * any time. Before running the tests, it opens this plugin's view
+ * (MutantView.java) on the analysis, so that the view shows the results as
+ * they arrive and a summary of them once done.
+ * 
+ * MutationJobs run one at a time, since mutated classes share
+ * major.mutation.Config, but they do not lock any workspace resources, so the
+ * workspace builder is never blocked by a MutationJob.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class MutationJob extends Job {
+	// The scheduling rule shared by all MutationJobs
+	private static final ISchedulingRule MUTATION_RULE = new ISchedulingRule() {
+		@Override
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		@Override
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule == this;
+		}
+	};
+	// Ticks of the progress monitor given to generating and compiling mutants
+	private static final int COMPILE_TICKS = 10;
+	// Ticks of the progress monitor given to running tests against the original program
+	private static final int COVERAGE_TICKS = 20;
+	// Ticks of the progress monitor given to running tests against mutants
+	private static final int EXECUTION_TICKS = 65;
+	// Ticks of the progress monitor given to exporting the kill matrix
+	private static final int EXPORT_TICKS = 5;
+	// Prefix of the directory to which a run compiles mutated classes
+	private static final String MUTANT_BIN_PREFIX = "mutants";
+	// The window from which mutation testing was started
+	private final IWorkbenchWindow window;
+	// Locations of the java files to mutate
+	private final List<String> filesToMutateLocations;
+	// Location of the java files' project
+	private final String projectLocation;
+	// Location of the project's bin directory
+	private final String binLocation;
+	// Location of the project's test directory
+	private final String testLocation;
+
+	public MutationJob(IWorkbenchWindow window, List<String> filesToMutateLocations, String projectLocation,
+			String binLocation, String testLocation) {
+		super("Mutation testing " + (filesToMutateLocations.size() == 1
+				? new File(filesToMutateLocations.get(0)).getName()
+				: filesToMutateLocations.size() + " java files"));
+		this.window = window;
+		this.filesToMutateLocations = new ArrayList<String>(filesToMutateLocations);
+		this.projectLocation = projectLocation;
+		this.binLocation = binLocation;
+		this.testLocation = testLocation;
+		setRule(MUTATION_RULE);
+		setUser(true);
+		setPriority(LONG);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor, getName(),
+				COMPILE_TICKS + COVERAGE_TICKS + EXECUTION_TICKS + EXPORT_TICKS);
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		MajorMutantAnalyzer analyzer = null;
+		boolean finished = false;
+		File mutantBin = null;
+		try {
+			// Generate and compile mutants in the selected java files, into a
+			// directory private to this run rather than the project's bin
+			progress.subTask("Generating and compiling mutants");
+			mutantBin = createMutantBinDirectory();
+			Mutator mutator = mutate(filesToMutateLocations, projectLocation, mutantBin.getPath());
+			progress.worked(COMPILE_TICKS);
+			if (progress.isCanceled())
+				return Status.CANCEL_STATUS;
+			// Create a classloader which puts the mutated classes, the bin and
+			// the test directories on the classpath
+			ClassLoader classLoader = configureClassLoader(mutantBin, binLocation, testLocation, mutator);
+			// Decide how tests are run against mutants
+			AnalysisSettings settings = configureAnalysisSettings(mutantBin, binLocation, testLocation);
+			// Create MutantAnalyzer
+			progress.subTask("Finding tests");
+			AnalysisMonitor analysisMonitor = new ProgressAnalysisMonitor(
+					progress.newChild(COVERAGE_TICKS + EXECUTION_TICKS), COVERAGE_TICKS, EXECUTION_TICKS);
+			analyzer = createMutantAnalyzer(testLocation, classLoader, mutator, settings);
+			// Carry forward the results of the previous run which still hold
+			analyzer.setAnalysisHistory(readAnalysisHistory(projectLocation));
+			// Show the results in the view as they arrive
+			attachView(analyzer);
+			analyzer.analyze(analysisMonitor);
+			finished = true;
+			progress.subTask("Exporting kill matrix");
+			analyzer.exportKillMatrixCSV();
+			analyzer.exportKillMatrix();
+			analyzer.exportAnalysisHistory();
+			progress.worked(EXPORT_TICKS);
+			return Status.OK_STATUS;
+		} catch (MutateException e) {
+			showMessage("Error: Could not compile mutants");
+		} catch (IOException e) {
+			showMessage("Error: " + e.getMessage());
+		} catch (AnalyzeException e) {
+			if (progress.isCanceled())
+				return Status.CANCEL_STATUS;
+			String message = e.getCause() != null ? e.getMessage() + ": " + e.getCause().getMessage() : e.getMessage();
+			showMessage("Error: " + message);
+		} catch (ClassNotFoundException e) {
+			StringJoiner errorMessageJoiner = new StringJoiner("\n");
+			errorMessageJoiner.add("Error: " + e.getMessage());
+			errorMessageJoiner.add("");
+			errorMessageJoiner.add("ClassNotFoundException occurred at");
+			for (StackTraceElement stackTraceElement : e.getStackTrace()) {
+				errorMessageJoiner.add(stackTraceElement.toString());
+			}
+			showMessage(errorMessageJoiner.toString());
+		} catch (Exception e) {
+			StringJoiner errorMessageJoiner = new StringJoiner("\n");
+			String message = e.getMessage() != null ? "Unexpected error: " + e.getMessage() : "Unexpected error";
+			errorMessageJoiner.add(message);
+			errorMessageJoiner.add("");
+			errorMessageJoiner.add("Exception of type " + e.getClass().getName() + " occurred at");
+			for (StackTraceElement stackTraceElement : e.getStackTrace()) {
+				errorMessageJoiner.add(stackTraceElement.toString());
+			}
+			showMessage(errorMessageJoiner.toString());
+		} finally {
+			if (analyzer != null && !finished)
+				detachView(analyzer);
+			// The mutated classes are only needed while tests run
+			FileUtils.deleteQuietly(mutantBin);
+			Thread.currentThread().setContextClassLoader(contextClassLoader);
+			monitor.done();
+		}
+		// Errors have already been reported to the user
+		return Status.OK_STATUS;
+	}
+
+	private Mutator mutate(List<String> filesToMutateLocations, String projectLocation, String mutantBinLocation)
+			throws IOException, MutateException {
+		List<File> files = new ArrayList<File>();
+		// Fully qualified names of the files
+		List<String> fullyQualifiedNames = new ArrayList<String>();
+		for (String fileToMutateLocation : filesToMutateLocations) {
+			files.add(new File(fileToMutateLocation));
+			fullyQualifiedNames.add(getFullyQualifiedName(fileToMutateLocation, projectLocation));
+		}
+		// Mutate the java files at once, so that their mutants have distinct IDs
+		// Mutant source files are generated on demand instead of being exported
+		Mutator mutator = new MajorMutator(files, fullyQualifiedNames, projectLocation, mutantBinLocation);
+		mutator.setExportMutants(false);
+		mutator.mutate();
+		return mutator;
+	}
+
+	/**
+	 * Returns a new directory to which the mutated classes of this run are
+	 * compiled. The directory is located in the state location of this plugin,
+	 * outside of any project, so that the workspace's builders never see
+	 * mutated classes, and concurrent runs never share it.
+	 */
+	private static File createMutantBinDirectory() throws IOException {
+		PluginActivator plugin = PluginActivator.getDefault();
+		Path parent = plugin != null ? plugin.getStateLocation().toFile().toPath()
+				: Paths.get(System.getProperty("java.io.tmpdir"));
+		return Files.createTempDirectory(parent, MUTANT_BIN_PREFIX).toFile();
+	}
+
+	private ClassLoader configureClassLoader(File mutantBin, String binLocation, String testLocation,
+			Mutator mutator) throws MalformedURLException {
+		// Add the mutated classes, then the bin and test directories of the
+		// java project to the classpath, so that mutated classes shadow the
+		// original ones. Mutated classes are rewritten so that tests may also
+		// be run on several threads, each having its own active mutant. The
+		// mutated classes are taken from memory rather than read back from disk
+		URLClassLoader urlClassLoader = new ThreadScopedClassLoader(
+				new URL[] { mutantBin.toURI().toURL(), new File(binLocation).toURI().toURL(),
+						new File(testLocation).toURI().toURL() },
+				Config.class.getClassLoader(), mutator.getCompiledClasses());
+		Thread.currentThread().setContextClassLoader(urlClassLoader);
+		return urlClassLoader;
+	}
+
+	/**
+	 * Returns the AnalysisSettings chosen on this plugin's preference page
+	 * (see MutationPreferences), which default to those of AnalysisSettings.
+	 */
+	private AnalysisSettings configureAnalysisSettings(File mutantBin, String binLocation, String testLocation) {
+		AnalysisSettings settings = new AnalysisSettings();
+		IPreferenceStore store = MutationPreferences.getPreferenceStore();
+		if (store == null)
+			return settings;
+		ExecutionMode executionMode;
+		try {
+			executionMode = ExecutionMode.valueOf(store.getString(MutationPreferences.EXECUTION_MODE));
+		} catch (IllegalArgumentException e) {
+			executionMode = settings.getExecutionMode();
+		}
+		if (executionMode == ExecutionMode.FORKED) {
+			try {
+				// Worker JVMs need the same classes as the classloader, plus JUnit and
+				// this plugin's classes (e.g. major.mutation.Config)
+				List<File> workerClasspath = new ArrayList<File>();
+				workerClasspath.add(mutantBin);
+				workerClasspath.add(new File(binLocation));
+				workerClasspath.add(new File(testLocation));
+				workerClasspath.addAll(EclipseFacade.getBundleClasspath(MutationJob.class));
+				workerClasspath.addAll(EclipseFacade.getBundleClasspath(JUnitCore.class));
+				workerClasspath.addAll(EclipseFacade.getBundleClasspath(Matcher.class));
+				settings.setWorkerClasspath(workerClasspath);
+			} catch (IOException e) {
+				// Run tests on threads of the current JVM if the worker classpath
+				// cannot be determined
+				executionMode = ExecutionMode.THREAD_SCOPED;
+			}
+		}
+		settings.setExecutionMode(executionMode);
+		settings.setNumberOfWorkers(Math.max(store.getInt(MutationPreferences.NUMBER_OF_WORKERS), 1));
+		settings.setBatchTests(store.getBoolean(MutationPreferences.BATCH_TESTS));
+		// Only run the tests whose inputs changed since the previous run; the
+		// other classes of the project may be used by any test
+		settings.setIncremental(store.getBoolean(MutationPreferences.INCREMENTAL));
+		settings.setDependencies(Collections.singletonList(new File(binLocation)));
+		return settings;
+	}
+
+	/**
+	 * Returns the AnalysisHistory of the previous run in the project at the
+	 * given location, or null if there is none or it could not be read.
+	 */
+	private static AnalysisHistory readAnalysisHistory(String projectLocation) {
+		Path file = Paths.get(projectLocation, AnalysisHistory.FILE_NAME);
+		if (!Files.exists(file))
+			return null;
+		try {
+			return AnalysisHistory.read(file);
+		} catch (IOException e) {
+			// The results of the previous run are not needed for this one
+			return null;
+		}
+	}
+
+	private MajorMutantAnalyzer createMutantAnalyzer(String testLocation, ClassLoader urlClassLoader,
+			Mutator mutator, AnalysisSettings settings) throws ClassNotFoundException {
+		// Get test classes
+		Collection<Class<?>> testClasses = ExtendedTestFinder.getTestClasses(testLocation, urlClassLoader);
+		// Create MutantAnalyzer, which performs mutation testing once analyze is called
+		return new MajorMutantAnalyzer(mutator, testClasses, settings);
+	}
+
+	/**
+	 * Opens this plugin's view and attaches it to the given analyzer, whose
+	 * analysis has not started yet, so that the view shows the mutation results
+	 * as they arrive. This is done on the UI thread, and returns once the view
+	 * is attached, so that no results are missed.
+	 * 
+	 * @param analyzer
+	 *            the analyzer performing the mutation testing
+	 */
+	private void attachView(final MutantAnalyzer analyzer) {
+		window.getShell().getDisplay().syncExec(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					// Open view
+					MutantView view = (MutantView) window.getActivePage().showView(MutantView.ID);
+					view.attachMutantAnalyzer(analyzer);
+				} catch (PartInitException e) {
+					MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant",
+							"Error: Could not open Mutants view");
+				}
+			}
+		});
+	}
+
+	/**
+	 * Detaches this plugin's view from the given analyzer, whose analysis
+	 * stopped before finishing. This is done on the UI thread.
+	 * 
+	 * @param analyzer
+	 *            the analyzer whose analysis stopped
+	 */
+	private void detachView(final MutantAnalyzer analyzer) {
+		window.getShell().getDisplay().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				MutantView view = (MutantView) window.getActivePage().findView(MutantView.ID);
+				if (view != null)
+					view.detachMutantAnalyzer(analyzer);
+			}
+		});
+	}
+
+	/**
+	 * Displays the given message to the user. This is done on the UI thread.
+	 * 
+	 * @param message
+	 *            the message to display
+	 */
+	private void showMessage(final String message) {
+		window.getShell().getDisplay().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				MessageDialog.openInformation(window.getShell(), "org.rayzor.mutant", message);
+			}
+		});
+	}
+
+	/**
+	 * This method returns the fully qualified name of the file to mutate.
+	 * 
+	 * @param fileLocation
+	 *            the location of the file to mutate
+	 * @param projectLocation
+	 *            the location of the java file's project
+	 * @return the fully qualified name of the file to mutate
+	 */
+	private static String getFullyQualifiedName(String fileLocation, String projectLocation) {
+		char FILE_SEPARATOR = File.separatorChar;
+		int projectPathLength = projectLocation.length();
+		int filePathLength = fileLocation.length();
+		// The (projectPathLength + 5) gets rid of project's path + "/src/" from
+		// the pathname and
+		// the (filePathLength - 5) gets rid of the ".java" file extension
+		return fileLocation.substring(projectPathLength + 5, filePathLength - 5).replace(FILE_SEPARATOR, '.');
+	}
+}
@@ -0,0 +1,60 @@
+package ui;
+
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.jface.preference.RadioGroupFieldEditor;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+import analyzer.ExecutionMode;
+
+/**
+ * The Mutation Testing preference page, on which the user chooses how tests
+ * are run against mutants (see MutationPreferences). The preferences apply to
+ * the next MutationJob.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class MutationPreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
+	// Largest number of workers which may be chosen
+	private static final int MAX_WORKERS = 64;
+
+	public MutationPreferencePage() {
+		super(GRID);
+		setDescription("How tests are run against mutants. Changes apply to the next run.");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.ui.IWorkbenchPreferencePage#init(org.eclipse.ui.IWorkbench)
+	 */
+	@Override
+	public void init(IWorkbench workbench) {
+		setPreferenceStore(MutationPreferences.getPreferenceStore());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.preference.FieldEditorPreferencePage#createFieldEditors()
+	 */
+	@Override
+	protected void createFieldEditors() {
+		addField(new RadioGroupFieldEditor(MutationPreferences.EXECUTION_MODE, "Run tests against mutants", 1,
+				new String[][] { { "One after another inside Eclipse", ExecutionMode.IN_PROCESS.name() },
+						{ "On several threads inside Eclipse", ExecutionMode.THREAD_SCOPED.name() },
+						{ "In several forked worker JVMs", ExecutionMode.FORKED.name() } },
+				getFieldEditorParent(), true));
+		IntegerFieldEditor workers = new IntegerFieldEditor(MutationPreferences.NUMBER_OF_WORKERS,
+				"Number of threads or worker JVMs:", getFieldEditorParent());
+		workers.setValidRange(1, MAX_WORKERS);
+		addField(workers);
+		addField(new BooleanFieldEditor(MutationPreferences.BATCH_TESTS,
+				"Run the tests covering a mutant in one JUnit run", getFieldEditorParent()));
+		addField(new BooleanFieldEditor(MutationPreferences.INCREMENTAL,
+				"Reuse the results of the previous run whose inputs did not change", getFieldEditorParent()));
+	}
+}
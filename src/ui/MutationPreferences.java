@@ -0,0 +1,51 @@
+package ui;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import activator.PluginActivator;
+import analyzer.AnalysisSettings;
+
+/**
+ * MutationPreferences holds the preferences of this plugin which determine how
+ * a MutationJob runs tests against mutants: the execution mode, the number of
+ * workers, whether the covering tests of a mutant are batched, and whether
+ * results are carried forward from the previous run. They are edited on the
+ * Mutation Testing preference page (see MutationPreferencePage), and default
+ * to the defaults of AnalysisSettings, so that tests are run one after another
+ * inside Eclipse unless the user chooses otherwise.
+ * 
+ * @author Raymond Tang
+ *
+ */
+final class MutationPreferences {
+	// Name of the ExecutionMode in which tests are run against mutants
+	static final String EXECUTION_MODE = "executionMode";
+	// Number of workers running tests against mutants in parallel
+	static final String NUMBER_OF_WORKERS = "numberOfWorkers";
+	// Whether the covering tests of a mutant are run in a single JUnit run
+	static final String BATCH_TESTS = "batchTests";
+	// Whether results of the previous run are carried forward
+	static final String INCREMENTAL = "incremental";
+
+	private MutationPreferences() {
+	}
+
+	/**
+	 * Returns the preference store of this plugin, with the defaults of its
+	 * preferences set, or null if the plugin is not active.
+	 * 
+	 * @return the preference store of this plugin, or null
+	 */
+	static IPreferenceStore getPreferenceStore() {
+		PluginActivator plugin = PluginActivator.getDefault();
+		if (plugin == null)
+			return null;
+		IPreferenceStore store = plugin.getPreferenceStore();
+		AnalysisSettings defaults = new AnalysisSettings();
+		store.setDefault(EXECUTION_MODE, defaults.getExecutionMode().name());
+		store.setDefault(NUMBER_OF_WORKERS, defaults.getNumberOfWorkers());
+		store.setDefault(BATCH_TESTS, defaults.isBatchTests());
+		store.setDefault(INCREMENTAL, defaults.isIncremental());
+		return store;
+	}
+}
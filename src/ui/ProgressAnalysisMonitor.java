@@ -0,0 +1,142 @@
+package ui;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+import analyzer.AnalysisMonitor;
+import analyzer.AnalysisPhase;
+
+/**
+ * A ProgressAnalysisMonitor reports the progress of a MajorMutantAnalyzer to
+ * an Eclipse progress monitor. Each AnalysisPhase is given its share of the
+ * progress monitor's work. While a phase runs, the progress monitor shows how
+ * much of the phase is done, the throughput, and the estimated time left.
+ * Canceling the progress monitor cancels the analysis.
+ * 
+ * @author Raymond Tang
+ *
+ */
+public class ProgressAnalysisMonitor implements AnalysisMonitor {
+	// How often the throughput and estimated time left are updated, in milliseconds
+	private static final long UPDATE_INTERVAL = 500;
+	// The progress monitor of the whole analysis
+	private final SubMonitor progressMonitor;
+	// Ticks of the progress monitor given to the COVERAGE phase
+	private final int coverageTicks;
+	// Ticks of the progress monitor given to the EXECUTION phase
+	private final int executionTicks;
+	// The progress monitor of the current phase
+	private SubMonitor phaseMonitor;
+	// The current phase
+	private AnalysisPhase phase;
+	// The amount of work of the current phase
+	private int totalWork;
+	// The amount of work of the current phase which is done
+	private int doneWork;
+	// When the current phase began, as given by System.nanoTime()
+	private long phaseStart;
+	// When the progress monitor was last updated, as given by System.nanoTime()
+	private long lastUpdate;
+
+	/**
+	 * Creates a ProgressAnalysisMonitor reporting to the given progress
+	 * monitor, giving the given number of ticks to the COVERAGE and EXECUTION
+	 * phases.
+	 * 
+	 * @param progressMonitor
+	 *            the progress monitor
+	 * @param coverageTicks
+	 *            the ticks given to the COVERAGE phase
+	 * @param executionTicks
+	 *            the ticks given to the EXECUTION phase
+	 */
+	public ProgressAnalysisMonitor(IProgressMonitor progressMonitor, int coverageTicks, int executionTicks) {
+		this.progressMonitor = SubMonitor.convert(progressMonitor, coverageTicks + executionTicks);
+		this.coverageTicks = coverageTicks;
+		this.executionTicks = executionTicks;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.AnalysisMonitor#beginPhase(analyzer.AnalysisPhase, int)
+	 */
+	@Override
+	public void beginPhase(AnalysisPhase phase, int totalWork) {
+		this.phase = phase;
+		this.totalWork = totalWork;
+		this.doneWork = 0;
+		this.phaseStart = System.nanoTime();
+		this.lastUpdate = phaseStart;
+		int ticks = phase == AnalysisPhase.COVERAGE ? coverageTicks : executionTicks;
+		phaseMonitor = progressMonitor.newChild(ticks);
+		phaseMonitor.beginTask(phase.getDescription(), Math.max(totalWork, 1));
+		phaseMonitor.subTask(phase.getDescription() + " (0 of " + totalWork + ")");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.AnalysisMonitor#worked(int)
+	 */
+	@Override
+	public void worked(int work) {
+		if (phaseMonitor == null)
+			return;
+		doneWork += work;
+		phaseMonitor.worked(work);
+		long now = System.nanoTime();
+		if (TimeUnit.NANOSECONDS.toMillis(now - lastUpdate) < UPDATE_INTERVAL && doneWork < totalWork)
+			return;
+		lastUpdate = now;
+		phaseMonitor.subTask(getStatus(now));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see analyzer.AnalysisMonitor#isCanceled()
+	 */
+	@Override
+	public boolean isCanceled() {
+		return progressMonitor.isCanceled();
+	}
+
+	/**
+	 * Returns a description of the progress of the current phase at the given
+	 * time, including the throughput and the estimated time left.
+	 * 
+	 * @param now
+	 *            the current time, as given by System.nanoTime()
+	 * @return a description of the progress of the current phase
+	 */
+	private String getStatus(long now) {
+		String unit = phase == AnalysisPhase.COVERAGE ? "tests" : "work orders";
+		double seconds = Math.max((now - phaseStart) / 1e9, 0.001);
+		double throughput = doneWork / seconds;
+		StringBuilder status = new StringBuilder(phase.getDescription());
+		status.append(" (").append(doneWork).append(" of ").append(totalWork).append(", ");
+		status.append(String.format("%.1f", throughput)).append(' ').append(unit).append("/s");
+		if (doneWork > 0 && doneWork < totalWork) {
+			long secondsLeft = Math.round((totalWork - doneWork) / throughput);
+			status.append(", about ").append(formatDuration(secondsLeft)).append(" left");
+		}
+		return status.append(')').toString();
+	}
+
+	/**
+	 * Returns the given number of seconds formatted as hours, minutes and
+	 * seconds.
+	 * 
+	 * @param seconds
+	 *            a number of seconds
+	 * @return the formatted duration
+	 */
+	private static String formatDuration(long seconds) {
+		if (seconds >= 3600)
+			return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+		return String.format("%d:%02d", seconds / 60, seconds % 60);
+	}
+}
@@ -4,6 +4,8 @@ import org.eclipse.jface.viewers.Viewer;
 
 import analyzer.Mutant;
 import analyzer.MutantAnalyzer;
+import analyzer.MutantStatus;
+import analyzer.MutantStatusIndex;
 
 /**
  * This comparator is used to sort mutants listed in the view. 
@@ -15,40 +17,40 @@ import analyzer.MutantAnalyzer;
  */
 public class AliveAndCoveredMutantComparator extends MutantIDComparator {
 
-	// MutantAnalyzer which contains information about mutants and tests for some java file
-	private MutantAnalyzer analyzer;
+	// MutantStatusIndex which contains the status of each mutant for some java file
+	private MutantStatusIndex statusIndex;
 		
 	/**
-	 * Sets the MutantAnalyzer for this comparator to use. 
+	 * Sets the MutantAnalyzer for this comparator to use. Mutants are sorted
+	 * by the MutantStatusIndex of the analyzer, so its analysis must have finished. 
 	 * 
 	 * @param analyzer a MutantAnalyzer
 	 */
 	public void setKillMatrix(MutantAnalyzer analyzer) {
 		if(analyzer == null) throw new IllegalArgumentException("MutantAnalyzer cannot be null");
-		this.analyzer = analyzer;
+		this.statusIndex = analyzer.getMutantStatusIndex();
 	}
 	
 	@Override
 	public int compare(Viewer viewer, Object e1, Object e2) {
-		if(!(e1 instanceof Mutant && e2 instanceof Mutant) || analyzer == null) return super.compare(viewer, e1, e2);
+		if(!(e1 instanceof Mutant && e2 instanceof Mutant) || statusIndex == null) return super.compare(viewer, e1, e2);
 		Mutant mutant1 = (Mutant)e1;
 		Mutant mutant2 = (Mutant)e2;
-		boolean e1Covered = analyzer.isMutantCovered(mutant1);
-		boolean e2Covered = analyzer.isMutantCovered(mutant2);
-		boolean e1Killed = analyzer.isMutantKilled(mutant1);
-		boolean e2Killed = analyzer.isMutantKilled(mutant2);
-		// If mutant e1 is covered and alive and mutant e2 is killed, e1 shows up earlier in the view
-		if(e1Covered && !e1Killed && e2Killed) return -1;
-		// If mutant e1 is covered and alive and mutant e2 is uncovered, e1 shows up earlier in the view
-		if(e1Covered && !e1Killed && !e2Covered) return -1;
-		// If mutant e1 is uncovered and mutant e2 is killed, e1 shows up earlier in the view
-		if(!e1Covered && e2Killed) return -1;
-		// If mutant e2 is covered and alive and mutant e1 is killed, e2 shows up earlier in the view
-		if(e2Covered && !e2Killed && e1Killed) return 1;
-		// If mutant e2 is covered and alive and mutant e1 is uncovered, e2 shows up earlier in the view
-		if(e2Covered && !e2Killed && !e1Covered) return 1;
-		// If mutant e2 is uncovered and mutant e1 is killed, e2 shows up earlier in the view
-		if(!e2Covered && e1Killed) return 1;
+		// Mutants that are covered but alive show up first, then uncovered mutants, and killed mutants last
+		int rank1 = getRank(statusIndex.getStatus(mutant1));
+		int rank2 = getRank(statusIndex.getStatus(mutant2));
+		if(rank1 != rank2) return rank1 - rank2;
 		return mutant1.getID() - mutant2.getID();
 	}
+	
+	private static int getRank(MutantStatus status) {
+		switch(status) {
+		case ALIVE:
+			return 0;
+		case UNCOVERED:
+			return 1;
+		default:
+			return 2;
+		}
+	}
 }
@@ -1,5 +1,7 @@
 package ui.providers;
 
+import java.util.Map;
+
 import org.eclipse.jface.viewers.ITableLabelProvider;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.swt.graphics.Image;
@@ -8,12 +10,16 @@ import org.eclipse.ui.PlatformUI;
 
 import analyzer.Mutant;
 import analyzer.MutantAnalyzer;
+import analyzer.MutantStatus;
+import analyzer.MutantStatusIndex;
 
 /**
  * Assigns images to items (mutants) listed in the view.
  * A green plus sign is displayed next to a mutant ID if it is killed.
  * Blue circles are displayed next to a mutant ID if it is covered but alive.
  * A red X is displayed next to a mutant ID if it is uncovered.
+ * While an analysis is running, an info icon is displayed next to a mutant ID
+ * until all tests covering the mutant have been run against it.
  * 
  * @author Raymond Tang
  *
@@ -22,6 +28,8 @@ public class ImageLabelProvider extends LabelProvider implements ITableLabelProv
 	
 	// MutantAnalyzer which contains information about mutants and tests for some java file
 	private MutantAnalyzer analyzer;
+	// Statuses of the mutants completed so far by a running analysis, by mutant ID
+	private Map<Integer, MutantStatus> statuses;
 		
 	/**
 	 * Sets the MutantAnalyzer for this LabelProvider to use. 
@@ -32,6 +40,18 @@ public class ImageLabelProvider extends LabelProvider implements ITableLabelProv
 		this.analyzer = analyzer;
 	}
 	
+	/**
+	 * Sets the statuses of the mutants completed so far by a running analysis,
+	 * by mutant ID. While set, they are used instead of the MutantAnalyzer,
+	 * and mutants without a status are displayed as pending.
+	 * The map may be updated by other threads.
+	 * 
+	 * @param statuses the statuses of the completed mutants, or null to use the MutantAnalyzer
+	 */
+	public void setMutantStatuses(Map<Integer, MutantStatus> statuses) {
+		this.statuses = statuses;
+	}
+	
 	public String getColumnText(Object obj, int index) {
 		return getText(obj);
 	}
@@ -41,9 +61,12 @@ public class ImageLabelProvider extends LabelProvider implements ITableLabelProv
 	}
 	
 	public Image getImage(Object obj) {
+		if(statuses != null) return getImage(statuses.get(((Mutant)obj).getID()));
 		if(analyzer == null) return PlatformUI.getWorkbench().getSharedImages().
 								getImage(ISharedImages.IMG_DEC_FIELD_ERROR);
 		Mutant mutant = (Mutant)obj;
+		MutantStatusIndex statusIndex = analyzer.getMutantStatusIndex();
+		if(statusIndex != null && statusIndex.contains(mutant.getID())) return getImage(statusIndex.getStatus(mutant));
 		// Display green plus sign next to mutant ID if it is killed
 		if(analyzer.isMutantKilled(mutant)) return PlatformUI.getWorkbench().getSharedImages().
 													getImage(ISharedImages.IMG_OBJ_ADD);
@@ -54,4 +77,18 @@ public class ImageLabelProvider extends LabelProvider implements ITableLabelProv
 		return PlatformUI.getWorkbench().getSharedImages().
 				getImage(ISharedImages.IMG_DEC_FIELD_ERROR);
 	}
+	
+	private Image getImage(MutantStatus status) {
+		// Display info icon next to mutant ID if it is still pending
+		if(status == null) return PlatformUI.getWorkbench().getSharedImages().
+								getImage(ISharedImages.IMG_OBJS_INFO_TSK);
+		switch(status) {
+		case KILLED:
+			return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_OBJ_ADD);
+		case ALIVE:
+			return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_OBJ_ELEMENT);
+		default:
+			return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_DEC_FIELD_ERROR);
+		}
+	}
 }
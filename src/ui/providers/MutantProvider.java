@@ -1,46 +1,120 @@
 package ui.providers;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Comparator;
 
-import org.eclipse.jface.viewers.IStructuredContentProvider;
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
 
 import analyzer.Mutant;
 import mutator.Mutator;
 
 /**
  * Provides the mutant IDs to be listed in the view.
- * 
+ * The view's table is virtual, so mutants are only provided for the rows
+ * which are visible. Since virtual tables cannot sort their rows, this
+ * provider also keeps the order in which mutants are listed.
+ *
  * @author Raymond Tang
  *
  */
-public class MutantProvider implements IStructuredContentProvider {
-	
+public class MutantProvider implements ILazyContentProvider {
+
 	// Mutator which contains information about mutants for some java file
 	private Mutator mutator;
-	
+	// Viewer whose rows are provided
+	private TableViewer viewer;
+	// Comparator by which mutants are listed, or null if they are listed by ID
+	private ViewerComparator comparator;
+	// ID of the mutant listed in each row
+	private int[] mutantIDs = new int[0];
+	// Row in which each mutant is listed, indexed by mutant ID - 1
+	private int[] rows = new int[0];
+
 	/**
 	 * Takes in a mutator which contains information
-	 * about mutants for some java file.
-	 * 
+	 * about mutants for some java file. Its mutants are listed by ID.
+	 *
 	 * @param mutator a mutator
 	 */
 	public void setMutator(Mutator mutator) {
 		this.mutator = mutator;
+		this.comparator = null;
+		sort();
+		if(viewer != null) viewer.setItemCount(mutantIDs.length);
+	}
+
+	/**
+	 * Sets the comparator by which mutants are listed, and lists them again
+	 * in that order. The selected mutants stay selected.
+	 *
+	 * @param comparator a comparator, or null to list mutants by ID
+	 */
+	public void setComparator(ViewerComparator comparator) {
+		this.comparator = comparator;
+		if(viewer == null) {
+			sort();
+			return;
+		}
+		int[] selectedRows = viewer.getTable().getSelectionIndices();
+		int[] selectedMutantIDs = new int[selectedRows.length];
+		for(int i = 0; i < selectedRows.length; i++) selectedMutantIDs[i] = mutantIDs[selectedRows[i]];
+		sort();
+		viewer.refresh();
+		for(int i = 0; i < selectedRows.length; i++) selectedRows[i] = rows[selectedMutantIDs[i] - 1];
+		viewer.getTable().setSelection(selectedRows);
+	}
+
+	/**
+	 * Returns the row in which the given mutant is listed,
+	 * or -1 if the mutant is not listed.
+	 *
+	 * @param mutant a mutant
+	 * @return the row in which the given mutant is listed, or -1 if the mutant is not listed
+	 */
+	public int getRow(Mutant mutant) {
+		int mutantID = mutant.getID();
+		if(mutantID < 1 || mutantID > rows.length) return -1;
+		return rows[mutantID - 1];
 	}
-	
+
 	public void inputChanged(Viewer v, Object oldInput, Object newInput) {
+		this.viewer = (TableViewer)v;
+		if(viewer != null) viewer.setItemCount(mutantIDs.length);
 	}
-	
+
 	public void dispose() {
 	}
-	
+
+	/**
+	 * This method provides the mutant listed in the given row to the view.
+	 */
+	public void updateElement(int index) {
+		viewer.replace(new Mutant(mutantIDs[index]), index);
+	}
+
 	/**
-	 * This method provides an array of all mutants to the view.
+	 * Orders the mutants by the comparator.
 	 */
-	public Object[] getElements(Object parent) {
-		if(mutator == null) return new Object[0];
-		List<Mutant> mutants = mutator.getMutants();
-		return mutants.toArray();
+	private void sort() {
+		int numMutants = mutator == null ? 0 : mutator.getNumberOfMutants();
+		mutantIDs = new int[numMutants];
+		rows = new int[numMutants];
+		if(comparator == null) {
+			for(int row = 0; row < numMutants; row++) mutantIDs[row] = row + 1;
+		} else {
+			Mutant[] mutants = new Mutant[numMutants];
+			for(int row = 0; row < numMutants; row++) mutants[row] = new Mutant(row + 1);
+			Arrays.sort(mutants, new Comparator<Mutant>() {
+				@Override
+				public int compare(Mutant mutant1, Mutant mutant2) {
+					return comparator.compare(viewer, mutant1, mutant2);
+				}
+			});
+			for(int row = 0; row < numMutants; row++) mutantIDs[row] = mutants[row].getID();
+		}
+		for(int row = 0; row < numMutants; row++) rows[mutantIDs[row] - 1] = row;
 	}
 }
@@ -0,0 +1,714 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A CompressedBitmap is a set of non-negative ints, e.g. mutant IDs, stored
+ * in the manner of a Roaring bitmap: the ints are split into chunks of 65536
+ * consecutive values, and each non-empty chunk is stored either as a sorted
+ * array of its values, if it holds at most 4096 values, or as a plain bitmap
+ * of 1024 longs otherwise. Sparse sets thus take 2 bytes per value, dense
+ * sets 1 bit per value, and empty chunks nothing at all.
+ *
+ * Union, intersection and difference are computed chunk by chunk on the
+ * compressed data and return new CompressedBitmaps, leaving their operands
+ * unchanged. The number of values of a CompressedBitmap, and of its
+ * intersection with another one, is known without decompressing anything.
+ *
+ * CompressedBitmaps are not thread-safe.
+ *
+ * @author Raymond Tang
+ *
+ */
+public final class CompressedBitmap {
+	// Number of low bits of a value stored in its chunk
+	private static final int CHUNK_BITS = 16;
+	// Largest number of values of a chunk stored as an array
+	private static final int MAX_ARRAY_SIZE = 4096;
+	// Number of longs of a chunk stored as a bitmap
+	private static final int BITMAP_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+
+	// High bits of the values of each chunk, in ascending order
+	private char[] keys;
+	// Values of each chunk, indexed like the keys
+	private Chunk[] chunks;
+	// Number of chunks
+	private int size;
+
+	/**
+	 * Creates an empty CompressedBitmap.
+	 */
+	public CompressedBitmap() {
+		this.keys = new char[4];
+		this.chunks = new Chunk[4];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns a CompressedBitmap of the given values.
+	 *
+	 * Throws an IllegalArgumentException if a value is negative.
+	 *
+	 * @param values
+	 *            non-negative ints
+	 * @return a CompressedBitmap of the values
+	 */
+	public static CompressedBitmap valueOf(Iterable<Integer> values) {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		for (int value : values)
+			bitmap.add(value);
+		return bitmap;
+	}
+
+	/**
+	 * Adds the given value to this CompressedBitmap. Adding values in
+	 * ascending order is fastest.
+	 *
+	 * Throws an IllegalArgumentException if the value is negative.
+	 *
+	 * @param value
+	 *            a non-negative int
+	 */
+	public void add(int value) {
+		if (value < 0)
+			throw new IllegalArgumentException("Value cannot be negative: " + value);
+		char key = (char) (value >>> CHUNK_BITS);
+		int index = indexOf(key);
+		if (index < 0) {
+			index = -index - 1;
+			insertChunk(index, key, new ArrayChunk());
+		}
+		chunks[index] = chunks[index].add(value & 0xFFFF);
+	}
+
+	/**
+	 * Adds the values from the given first value (inclusive) to the given last
+	 * value (exclusive) to this CompressedBitmap.
+	 *
+	 * Throws an IllegalArgumentException if the first value is negative.
+	 *
+	 * @param from
+	 *            the first value to add
+	 * @param to
+	 *            the value after the last value to add
+	 */
+	public void add(int from, int to) {
+		if (from < 0)
+			throw new IllegalArgumentException("Value cannot be negative: " + from);
+		// The range is added chunk by chunk, each chunk at once
+		while (from < to) {
+			char key = (char) (from >>> CHUNK_BITS);
+			int chunkStart = key << CHUNK_BITS;
+			int chunkEnd = (int) Math.min((long) (key + 1) << CHUNK_BITS, to);
+			int index = indexOf(key);
+			if (index < 0) {
+				index = -index - 1;
+				insertChunk(index, key, new ArrayChunk());
+			}
+			chunks[index] = chunks[index].add(from - chunkStart, chunkEnd - chunkStart);
+			from = chunkEnd;
+		}
+	}
+
+	/**
+	 * Returns true if this CompressedBitmap contains the given value. Returns
+	 * false otherwise.
+	 *
+	 * @param value
+	 *            an int
+	 * @return true if this CompressedBitmap contains the value, false
+	 *         otherwise
+	 */
+	public boolean contains(int value) {
+		if (value < 0)
+			return false;
+		int index = indexOf((char) (value >>> CHUNK_BITS));
+		return index >= 0 && chunks[index].contains(value & 0xFFFF);
+	}
+
+	/**
+	 * Returns the number of values in this CompressedBitmap.
+	 *
+	 * @return the number of values in this CompressedBitmap
+	 */
+	public int cardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < size; i++)
+			cardinality += chunks[i].cardinality();
+		return cardinality;
+	}
+
+	/**
+	 * Returns true if this CompressedBitmap contains no values. Returns false
+	 * otherwise.
+	 *
+	 * @return true if this CompressedBitmap is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the smallest value of this CompressedBitmap which is greater
+	 * than or equal to the given value, or -1 if there is no such value. The
+	 * values of a CompressedBitmap are iterated as those of a BitSet:
+	 *
+	 * for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1))
+	 *
+	 * @param from
+	 *            the value to start from
+	 * @return the smallest value greater than or equal to the given value, or
+	 *         -1 if there is no such value
+	 */
+	public int nextSetBit(int from) {
+		if (from < 0)
+			from = 0;
+		char fromKey = (char) (from >>> CHUNK_BITS);
+		int index = indexOf(fromKey);
+		if (index < 0)
+			index = -index - 1;
+		for (; index < size; index++) {
+			int low = keys[index] == fromKey ? from & 0xFFFF : 0;
+			int next = chunks[index].next(low);
+			if (next >= 0)
+				return (keys[index] << CHUNK_BITS) | next;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the union of this CompressedBitmap and the given one.
+	 *
+	 * @param other
+	 *            a CompressedBitmap
+	 * @return the values contained in this or the other CompressedBitmap
+	 */
+	public CompressedBitmap or(CompressedBitmap other) {
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < size || j < other.size) {
+			if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+				result.appendChunk(keys[i], chunks[i].copy());
+				i++;
+			} else if (i == size || other.keys[j] < keys[i]) {
+				result.appendChunk(other.keys[j], other.chunks[j].copy());
+				j++;
+			} else {
+				result.appendChunk(keys[i], chunks[i].or(other.chunks[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the intersection of this CompressedBitmap and the given one.
+	 *
+	 * @param other
+	 *            a CompressedBitmap
+	 * @return the values contained in both this and the other CompressedBitmap
+	 */
+	public CompressedBitmap and(CompressedBitmap other) {
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (other.keys[j] < keys[i]) {
+				j++;
+			} else {
+				result.appendChunk(keys[i], chunks[i].and(other.chunks[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the difference of this CompressedBitmap and the given one.
+	 *
+	 * @param other
+	 *            a CompressedBitmap
+	 * @return the values contained in this CompressedBitmap but not in the
+	 *         other one
+	 */
+	public CompressedBitmap andNot(CompressedBitmap other) {
+		CompressedBitmap result = new CompressedBitmap();
+		int j = 0;
+		for (int i = 0; i < size; i++) {
+			while (j < other.size && other.keys[j] < keys[i])
+				j++;
+			if (j < other.size && other.keys[j] == keys[i])
+				result.appendChunk(keys[i], chunks[i].andNot(other.chunks[j]));
+			else
+				result.appendChunk(keys[i], chunks[i].copy());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of values contained in both this CompressedBitmap and
+	 * the given one, without computing their intersection.
+	 *
+	 * @param other
+	 *            a CompressedBitmap
+	 * @return the number of values contained in both CompressedBitmaps
+	 */
+	public int andCardinality(CompressedBitmap other) {
+		int cardinality = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (other.keys[j] < keys[i]) {
+				j++;
+			} else {
+				cardinality += chunks[i].andCardinality(other.chunks[j]);
+				i++;
+				j++;
+			}
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns the values of this CompressedBitmap in ascending order.
+	 *
+	 * @return the values of this CompressedBitmap in ascending order
+	 */
+	public int[] toArray() {
+		int[] values = new int[cardinality()];
+		int n = 0;
+		for (int value = nextSetBit(0); value >= 0; value = nextSetBit(value + 1))
+			values[n++] = value;
+		return values;
+	}
+
+	/**
+	 * Returns the values of this CompressedBitmap in ascending order.
+	 *
+	 * @return the values of this CompressedBitmap in ascending order
+	 */
+	public List<Integer> toList() {
+		List<Integer> values = new ArrayList<Integer>(cardinality());
+		for (int value = nextSetBit(0); value >= 0; value = nextSetBit(value + 1))
+			values.add(value);
+		return values;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof CompressedBitmap))
+			return false;
+		CompressedBitmap other = (CompressedBitmap) obj;
+		if (size != other.size)
+			return false;
+		for (int i = 0; i < size; i++) {
+			if (keys[i] != other.keys[i] || chunks[i].cardinality() != other.chunks[i].cardinality()
+					|| chunks[i].andCardinality(other.chunks[i]) != chunks[i].cardinality())
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int value = nextSetBit(0); value >= 0; value = nextSetBit(value + 1))
+			hash = 31 * hash + value;
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int value = nextSetBit(0); value >= 0; value = nextSetBit(value + 1)) {
+			if (builder.length() > 1)
+				builder.append(", ");
+			builder.append(value);
+		}
+		return builder.append('}').toString();
+	}
+
+	/**
+	 * Returns the index of the chunk with the given key, or (-(insertion
+	 * point) - 1) if there is no such chunk.
+	 */
+	private int indexOf(char key) {
+		// Values are mostly added in ascending order
+		if (size > 0 && keys[size - 1] == key)
+			return size - 1;
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	private void insertChunk(int index, char key, Chunk chunk) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			chunks = Arrays.copyOf(chunks, size * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(chunks, index, chunks, index + 1, size - index);
+		keys[index] = key;
+		chunks[index] = chunk;
+		size++;
+	}
+
+	/**
+	 * Appends the given chunk, whose key is greater than all keys, unless it
+	 * is empty.
+	 */
+	private void appendChunk(char key, Chunk chunk) {
+		if (chunk.cardinality() > 0)
+			insertChunk(size, key, chunk);
+	}
+
+	/**
+	 * The values of a chunk, i.e. the low 16 bits of the values of a
+	 * CompressedBitmap sharing the same high bits.
+	 */
+	private static abstract class Chunk {
+
+		abstract int cardinality();
+
+		abstract boolean contains(int low);
+
+		/**
+		 * Returns the smallest value greater than or equal to the given one,
+		 * or -1 if there is no such value.
+		 */
+		abstract int next(int low);
+
+		/**
+		 * Adds the given value and returns the chunk now holding the values,
+		 * which may be a new chunk.
+		 */
+		abstract Chunk add(int low);
+
+		/**
+		 * Adds the values from the given first value (inclusive) to the given
+		 * last value (exclusive), at most 65536, and returns the chunk now
+		 * holding the values, which may be a new chunk.
+		 */
+		abstract Chunk add(int from, int to);
+
+		abstract Chunk copy();
+
+		Chunk or(Chunk other) {
+			if (this instanceof ArrayChunk && other instanceof ArrayChunk)
+				return ((ArrayChunk) this).or((ArrayChunk) other);
+			BitmapChunk result = this instanceof BitmapChunk ? (BitmapChunk) this.copy()
+					: (BitmapChunk) other.copy();
+			result.orInPlace(this instanceof BitmapChunk ? other : this);
+			return result;
+		}
+
+		Chunk and(Chunk other) {
+			if (this instanceof BitmapChunk && other instanceof BitmapChunk)
+				return ((BitmapChunk) this).and((BitmapChunk) other);
+			// Keep the values of the array which are in the other chunk
+			ArrayChunk array = (ArrayChunk) (this instanceof ArrayChunk ? this : other);
+			Chunk filter = this instanceof ArrayChunk ? other : this;
+			return array.filter(filter, true);
+		}
+
+		Chunk andNot(Chunk other) {
+			if (this instanceof ArrayChunk)
+				return ((ArrayChunk) this).filter(other, false);
+			BitmapChunk result = (BitmapChunk) this.copy();
+			result.andNotInPlace(other);
+			return result.optimize();
+		}
+
+		int andCardinality(Chunk other) {
+			if (this instanceof BitmapChunk && other instanceof BitmapChunk)
+				return ((BitmapChunk) this).andCardinality((BitmapChunk) other);
+			ArrayChunk array = (ArrayChunk) (this instanceof ArrayChunk ? this : other);
+			Chunk filter = this instanceof ArrayChunk ? other : this;
+			int cardinality = 0;
+			for (int i = 0; i < array.cardinality; i++) {
+				if (filter.contains(array.values[i]))
+					cardinality++;
+			}
+			return cardinality;
+		}
+	}
+
+	/**
+	 * A chunk of at most MAX_ARRAY_SIZE values, stored in a sorted array.
+	 */
+	private static final class ArrayChunk extends Chunk {
+		// The values, in ascending order
+		private char[] values;
+		// Number of values
+		private int cardinality;
+
+		ArrayChunk() {
+			this(new char[4], 0);
+		}
+
+		ArrayChunk(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(int low) {
+			return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+		}
+
+		@Override
+		int next(int low) {
+			int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+			if (index < 0)
+				index = -index - 1;
+			return index < cardinality ? values[index] : -1;
+		}
+
+		@Override
+		Chunk add(int low) {
+			int index = cardinality > 0 && values[cardinality - 1] < low ? -cardinality - 1
+					: Arrays.binarySearch(values, 0, cardinality, (char) low);
+			if (index >= 0)
+				return this;
+			if (cardinality == MAX_ARRAY_SIZE)
+				return toBitmap().add(low);
+			index = -index - 1;
+			if (cardinality == values.length)
+				values = Arrays.copyOf(values, Math.min(cardinality * 2, MAX_ARRAY_SIZE));
+			System.arraycopy(values, index, values, index + 1, cardinality - index);
+			values[index] = (char) low;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		Chunk add(int from, int to) {
+			int start = indexOf(from);
+			int end = indexOf(to);
+			int merged = cardinality - (end - start) + (to - from);
+			if (merged > MAX_ARRAY_SIZE)
+				return toBitmap().add(from, to);
+			// Values below the range, then the range, then values above it
+			char[] result = values.length >= merged ? values : new char[Math.min(merged * 2, MAX_ARRAY_SIZE)];
+			if (result != values)
+				System.arraycopy(values, 0, result, 0, start);
+			System.arraycopy(values, end, result, start + to - from, cardinality - end);
+			for (int i = start, low = from; low < to; i++, low++)
+				result[i] = (char) low;
+			values = result;
+			cardinality = merged;
+			return this;
+		}
+
+		@Override
+		Chunk copy() {
+			return new ArrayChunk(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+		}
+
+		Chunk or(ArrayChunk other) {
+			char[] merged = new char[cardinality + other.cardinality];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while (i < cardinality && j < other.cardinality) {
+				if (values[i] < other.values[j]) {
+					merged[n++] = values[i++];
+				} else if (other.values[j] < values[i]) {
+					merged[n++] = other.values[j++];
+				} else {
+					merged[n++] = values[i++];
+					j++;
+				}
+			}
+			while (i < cardinality)
+				merged[n++] = values[i++];
+			while (j < other.cardinality)
+				merged[n++] = other.values[j++];
+			ArrayChunk result = new ArrayChunk(merged, n);
+			return n > MAX_ARRAY_SIZE ? result.toBitmap() : result;
+		}
+
+		/**
+		 * Returns the values which the given chunk contains if keep is true,
+		 * or does not contain otherwise.
+		 */
+		ArrayChunk filter(Chunk other, boolean keep) {
+			char[] filtered = new char[Math.max(cardinality, 1)];
+			int n = 0;
+			for (int i = 0; i < cardinality; i++) {
+				if (other.contains(values[i]) == keep)
+					filtered[n++] = values[i];
+			}
+			return new ArrayChunk(filtered, n);
+		}
+
+		/**
+		 * Returns the index of the smallest value greater than or equal to the
+		 * given one, or the cardinality if there is no such value.
+		 */
+		private int indexOf(int low) {
+			if (low > 0xFFFF)
+				return cardinality;
+			int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+			return index < 0 ? -index - 1 : index;
+		}
+
+		BitmapChunk toBitmap() {
+			BitmapChunk bitmap = new BitmapChunk(new long[BITMAP_WORDS], 0);
+			bitmap.orInPlace(this);
+			return bitmap;
+		}
+	}
+
+	/**
+	 * A chunk of more than MAX_ARRAY_SIZE values, stored in a bitmap.
+	 */
+	private static final class BitmapChunk extends Chunk {
+		// The values, 64 per word
+		private final long[] words;
+		// Number of values
+		private int cardinality;
+
+		BitmapChunk(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(int low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		int next(int low) {
+			int index = low >>> 6;
+			long word = words[index] & (-1L << low);
+			while (word == 0) {
+				if (++index == BITMAP_WORDS)
+					return -1;
+				word = words[index];
+			}
+			return (index << 6) + Long.numberOfTrailingZeros(word);
+		}
+
+		@Override
+		Chunk add(int low) {
+			long word = words[low >>> 6];
+			long bit = 1L << low;
+			if ((word & bit) == 0) {
+				words[low >>> 6] = word | bit;
+				cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		Chunk add(int from, int to) {
+			int first = from >>> 6;
+			int last = (to - 1) >>> 6;
+			for (int i = first; i <= last; i++) {
+				long mask = -1L;
+				if (i == first)
+					mask &= -1L << from;
+				if (i == last)
+					mask &= -1L >>> -to;
+				cardinality += Long.bitCount(mask & ~words[i]);
+				words[i] |= mask;
+			}
+			return this;
+		}
+
+		@Override
+		Chunk copy() {
+			return new BitmapChunk(words.clone(), cardinality);
+		}
+
+		void orInPlace(Chunk other) {
+			if (other instanceof BitmapChunk) {
+				long[] otherWords = ((BitmapChunk) other).words;
+				for (int i = 0; i < BITMAP_WORDS; i++)
+					words[i] |= otherWords[i];
+				updateCardinality();
+			} else {
+				ArrayChunk array = (ArrayChunk) other;
+				for (int i = 0; i < array.cardinality; i++)
+					add(array.values[i]);
+			}
+		}
+
+		void andNotInPlace(Chunk other) {
+			if (other instanceof BitmapChunk) {
+				long[] otherWords = ((BitmapChunk) other).words;
+				for (int i = 0; i < BITMAP_WORDS; i++)
+					words[i] &= ~otherWords[i];
+				updateCardinality();
+			} else {
+				ArrayChunk array = (ArrayChunk) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					int low = array.values[i];
+					if (contains(low)) {
+						words[low >>> 6] &= ~(1L << low);
+						cardinality--;
+					}
+				}
+			}
+		}
+
+		Chunk and(BitmapChunk other) {
+			BitmapChunk result = new BitmapChunk(new long[BITMAP_WORDS], 0);
+			for (int i = 0; i < BITMAP_WORDS; i++)
+				result.words[i] = words[i] & other.words[i];
+			result.updateCardinality();
+			return result.optimize();
+		}
+
+		int andCardinality(BitmapChunk other) {
+			int cardinality = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++)
+				cardinality += Long.bitCount(words[i] & other.words[i]);
+			return cardinality;
+		}
+
+		/**
+		 * Returns this chunk, or an ArrayChunk of its values if it has few
+		 * enough values.
+		 */
+		Chunk optimize() {
+			if (cardinality > MAX_ARRAY_SIZE)
+				return this;
+			char[] values = new char[Math.max(cardinality, 1)];
+			int n = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = words[i];
+				while (word != 0) {
+					values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayChunk(values, n);
+		}
+
+		private void updateCardinality() {
+			cardinality = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++)
+				cardinality += Long.bitCount(words[i]);
+		}
+	}
+}